@@ -53,7 +53,10 @@ public class PreprocessorFaceUnity implements IPreprocessor, CameraVideoChannel.
 
     @Override
     public VideoCaptureFrame onPreProcessFrame(VideoCaptureFrame outFrame, VideoChannel.ChannelContext context) {
-        if (mFURenderer == null || !mEnabled) {
+        if (mFURenderer == null || !mEnabled || outFrame.image == null) {
+            // The frames may have no image for a while
+            // after the preprocessor is enabled, until
+            // the capture switches back to read images.
             return outFrame;
         }
 
@@ -153,6 +156,12 @@ public class PreprocessorFaceUnity implements IPreprocessor, CameraVideoChannel.
         if (mAuthenticated) mEnabled = enabled;
     }
 
+    @Override
+    public boolean requiresImageData() {
+        // Face tracking works on the camera images
+        return mFURenderer != null && mEnabled;
+    }
+
     @Override
     public void releasePreprocessor(VideoChannel.ChannelContext context) {
         if (mFURenderer != null) {
@@ -51,6 +51,12 @@ public class RtcVideoConsumer implements IVideoConsumer, IVideoSource {
         }
     }
 
+    @Override
+    public boolean requiresImageData() {
+        // Frames are sent to the rtc engine as textures
+        return false;
+    }
+
     @Override
     public void connectChannel(int channelId) {
         // Rtc transmission is an off-screen rendering procedure.
@@ -23,6 +23,8 @@ import com.elvishew.xlog.printer.file.naming.DateFileNameGenerator;
 import com.faceunity.FURenderer;
 import com.tencent.bugly.crashreport.CrashReport;
 
+import java.io.File;
+
 import io.agora.capture.video.camera.CameraManager;
 import io.agora.framework.PreprocessorFaceUnity;
 import io.agora.rtc.RtcEngine;
@@ -30,22 +32,27 @@ import io.agora.rtm.RtmClient;
 import io.agora.vlive.agora.AgoraEngine;
 import io.agora.vlive.agora.rtc.RtcEventHandler;
 import io.agora.vlive.protocol.ClientProxy;
+import io.agora.vlive.protocol.RoomListCache;
 import io.agora.vlive.utils.Global;
 import io.agora.vlive.utils.UserUtil;
 
 public class AgoraLiveApplication extends Application {
     private static final String TAG = AgoraLiveApplication.class.getSimpleName();
+    private static final String ROOM_LIST_CACHE_DIR = "rooms";
 
     private SharedPreferences mPref;
     private Config mConfig;
     private AgoraEngine mAgoraEngine;
     private CameraManager mCameraVideoManager;
+    private RoomListCache mRoomListCache;
 
     @Override
     public void onCreate() {
         super.onCreate();
         mPref = getSharedPreferences(Global.Constants.SF_NAME, Context.MODE_PRIVATE);
         mConfig = new Config(this);
+        ClientProxy.init(this);
+        mRoomListCache = new RoomListCache(new File(getCacheDir(), ROOM_LIST_CACHE_DIR));
         initXLog();
         initVideoGlobally();
         initCrashReport();
@@ -60,6 +67,10 @@ public class AgoraLiveApplication extends Application {
         return mPref;
     }
 
+    public RoomListCache roomListCache() {
+        return mRoomListCache;
+    }
+
     public void initEngine(String appId) {
         mAgoraEngine = new AgoraEngine(this, appId);
     }
@@ -96,6 +107,10 @@ public class AgoraLiveApplication extends Application {
             mCameraVideoManager = new CameraManager(
                     this, preprocessor);
             mCameraVideoManager.setCameraStateListener(preprocessor);
+            if (BuildConfig.DEBUG) {
+                mCameraVideoManager.setFrameTimingListener(report -> XLog.d(report.toString()),
+                        Global.Constants.FRAME_TIMING_LOG_INTERVAL, true);
+            }
         }).start();
     }
 
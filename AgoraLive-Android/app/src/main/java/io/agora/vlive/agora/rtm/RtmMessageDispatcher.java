@@ -0,0 +1,241 @@
+package io.agora.vlive.agora.rtm;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers rtm events to the registered listeners.
+ * Every listener is registered with the executor its events
+ * are delivered in (the calling thread, the main looper or a
+ * thread of its own), so a slow listener does not delay the
+ * others or the rtm callback thread.
+ * Events are dispatched to one of two lanes. The pending events
+ * of the control lane (seat, PK and leave messages) are always
+ * delivered before any pending event of the normal lane (chat,
+ * gifts and notifications). Events of one lane are delivered
+ * to a listener in the order they are dispatched.
+ * The registry is copy-on-write, dispatching never blocks
+ * registering listeners and vice versa.
+ */
+public class RtmMessageDispatcher<L> {
+    public static final int LANE_CONTROL = 0;
+    public static final int LANE_NORMAL = 1;
+    private static final int LANE_COUNT = 2;
+
+    // Max number of normal events delivered in one run of
+    // a listener's executor, before giving way to other tasks
+    private static final int MAX_NORMAL_EVENTS_PER_RUN = 8;
+
+    public interface Delivery<L> {
+        void deliver(L listener);
+    }
+
+    private final CopyOnWriteArrayList<Registration<L>> mRegistrations = new CopyOnWriteArrayList<>();
+    private final LaneCounter[] mCounters = new LaneCounter[LANE_COUNT];
+
+    public RtmMessageDispatcher() {
+        for (int i = 0; i < LANE_COUNT; i++) {
+            mCounters[i] = new LaneCounter();
+        }
+    }
+
+    /**
+     * Register a listener, or change the executor of a
+     * registered listener.
+     * @param executor where events are delivered, null
+     *                 to deliver in the dispatching thread
+     */
+    public void register(L listener, Executor executor) {
+        unregister(listener);
+        mRegistrations.add(new Registration<>(listener, executor, mCounters));
+    }
+
+    /**
+     * Events pending for the listener are discarded.
+     */
+    public void unregister(L listener) {
+        for (Registration<L> registration : mRegistrations) {
+            if (registration.listener == listener) {
+                registration.cancel();
+                mRegistrations.remove(registration);
+            }
+        }
+    }
+
+    public boolean isRegistered(L listener) {
+        for (Registration<L> registration : mRegistrations) {
+            if (registration.listener == listener) return true;
+        }
+        return false;
+    }
+
+    public void dispatch(int lane, Delivery<L> delivery) {
+        if (lane < 0 || lane >= LANE_COUNT) {
+            throw new IllegalArgumentException(
+                    "[RtmMessageDispatcher] wrong argument: unknown lane " + lane);
+        }
+
+        for (Registration<L> registration : mRegistrations) {
+            registration.enqueue(lane, delivery);
+        }
+    }
+
+    public LaneMetrics getMetrics(int lane) {
+        return mCounters[lane].snapshot();
+    }
+
+    /**
+     * Queue depth and dispatch latency of a lane, summed
+     * over all listeners. The latency is the time from
+     * dispatching an event to delivering it.
+     */
+    public static class LaneMetrics {
+        public int depth;
+        public int maxDepth;
+        public long delivered;
+        public long averageLatencyMs;
+        public long maxLatencyMs;
+
+        @Override
+        public String toString() {
+            return "depth " + depth + ", max depth " + maxDepth +
+                    ", delivered " + delivered +
+                    ", latency avg " + averageLatencyMs + " ms, max " + maxLatencyMs + " ms";
+        }
+    }
+
+    private static class LaneCounter {
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong totalLatencyNs = new AtomicLong();
+        private final AtomicLong maxLatencyNs = new AtomicLong();
+
+        void onEnqueued() {
+            int value = depth.incrementAndGet();
+            int max;
+            while (value > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, value));
+        }
+
+        void onRemoved() {
+            depth.decrementAndGet();
+        }
+
+        void onDelivered(long latencyNs) {
+            delivered.incrementAndGet();
+            totalLatencyNs.addAndGet(latencyNs);
+            long max;
+            while (latencyNs > (max = maxLatencyNs.get()) && !maxLatencyNs.compareAndSet(max, latencyNs));
+        }
+
+        LaneMetrics snapshot() {
+            LaneMetrics metrics = new LaneMetrics();
+            metrics.depth = depth.get();
+            metrics.maxDepth = maxDepth.get();
+            metrics.delivered = delivered.get();
+            metrics.averageLatencyMs = metrics.delivered > 0
+                    ? totalLatencyNs.get() / metrics.delivered / 1000000 : 0;
+            metrics.maxLatencyMs = maxLatencyNs.get() / 1000000;
+            return metrics;
+        }
+    }
+
+    private static class Event<L> {
+        final Delivery<L> delivery;
+        final long dispatchTimeNs;
+
+        Event(Delivery<L> delivery, long dispatchTimeNs) {
+            this.delivery = delivery;
+            this.dispatchTimeNs = dispatchTimeNs;
+        }
+    }
+
+    private static class Registration<L> implements Runnable {
+        final L listener;
+        private final Executor mExecutor;
+        private final LaneCounter[] mCounters;
+
+        // Guarded by this
+        private final ArrayDeque<Event<L>>[] mLanes;
+        private boolean mScheduled;
+        private boolean mCancelled;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Registration(L listener, Executor executor, LaneCounter[] counters) {
+            this.listener = listener;
+            mExecutor = executor;
+            mCounters = counters;
+            mLanes = new ArrayDeque[LANE_COUNT];
+            for (int i = 0; i < LANE_COUNT; i++) {
+                mLanes[i] = new ArrayDeque<>();
+            }
+        }
+
+        void enqueue(int lane, Delivery<L> delivery) {
+            synchronized (this) {
+                if (mCancelled) return;
+                mLanes[lane].add(new Event<>(delivery, System.nanoTime()));
+                mCounters[lane].onEnqueued();
+                if (mScheduled) return;
+                mScheduled = true;
+            }
+
+            if (mExecutor != null) {
+                mExecutor.execute(this);
+            } else {
+                run();
+            }
+        }
+
+        synchronized void cancel() {
+            mCancelled = true;
+            for (int i = 0; i < LANE_COUNT; i++) {
+                for (int j = mLanes[i].size(); j > 0; j--) {
+                    mCounters[i].onRemoved();
+                }
+                mLanes[i].clear();
+            }
+        }
+
+        @Override
+        public void run() {
+            int normalDelivered = 0;
+            while (true) {
+                Event<L> event;
+                int lane;
+                synchronized (this) {
+                    if (!mLanes[LANE_CONTROL].isEmpty()) {
+                        lane = LANE_CONTROL;
+                    } else if (!mLanes[LANE_NORMAL].isEmpty() &&
+                            (mExecutor == null || normalDelivered < MAX_NORMAL_EVENTS_PER_RUN)) {
+                        // Delivered inline, the loop goes on until
+                        // both lanes are empty.
+                        lane = LANE_NORMAL;
+                    } else if (mLanes[LANE_NORMAL].isEmpty()) {
+                        // Both lanes are checked and the run is marked
+                        // finished under the same lock, an event enqueued
+                        // from now on schedules another run.
+                        mScheduled = false;
+                        return;
+                    } else {
+                        // Stays scheduled, let other tasks
+                        // of the executor run
+                        break;
+                    }
+
+                    event = mLanes[lane].poll();
+                    mCounters[lane].onRemoved();
+                }
+
+                mCounters[lane].onDelivered(System.nanoTime() - event.dispatchTimeNs);
+                event.delivery.deliver(listener);
+                if (lane == LANE_NORMAL) normalDelivered++;
+            }
+
+            mExecutor.execute(this);
+        }
+    }
+}
@@ -1,20 +1,20 @@
 package io.agora.vlive.agora.rtm;
 
 import android.os.Handler;
-
-import androidx.annotation.NonNull;
+import android.os.HandlerThread;
+import android.os.SystemClock;
 
 import com.elvishew.xlog.XLog;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.google.gson.JsonParseException;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import io.agora.rtm.ErrorInfo;
 import io.agora.rtm.ResultCallback;
 import io.agora.rtm.RtmChannel;
 import io.agora.rtm.RtmChannelAttribute;
@@ -23,71 +23,85 @@ import io.agora.rtm.RtmChannelMember;
 import io.agora.rtm.RtmClient;
 import io.agora.rtm.RtmClientListener;
 import io.agora.rtm.RtmMessage;
+import io.agora.rtm.RtmMessageType;
+import io.agora.rtm.RtmStatusCode;
 import io.agora.rtm.SendMessageOptions;
+import io.agora.vlive.agora.rtm.model.AbsRtmMessage;
 import io.agora.vlive.agora.rtm.model.ChatMessage;
-import io.agora.vlive.agora.rtm.model.GiftMessage;
-import io.agora.vlive.agora.rtm.model.GiftRankMessage;
-import io.agora.vlive.agora.rtm.model.NotificationMessage;
-import io.agora.vlive.agora.rtm.model.OwnerStateMessage;
-import io.agora.vlive.agora.rtm.model.PKInvitationMessage;
-import io.agora.vlive.agora.rtm.model.PKStateMessage;
-import io.agora.vlive.agora.rtm.model.ProductPurchasedMessage;
-import io.agora.vlive.agora.rtm.model.ProductStatedChangedMessage;
-import io.agora.vlive.agora.rtm.model.SeatInteractionMessage;
-import io.agora.vlive.agora.rtm.model.SeatStateMessage;
-import io.agora.vlive.protocol.model.types.PKConstant;
-import io.agora.vlive.protocol.model.types.SeatInteraction;
+import io.agora.vlive.agora.rtm.model.RtmCompactCodec;
+import io.agora.vlive.agora.rtm.model.RtmMessageCodec;
+
+import static io.agora.vlive.agora.rtm.RtmMessageDispatcher.LANE_CONTROL;
+import static io.agora.vlive.agora.rtm.RtmMessageDispatcher.LANE_NORMAL;
 
 public class RtmMessageManager implements RtmClientListener, RtmChannelListener {
     private static final String TAG = RtmMessageManager.class.getSimpleName();
 
-    private static final int PEER_MSG_TYPE_SEAT = 1;
-    private static final int PEER_MSG_TYPE_PK = 2;
-    private static final int PEER_MSG_TYPE_OWNER_PK_NOTIFY = 3;
-
-    public static final int CHANNEL_MSG_TYPE_CHAT = 1;
-
-    // Users enter or leave the room
-    private static final int CHANNEL_MSG_TYPE_NOTIFY = 2;
-
-    // Where the UI needs to show the user rank of gift values
-    private static final int CHANNEL_MSG_TYPE_GIFT_RANK = 3;
-
-    // Notifies that the room owner has changed his state
-    private static final int CHANNEL_MSG_CMD_OWNER_STATE = 4;
-
-    // Notifies that the seats' states have changed,
-    // for multi-hosted rooms only
-    private static final int CHANNEL_MSG_TYPE_SEAT = 5;
-
-    // Notifies the PK states, for PK rooms only
-    private static final int CHANNEL_MSG_TYPE_PK = 6;
-
-    private static final int CHANNEL_MSG_TYPE_GIFT = 7;
-
-    private static final int CHANNEL_MSG_TYPE_LEAVE = 8;
+    /**
+     * Where the events of a message listener are delivered:
+     * the rtm callback thread, the callback thread set by
+     * setCallbackThread, or a thread of the listener's own.
+     */
+    public static final int DELIVERY_INLINE = 0;
+    public static final int DELIVERY_MAIN = 1;
+    public static final int DELIVERY_THREAD = 2;
 
-    private static final int CHANNEL_MSG_TYPE_PRODUCT_STATE_PURCHASED = 9;
-
-    private static final int CHANNEL_MSG_TYPE_PRODUCT_STATE_CHANGED = 10;
-
-    private static final int PEER_MSG_CMD_PK = 201;
-    private static final int PEER_MSG_CMD_PK_REJECT = 202;
-    private static final int PEER_MSG_CMD_PK_ACCEPT = 203;
+    // Rtm allows a client to send 60 messages per second
+    private static final int SEND_RATE_PER_SECOND = 60;
+    private static final int SEND_QUEUE_CAPACITY = 64;
 
     private volatile static RtmMessageManager sInstance;
 
     private RtmClient mRtmClient;
-    private RtmChannel mRtmChannel;
+    private volatile RtmChannel mRtmChannel;
     private SendMessageOptions mOptions;
-    private List<RtmMessageListener> mMessageListeners;
-    private Handler mHandler;
+    private final RtmMessageDispatcher<RtmMessageListener> mDispatcher;
+    private final RtmMessageRouter mRouter;
+    private final Map<RtmMessageListener, ExecutorService> mListenerThreads;
+    private final Executor mCallbackExecutor;
+    private volatile Handler mHandler;
+    // Whether the room of the channel allows the compact
+    // format, read in the send thread
+    private volatile boolean mCompactAllowed;
+
+    // Messages are queued and sent in the send thread,
+    // the states below are only accessed there.
+    private final Handler mSendHandler;
+    private final RtmSendQueue mSendQueue;
+    private boolean mConnected = true;
+    private boolean mJoined;
 
     private RtmMessageManager() {
         mOptions = new SendMessageOptions();
         mOptions.enableOfflineMessaging = false;
         mOptions.enableHistoricalMessaging = false;
-        mMessageListeners = new ArrayList<>();
+        mDispatcher = new RtmMessageDispatcher<>();
+        mRouter = new RtmMessageRouter(mDispatcher);
+        mListenerThreads = new ConcurrentHashMap<>();
+        mCallbackExecutor = command -> {
+            Handler handler = mHandler;
+            if (handler != null) {
+                handler.post(command);
+            } else {
+                command.run();
+            }
+        };
+
+        HandlerThread sendThread = new HandlerThread(TAG + "-send");
+        sendThread.start();
+        mSendHandler = new Handler(sendThread.getLooper());
+        mSendQueue = new RtmSendQueue(this::sendChannelMessage, new RtmSendQueue.Scheduler() {
+            @Override
+            public long now() {
+                return SystemClock.uptimeMillis();
+            }
+
+            @Override
+            public void schedule(Runnable task, long delayMs) {
+                mSendHandler.postDelayed(task, delayMs);
+            }
+        }, SEND_QUEUE_CAPACITY, SEND_RATE_PER_SECOND, SEND_RATE_PER_SECOND);
+        mSendQueue.setPaused(true);
     }
 
     public static RtmMessageManager instance() {
@@ -105,55 +119,186 @@ public class RtmMessageManager implements RtmClientListener, RtmChannelListener
         mRtmClient = client;
     }
 
-    public synchronized void joinChannel(String channel, ResultCallback<Void> callback) {
+    /**
+     * @param wireFormats the wire formats of channel messages
+     *                    that the room allows, assigned by the
+     *                    server when entering the room; null
+     *                    if only json is allowed
+     */
+    public synchronized void joinChannel(String channel, String wireFormats, ResultCallback<Void> callback) {
         if (mRtmChannel != null || mRtmClient == null) {
             return;
         }
 
+        mCompactAllowed = RtmCompactCodec.isAllowed(wireFormats);
         mRtmChannel = mRtmClient.createChannel(channel, this);
-        mRtmChannel.join(callback);
+        mRtmChannel.join(new ResultCallback<Void>() {
+            @Override
+            public void onSuccess(Void aVoid) {
+                // Messages sent before joining are held until now
+                mSendHandler.post(() -> {
+                    mJoined = true;
+                    updateSendState();
+                });
+                if (callback != null) callback.onSuccess(aVoid);
+            }
+
+            @Override
+            public void onFailure(ErrorInfo errorInfo) {
+                if (callback != null) callback.onFailure(errorInfo);
+            }
+        });
     }
 
     public synchronized void leaveChannel(ResultCallback<Void> callback) {
         if (mRtmChannel == null) return;
+        mSendHandler.post(() -> {
+            mJoined = false;
+            mSendQueue.clear();
+            updateSendState();
+        });
         mRtmChannel.leave(callback);
         mRtmChannel.release();
         mRtmChannel = null;
+        mCompactAllowed = false;
+        XLog.d(TAG + " control lane: " + mDispatcher.getMetrics(LANE_CONTROL));
+        XLog.d(TAG + " normal lane: " + mDispatcher.getMetrics(LANE_NORMAL));
+    }
+
+    /**
+     * Called by the send queue in the send thread
+     */
+    private void sendChannelMessage(AbsRtmMessage message, RtmSendQueue.Result result) {
+        RtmChannel channel = mRtmChannel;
+        if (channel == null) {
+            result.onFailure(RtmStatusCode.ChannelMessageError.CHANNEL_MESSAGE_ERR_FAILURE, true);
+            return;
+        }
+
+        RtmMessage msg = mCompactAllowed && RtmCompactCodec.supports(message.cmd)
+                ? mRtmClient.createMessage(RtmCompactCodec.encode(message))
+                : mRtmClient.createMessage(RtmMessageCodec.encode(message));
+        channel.sendMessage(msg, mOptions, new ResultCallback<Void>() {
+            @Override
+            public void onSuccess(Void aVoid) {
+                mSendHandler.post(result::onSuccess);
+            }
+
+            @Override
+            public void onFailure(ErrorInfo errorInfo) {
+                int code = errorInfo.getErrorCode();
+                mSendHandler.post(() -> result.onFailure(code, isRetryable(code)));
+            }
+        });
     }
 
-    private void sendChannelMessage(String message, ResultCallback<Void> callback) {
-        if (mRtmChannel == null) return;
-        RtmMessage msg = mRtmClient.createMessage(message);
-        mRtmChannel.sendMessage(msg, mOptions, callback);
+    private static boolean isRetryable(int channelMessageError) {
+        switch (channelMessageError) {
+            case RtmStatusCode.ChannelMessageError.CHANNEL_MESSAGE_ERR_FAILURE:
+            case RtmStatusCode.ChannelMessageError.CHANNEL_MESSAGE_ERR_SENT_TIMEOUT:
+            case RtmStatusCode.ChannelMessageError.CHANNEL_MESSAGE_ERR_TOO_OFTEN:
+                return true;
+            default:
+                return false;
+        }
     }
 
-    public void sendChatMessage(String userId, String nickname, String content, ResultCallback<Void> callback) {
-        String json = getChatMessageJsonString(userId, nickname, content);
-        sendChannelMessage(json, callback);
+    /**
+     * Sending is held while reconnecting or not in the channel
+     */
+    private void updateSendState() {
+        mSendQueue.setPaused(!mConnected || !mJoined);
     }
 
-    private String getChatMessageJsonString(String userId, String nickname, String content) {
-        ChatMessage data = new ChatMessage(userId, nickname, content);
-        return new GsonBuilder().create().toJson(data);
+    /**
+     * Queue a chat message. Messages are sent in order and
+     * rate limited, and are held while reconnecting.
+     * The callback is called in the callback thread set by
+     * setCallbackThread, or in an internal send thread if
+     * no callback thread is set.
+     * A queue error is reported as RtmSendQueue.ERROR_QUEUE_FULL,
+     * or RtmSendQueue.ERROR_CLEARED if the channel is left
+     * before the message is sent.
+     */
+    public void sendChatMessage(String userId, String nickname, String content, ResultCallback<Void> callback) {
+        ChatMessage message = new ChatMessage(userId, nickname, content);
+        mSendHandler.post(() -> mSendQueue.offer(message, new RtmSendQueue.Callback() {
+            @Override
+            public void onSuccess() {
+                if (callback != null) {
+                    mCallbackExecutor.execute(() -> callback.onSuccess(null));
+                }
+            }
+
+            @Override
+            public void onFailure(int errorCode) {
+                if (callback != null) {
+                    mCallbackExecutor.execute(() -> callback.onFailure(new ErrorInfo(errorCode)));
+                }
+            }
+        }));
     }
 
+    /**
+     * Events are delivered to the handler in the rtm callback thread
+     */
     public void registerMessageHandler(RtmMessageListener handler) {
-        if (!mMessageListeners.contains(handler)) mMessageListeners.add(handler);
+        registerMessageHandler(handler, DELIVERY_INLINE);
+    }
+
+    /**
+     * @param delivery one of DELIVERY_INLINE, DELIVERY_MAIN
+     *                 and DELIVERY_THREAD
+     */
+    public void registerMessageHandler(RtmMessageListener handler, int delivery) {
+        Executor executor;
+        switch (delivery) {
+            case DELIVERY_INLINE:
+                executor = null;
+                break;
+            case DELIVERY_MAIN:
+                executor = mCallbackExecutor;
+                break;
+            case DELIVERY_THREAD:
+                executor = Executors.newSingleThreadExecutor();
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "[RtmMessageManager] wrong argument: unknown delivery " + delivery);
+        }
+
+        mDispatcher.register(handler, executor);
+        ExecutorService thread = executor instanceof ExecutorService
+                ? mListenerThreads.put(handler, (ExecutorService) executor)
+                : mListenerThreads.remove(handler);
+        if (thread != null) thread.shutdown();
     }
 
     public void removeMessageHandler(RtmMessageListener handler) {
-        mMessageListeners.remove(handler);
+        mDispatcher.unregister(handler);
+        ExecutorService thread = mListenerThreads.remove(handler);
+        if (thread != null) thread.shutdown();
     }
 
     public void setCallbackThread(Handler handler) {
         mHandler = handler;
     }
 
+    /**
+     * @param lane RtmMessageDispatcher.LANE_CONTROL or LANE_NORMAL
+     */
+    public RtmMessageDispatcher.LaneMetrics getDispatchMetrics(int lane) {
+        return mDispatcher.getMetrics(lane);
+    }
+
     @Override
     public void onConnectionStateChanged(int state, int reason) {
-        for (RtmMessageListener handler : mMessageListeners) {
-            handler.onRtmConnectionStateChanged(state, reason);
-        }
+        mSendHandler.post(() -> {
+            mConnected = state == RtmStatusCode.ConnectionState.CONNECTION_STATE_CONNECTED;
+            updateSendState();
+        });
+        mDispatcher.dispatch(LANE_CONTROL, listener ->
+                listener.onRtmConnectionStateChanged(state, reason));
     }
 
     @Override
@@ -162,103 +307,15 @@ public class RtmMessageManager implements RtmClientListener, RtmChannelListener
         XLog.d("peer message: " + rtmMessageString);
 
         try {
-            JSONObject obj = new JSONObject(rtmMessageString);
-            int cmd = obj.getInt("cmd");
-            switch (cmd) {
-                case PEER_MSG_TYPE_SEAT:
-                    SeatInteractionMessage seatMessage = new GsonBuilder().create().
-                            fromJson(rtmMessageString, SeatInteractionMessage.class);
-                    handleSeatPeerMessageHandler(seatMessage);
-                    break;
-                case PEER_MSG_TYPE_PK:
-                    PKInvitationMessage pkInvitationMessage = new GsonBuilder().create().fromJson(
-                            rtmMessageString, PKInvitationMessage.class);
-                    handlePKInvitationMessageHandler(pkInvitationMessage);
-                    break;
-                case PEER_MSG_TYPE_OWNER_PK_NOTIFY:
-                    break;
-            }
-        } catch (JSONException e) {
+            mRouter.onPeerMessage(rtmMessageString);
+        } catch (JsonParseException e) {
             e.printStackTrace();
         }
     }
 
-    private void handleSeatPeerMessageHandler(SeatInteractionMessage message) {
-        if (mHandler != null) {
-            mHandler.post(() -> handleSeatPeerMessage(message));
-        } else {
-            handleSeatPeerMessage(message);
-        }
-    }
-
-    private void handleSeatPeerMessage(SeatInteractionMessage message) {
-        String userId = message.data.fromUser.userId;
-        String userName = message.data.fromUser.userName;
-        int seatNo = message.data.no;
-        for (RtmMessageListener listener : mMessageListeners) {
-            switch (message.data.type) {
-                case SeatInteraction.OWNER_INVITE:
-                    listener.onRtmSeatInvited(userId, userName, seatNo);
-                    break;
-                case SeatInteraction.AUDIENCE_APPLY:
-                    listener.onRtmSeatApplied(userId, userName, seatNo);
-                    break;
-                case SeatInteraction.OWNER_REJECT:
-                    listener.onRtmApplicationRejected(message.data.processId, userId, userName, seatNo);
-                    break;
-                case SeatInteraction.AUDIENCE_REJECT:
-                    listener.onRtmInvitationRejected(message.data.processId, userId, userName, seatNo);
-                    break;
-                case SeatInteraction.OWNER_ACCEPT:
-                    listener.onRtmApplicationAccepted(message.data.processId, userId, userName, seatNo);
-                    break;
-                case SeatInteraction.AUDIENCE_ACCEPT:
-                    listener.onRtmInvitationAccepted(message.data.processId, userId, userName, seatNo);
-                    break;
-                case SeatInteraction.OWNER_FORCE_LEAVE:
-                    listener.onRtmOwnerForceLeaveSeat(userId, userName, seatNo);
-                    break;
-                case SeatInteraction.HOST_LEAVE:
-                    listener.onRtmHostLeaveSeat(userId, userName, seatNo);
-                    break;
-            }
-        }
-    }
-
-    private void handlePKInvitationMessageHandler(PKInvitationMessage message) {
-        if (mHandler != null) {
-            mHandler.post(() -> handlePKInvitationMessage(message));
-        } else {
-            handlePKInvitationMessage(message);
-        }
-    }
-
-    private void handlePKInvitationMessage(PKInvitationMessage message) {
-        String roomId = message.data.fromRoom.roomId;
-        String userId = message.data.fromRoom.owner.userId;
-        String userName = message.data.fromRoom.owner.userName;
-        for (RtmMessageListener listener : mMessageListeners) {
-            switch (message.data.type) {
-                case PKConstant.PK_BEHAVIOR_INVITE:
-                    listener.onRtmPkReceivedFromAnotherHost(userId, userName, roomId);
-                    break;
-                case PKConstant.PK_BEHAVIOR_ACCEPT:
-                    listener.onRtmPkAcceptedByTargetHost(userId, userName, roomId);
-                    break;
-                case PKConstant.PK_BEHAVIOR_REJECT:
-                    listener.onRtmPkRejectedByTargetHost(userId, userName, roomId);
-                    break;
-                case PKConstant.PK_BEHAVIOR_TIMEOUT:
-                    break;
-            }
-        }
-    }
-
     @Override
     public void onTokenExpired() {
-        for (RtmMessageListener listener : mMessageListeners) {
-            listener.onRtmTokenExpired();
-        }
+        mDispatcher.dispatch(LANE_CONTROL, RtmMessageListener::onRtmTokenExpired);
     }
 
     @Override
@@ -273,147 +330,26 @@ public class RtmMessageManager implements RtmClientListener, RtmChannelListener
 
     @Override
     public void onAttributesUpdated(List<RtmChannelAttribute> attributeList) {
-        for (RtmMessageListener listener : mMessageListeners) {
-            listener.onRtmAttributesUpdated(attributeList);
-        }
+        mDispatcher.dispatch(LANE_NORMAL, listener ->
+                listener.onRtmAttributesUpdated(attributeList));
     }
 
     @Override
     public void onMessageReceived(RtmMessage rtmMessage, RtmChannelMember fromMember) {
         // Where channel messages are received
-        String json = rtmMessage.getText();
-        XLog.d("Channel message: " + rtmMessage.getText());
-
-        Gson gson = new Gson();
-        int cmd = -1;
         try {
-            JSONObject obj = new JSONObject(json);
-            cmd = obj.getInt("cmd");
-
-            for (final RtmMessageListener listener : mMessageListeners) {
-                switch (cmd) {
-                    case CHANNEL_MSG_TYPE_CHAT:
-                        ChatMessage chatMessage = gson.fromJson(json, ChatMessage.class);
-                        handleChatMessage(listener, chatMessage);
-                        break;
-                    case CHANNEL_MSG_TYPE_NOTIFY:
-                        NotificationMessage notification = gson.fromJson(json, NotificationMessage.class);
-                        handleNotificationMessage(listener, notification);
-                        break;
-                    case CHANNEL_MSG_TYPE_GIFT_RANK:
-                        GiftRankMessage rankMessage = gson.fromJson(json, GiftRankMessage.class);
-                        handleGiftRankMessage(listener, rankMessage);
-                        break;
-                    case CHANNEL_MSG_CMD_OWNER_STATE:
-                        OwnerStateMessage ownerMessage = gson.fromJson(json, OwnerStateMessage.class);
-                        handleOwnerStateMessage(listener, ownerMessage);
-                        break;
-                    case CHANNEL_MSG_TYPE_SEAT:
-                        SeatStateMessage seat = gson.fromJson(json, SeatStateMessage.class);
-                        handleSeatStateMessage(listener, seat);
-                        break;
-                    case CHANNEL_MSG_TYPE_PK:
-                        PKStateMessage pkStateMessage = gson.fromJson(json, PKStateMessage.class);
-                        handlePKMessage(listener, pkStateMessage.data);
-                        break;
-                    case CHANNEL_MSG_TYPE_GIFT:
-                        GiftMessage giftMessage = gson.fromJson(json, GiftMessage.class);
-                        handleGiftMessage(listener, giftMessage);
-                        break;
-                    case CHANNEL_MSG_TYPE_LEAVE:
-                        handleLeaveMessage(listener);
-                        break;
-                    case CHANNEL_MSG_TYPE_PRODUCT_STATE_CHANGED:
-                        ProductStatedChangedMessage productStateChangedMessage =
-                                gson.fromJson(json, ProductStatedChangedMessage.class);
-                        handleProductStateChangedMessage(listener, productStateChangedMessage);
-                        break;
-                    case CHANNEL_MSG_TYPE_PRODUCT_STATE_PURCHASED:
-                        break;
-                }
+            if (rtmMessage.getMessageType() == RtmMessageType.RAW) {
+                mRouter.onChannelMessage(rtmMessage.getRawMessage());
+            } else {
+                String json = rtmMessage.getText();
+                XLog.d("Channel message: " + json);
+                mRouter.onChannelMessage(json);
             }
-        } catch (JSONException e) {
+        } catch (JsonParseException | IllegalArgumentException e) {
             e.printStackTrace();
         }
     }
 
-    private void handleChatMessage(@NonNull RtmMessageListener listener, ChatMessage message) {
-        if (mHandler != null) {
-            mHandler.post(() -> listener.onRtmChannelMessageReceived(
-                    message.data.fromUserId, message.data.fromUserName, message.data.message));
-        } else {
-            listener.onRtmChannelMessageReceived(message.data.fromUserId, message.data.fromUserName, message.data.message);
-        }
-    }
-
-    private void handleNotificationMessage(@NonNull RtmMessageListener listener, NotificationMessage message) {
-        if (mHandler != null) {
-            mHandler.post(() -> listener.onRtmChannelNotification(message.data.total, message.data.list));
-        } else {
-            listener.onRtmChannelNotification(message.data.total, message.data.list);
-        }
-    }
-
-    private void handleGiftRankMessage(@NonNull RtmMessageListener listener, GiftRankMessage message) {
-        if (mHandler != null) {
-            mHandler.post(() -> listener.onRtmRoomGiftRankChanged(message.data.total, message.data.list));
-        } else {
-            listener.onRtmRoomGiftRankChanged(message.data.total, message.data.list);
-        }
-    }
-
-    private void handleOwnerStateMessage(@NonNull RtmMessageListener listener, OwnerStateMessage message) {
-        OwnerStateMessage.OwnerState data = message.data;
-        if (mHandler != null) {
-            mHandler.post(() -> listener.onRtmOwnerStateChanged(data.userId, data.userName, data.uid, data.enableAudio, data.enableVideo));
-        } else {
-            listener.onRtmOwnerStateChanged(data.userId, data.userName, data.uid, data.enableAudio, data.enableVideo);
-        }
-    }
-
-    private void handleSeatStateMessage(@NonNull RtmMessageListener listener, SeatStateMessage message) {
-        List<SeatStateMessage.SeatStateMessageDataItem> data = message.data;
-        if (mHandler != null) {
-            mHandler.post(() -> listener.onRtmSeatStateChanged(data));
-        } else {
-            listener.onRtmSeatStateChanged(data);
-        }
-    }
-
-    private void handlePKMessage(@NonNull RtmMessageListener listener, PKStateMessage.PKStateMessageBody message) {
-        if (mHandler != null) {
-            mHandler.post(() -> listener.onRtmReceivePKEvent(message));
-        } else {
-            listener.onRtmReceivePKEvent(message);
-        }
-    }
-
-    private void handleGiftMessage(@NonNull RtmMessageListener listener, GiftMessage message) {
-        GiftMessage.GiftMessageData data = message.data;
-        if (mHandler != null) {
-            mHandler.post(() -> listener.onRtmGiftMessage(data.fromUserId, data.fromUserName, data.toUserId, data.toUserName, data.giftId));
-        } else {
-            listener.onRtmGiftMessage(data.fromUserId, data.fromUserName, data.toUserId, data.toUserName, data.giftId);
-        }
-    }
-
-    private void handleLeaveMessage(@NonNull RtmMessageListener listener) {
-        if (mHandler != null) {
-            mHandler.post(listener::onRtmLeaveMessage);
-        } else {
-            listener.onRtmLeaveMessage();
-        }
-    }
-
-    private void handleProductStateChangedMessage(@NonNull RtmMessageListener listener,
-                                                  ProductStatedChangedMessage message) {
-        if (mHandler != null) {
-            mHandler.post(() -> listener.onRtmProductStateChanged(message.data.productId, message.data.state));
-        } else {
-            listener.onRtmProductStateChanged(message.data.productId, message.data.state);
-        }
-    }
-
     @Override
     public void onMemberJoined(RtmChannelMember rtmChannelMember) {
 
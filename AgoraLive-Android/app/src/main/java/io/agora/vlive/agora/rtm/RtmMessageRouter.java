@@ -0,0 +1,183 @@
+package io.agora.vlive.agora.rtm;
+
+import com.google.gson.JsonParseException;
+
+import java.util.List;
+
+import io.agora.vlive.agora.rtm.model.AbsRtmMessage;
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+import io.agora.vlive.agora.rtm.model.GiftMessage;
+import io.agora.vlive.agora.rtm.model.GiftRankMessage;
+import io.agora.vlive.agora.rtm.model.NotificationMessage;
+import io.agora.vlive.agora.rtm.model.OwnerStateMessage;
+import io.agora.vlive.agora.rtm.model.PKInvitationMessage;
+import io.agora.vlive.agora.rtm.model.PKStateMessage;
+import io.agora.vlive.agora.rtm.model.ProductStatedChangedMessage;
+import io.agora.vlive.agora.rtm.model.RtmCompactCodec;
+import io.agora.vlive.agora.rtm.model.RtmMessageCodec;
+import io.agora.vlive.agora.rtm.model.SeatInteractionMessage;
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+import io.agora.vlive.protocol.model.types.PKConstant;
+import io.agora.vlive.protocol.model.types.SeatInteraction;
+
+import static io.agora.vlive.agora.rtm.RtmMessageDispatcher.LANE_CONTROL;
+import static io.agora.vlive.agora.rtm.RtmMessageDispatcher.LANE_NORMAL;
+
+/**
+ * Decodes the peer and channel messages received, and
+ * dispatches them to the lanes of the message listeners.
+ * Each message is decoded only once for all listeners.
+ * It does not depend on the rtm sdk or android, so that
+ * the receiving path can be run and measured in local
+ * tests; RtmMessageManager passes the message contents
+ * received from the sdk here.
+ */
+class RtmMessageRouter {
+    private final RtmMessageDispatcher<RtmMessageListener> mDispatcher;
+
+    RtmMessageRouter(RtmMessageDispatcher<RtmMessageListener> dispatcher) {
+        mDispatcher = dispatcher;
+    }
+
+    /**
+     * @throws JsonParseException if the message cannot be decoded
+     */
+    void onPeerMessage(String json) {
+        int cmd = RtmMessageCodec.readCmd(json);
+        switch (cmd) {
+            case RtmMessageCodec.PEER_MSG_TYPE_SEAT:
+                SeatInteractionMessage seatMessage = RtmMessageCodec.decode(
+                        json, SeatInteractionMessage.class);
+                mDispatcher.dispatch(LANE_CONTROL, listener ->
+                        handleSeatPeerMessage(listener, seatMessage));
+                break;
+            case RtmMessageCodec.PEER_MSG_TYPE_PK:
+                PKInvitationMessage pkInvitationMessage = RtmMessageCodec.decode(
+                        json, PKInvitationMessage.class);
+                mDispatcher.dispatch(LANE_CONTROL, listener ->
+                        handlePKInvitationMessage(listener, pkInvitationMessage));
+                break;
+            case RtmMessageCodec.PEER_MSG_TYPE_OWNER_PK_NOTIFY:
+                break;
+        }
+    }
+
+    /**
+     * A channel message in json text
+     * @throws JsonParseException if the message cannot be decoded
+     */
+    void onChannelMessage(String json) {
+        int cmd = RtmMessageCodec.readCmd(json);
+        dispatchChannelMessage(cmd, RtmMessageCodec.decodeChannelMessage(cmd, json));
+    }
+
+    /**
+     * A channel message in the compact binary format, messages
+     * of a later format version are ignored
+     * @throws IllegalArgumentException if the message is broken
+     */
+    void onChannelMessage(byte[] raw) {
+        AbsRtmMessage message = RtmCompactCodec.decode(raw);
+        if (message != null) dispatchChannelMessage(message.cmd, message);
+    }
+
+    private void dispatchChannelMessage(int cmd, AbsRtmMessage message) {
+        switch (cmd) {
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_CHAT:
+                ChatMessage.ChatMessageData chat = ((ChatMessage) message).data;
+                mDispatcher.dispatch(LANE_NORMAL, listener -> listener.onRtmChannelMessageReceived(
+                        chat.fromUserId, chat.fromUserName, chat.message));
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_NOTIFY:
+                NotificationMessage.Notification notification = ((NotificationMessage) message).data;
+                mDispatcher.dispatch(LANE_NORMAL, listener -> listener.onRtmChannelNotification(
+                        notification.total, notification.list));
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT_RANK:
+                GiftRankMessage.GiftRank rank = ((GiftRankMessage) message).data;
+                mDispatcher.dispatch(LANE_NORMAL, listener -> listener.onRtmRoomGiftRankChanged(
+                        rank.total, rank.list));
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_CMD_OWNER_STATE:
+                OwnerStateMessage.OwnerState owner = ((OwnerStateMessage) message).data;
+                mDispatcher.dispatch(LANE_NORMAL, listener -> listener.onRtmOwnerStateChanged(
+                        owner.userId, owner.userName, owner.uid, owner.enableAudio, owner.enableVideo));
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_SEAT:
+                List<SeatStateMessage.SeatStateMessageDataItem> seats = ((SeatStateMessage) message).data;
+                mDispatcher.dispatch(LANE_CONTROL, listener -> listener.onRtmSeatStateChanged(seats));
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_PK:
+                PKStateMessage.PKStateMessageBody pk = ((PKStateMessage) message).data;
+                mDispatcher.dispatch(LANE_CONTROL, listener -> listener.onRtmReceivePKEvent(pk));
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT:
+                GiftMessage.GiftMessageData gift = ((GiftMessage) message).data;
+                mDispatcher.dispatch(LANE_NORMAL, listener -> listener.onRtmGiftMessage(
+                        gift.fromUserId, gift.fromUserName, gift.toUserId, gift.toUserName, gift.giftId));
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_LEAVE:
+                mDispatcher.dispatch(LANE_CONTROL, RtmMessageListener::onRtmLeaveMessage);
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_PRODUCT_STATE_CHANGED:
+                ProductStatedChangedMessage.ProductState product =
+                        ((ProductStatedChangedMessage) message).data;
+                mDispatcher.dispatch(LANE_NORMAL, listener -> listener.onRtmProductStateChanged(
+                        product.productId, product.state));
+                break;
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_PRODUCT_STATE_PURCHASED:
+                break;
+        }
+    }
+
+    private void handleSeatPeerMessage(RtmMessageListener listener, SeatInteractionMessage message) {
+        String userId = message.data.fromUser.userId;
+        String userName = message.data.fromUser.userName;
+        int seatNo = message.data.no;
+        switch (message.data.type) {
+            case SeatInteraction.OWNER_INVITE:
+                listener.onRtmSeatInvited(userId, userName, seatNo);
+                break;
+            case SeatInteraction.AUDIENCE_APPLY:
+                listener.onRtmSeatApplied(userId, userName, seatNo);
+                break;
+            case SeatInteraction.OWNER_REJECT:
+                listener.onRtmApplicationRejected(message.data.processId, userId, userName, seatNo);
+                break;
+            case SeatInteraction.AUDIENCE_REJECT:
+                listener.onRtmInvitationRejected(message.data.processId, userId, userName, seatNo);
+                break;
+            case SeatInteraction.OWNER_ACCEPT:
+                listener.onRtmApplicationAccepted(message.data.processId, userId, userName, seatNo);
+                break;
+            case SeatInteraction.AUDIENCE_ACCEPT:
+                listener.onRtmInvitationAccepted(message.data.processId, userId, userName, seatNo);
+                break;
+            case SeatInteraction.OWNER_FORCE_LEAVE:
+                listener.onRtmOwnerForceLeaveSeat(userId, userName, seatNo);
+                break;
+            case SeatInteraction.HOST_LEAVE:
+                listener.onRtmHostLeaveSeat(userId, userName, seatNo);
+                break;
+        }
+    }
+
+    private void handlePKInvitationMessage(RtmMessageListener listener, PKInvitationMessage message) {
+        String roomId = message.data.fromRoom.roomId;
+        String userId = message.data.fromRoom.owner.userId;
+        String userName = message.data.fromRoom.owner.userName;
+        switch (message.data.type) {
+            case PKConstant.PK_BEHAVIOR_INVITE:
+                listener.onRtmPkReceivedFromAnotherHost(userId, userName, roomId);
+                break;
+            case PKConstant.PK_BEHAVIOR_ACCEPT:
+                listener.onRtmPkAcceptedByTargetHost(userId, userName, roomId);
+                break;
+            case PKConstant.PK_BEHAVIOR_REJECT:
+                listener.onRtmPkRejectedByTargetHost(userId, userName, roomId);
+                break;
+            case PKConstant.PK_BEHAVIOR_TIMEOUT:
+                break;
+        }
+    }
+}
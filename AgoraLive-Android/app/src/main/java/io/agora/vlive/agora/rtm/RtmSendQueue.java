@@ -0,0 +1,200 @@
+package io.agora.vlive.agora.rtm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.vlive.agora.rtm.model.AbsRtmMessage;
+
+/**
+ * Bounded queue of outgoing channel messages.
+ * Messages are sent one at a time in the order queued, at
+ * most as fast as a token bucket allows. Failed sends are
+ * retried with exponential backoff if the failure is
+ * transient, and sending is held while the queue is paused
+ * (reconnecting, or re-joining the channel) and resumed
+ * afterwards. Every message is sent as it is, messages are
+ * never merged since receivers show each one as it arrives.
+ * Not thread-safe, all methods including the send results
+ * and scheduled tasks must be called in one thread.
+ */
+public class RtmSendQueue {
+    public static final int ERROR_QUEUE_FULL = -1;
+    public static final int ERROR_CLEARED = -2;
+
+    private static final int MAX_RETRIES = 3;
+    private static final long RETRY_BASE_DELAY_MS = 500;
+
+    public interface Callback {
+        void onSuccess();
+
+        void onFailure(int errorCode);
+    }
+
+    public interface Result {
+        void onSuccess();
+
+        /**
+         * @param retryable true if the failure is transient
+         *                  and the message can be sent again
+         */
+        void onFailure(int errorCode, boolean retryable);
+    }
+
+    public interface Transport {
+        void send(AbsRtmMessage message, Result result);
+    }
+
+    public interface Scheduler {
+        long now();
+
+        void schedule(Runnable task, long delayMs);
+    }
+
+    private static class Entry {
+        AbsRtmMessage message;
+        Callback callback;
+        int attempts;
+        long notBefore;
+    }
+
+    private final Transport mTransport;
+    private final Scheduler mScheduler;
+    private final int mCapacity;
+    private final ArrayDeque<Entry> mPending = new ArrayDeque<>();
+    private Entry mInFlight;
+    private boolean mPaused;
+
+    // Token bucket
+    private final double mTokensPerMs;
+    private final int mBurst;
+    private double mTokens;
+    private long mLastRefill;
+
+    private boolean mPumpScheduled;
+    private final Runnable mPump = () -> {
+        mPumpScheduled = false;
+        pump();
+    };
+
+    /**
+     * @param capacity max number of messages waiting to be sent
+     * @param ratePerSecond max number of messages sent per second
+     * @param burst max number of messages sent at once
+     */
+    public RtmSendQueue(Transport transport, Scheduler scheduler,
+                        int capacity, int ratePerSecond, int burst) {
+        if (capacity <= 0 || ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException(
+                    "[RtmSendQueue] wrong argument: capacity, rate and burst must be positive");
+        }
+        mTransport = transport;
+        mScheduler = scheduler;
+        mCapacity = capacity;
+        mTokensPerMs = ratePerSecond / 1000.0;
+        mBurst = burst;
+        mTokens = burst;
+        mLastRefill = scheduler.now();
+    }
+
+    /**
+     * @return false if the queue is full, the callback
+     * is then failed with ERROR_QUEUE_FULL
+     */
+    public boolean offer(AbsRtmMessage message, Callback callback) {
+        if (mPending.size() >= mCapacity) {
+            callback.onFailure(ERROR_QUEUE_FULL);
+            return false;
+        }
+
+        Entry entry = new Entry();
+        entry.message = message;
+        entry.callback = callback;
+        mPending.add(entry);
+        pump();
+        return true;
+    }
+
+    /**
+     * Hold or resume sending. The message being sent
+     * when paused is still waited for.
+     */
+    public void setPaused(boolean paused) {
+        mPaused = paused;
+        if (!paused) pump();
+    }
+
+    public boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * @return the number of messages waiting to be sent,
+     * not including the message being sent
+     */
+    public int size() {
+        return mPending.size();
+    }
+
+    /**
+     * Fail all messages waiting to be sent with ERROR_CLEARED
+     */
+    public void clear() {
+        List<Entry> entries = new ArrayList<>(mPending);
+        mPending.clear();
+        for (Entry entry : entries) {
+            entry.callback.onFailure(ERROR_CLEARED);
+        }
+    }
+
+    private void pump() {
+        if (mPaused || mInFlight != null || mPending.isEmpty()) return;
+
+        long now = mScheduler.now();
+        mTokens = Math.min(mBurst, mTokens + (now - mLastRefill) * mTokensPerMs);
+        mLastRefill = now;
+
+        Entry entry = mPending.peekFirst();
+        long wait = Math.max(entry.notBefore - now,
+                mTokens >= 1 ? 0 : (long) Math.ceil((1 - mTokens) / mTokensPerMs));
+        if (wait > 0) {
+            if (!mPumpScheduled) {
+                mPumpScheduled = true;
+                mScheduler.schedule(mPump, wait);
+            }
+            return;
+        }
+
+        mTokens -= 1;
+        mPending.pollFirst();
+        mInFlight = entry;
+        mTransport.send(entry.message, new Result() {
+            @Override
+            public void onSuccess() {
+                onSendResult(entry, true, 0, false);
+            }
+
+            @Override
+            public void onFailure(int errorCode, boolean retryable) {
+                onSendResult(entry, false, errorCode, retryable);
+            }
+        });
+    }
+
+    private void onSendResult(Entry entry, boolean success, int errorCode, boolean retryable) {
+        if (mInFlight != entry) return;
+        mInFlight = null;
+
+        if (success) {
+            entry.callback.onSuccess();
+        } else if (retryable && entry.attempts < MAX_RETRIES) {
+            entry.attempts++;
+            entry.notBefore = mScheduler.now() + (RETRY_BASE_DELAY_MS << (entry.attempts - 1));
+            mPending.addFirst(entry);
+        } else {
+            entry.callback.onFailure(errorCode);
+        }
+
+        pump();
+    }
+}
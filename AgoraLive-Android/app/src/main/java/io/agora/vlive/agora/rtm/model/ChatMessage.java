@@ -1,12 +1,10 @@
 package io.agora.vlive.agora.rtm.model;
 
-import io.agora.vlive.agora.rtm.RtmMessageManager;
-
 public class ChatMessage extends AbsRtmMessage {
     public ChatMessageData data;
 
     public ChatMessage(String fromUserId, String fromUserName, String message) {
-        cmd = RtmMessageManager.CHANNEL_MSG_TYPE_CHAT;
+        cmd = RtmMessageCodec.CHANNEL_MSG_TYPE_CHAT;
         data = new ChatMessageData();
         data.fromUserId = fromUserId;
         data.fromUserName = fromUserName;
@@ -1,6 +1,6 @@
 package io.agora.vlive.agora.rtm.model;
 
-public class GiftMessage {
+public class GiftMessage extends AbsRtmMessage {
     public GiftMessageData data;
 
     public static class GiftMessageData {
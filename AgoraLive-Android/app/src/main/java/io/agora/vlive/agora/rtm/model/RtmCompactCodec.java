@@ -0,0 +1,337 @@
+package io.agora.vlive.agora.rtm.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Compact binary wire format of the frequent channel messages
+ * (chat, gift and gift rank), sent as rtm raw messages instead
+ * of json texts.
+ * A message starts with a magic byte, which never starts a
+ * json text, and the format version, followed by the cmd and
+ * the fields of the message data. Every field is a varint tag
+ * (field number << 3 | wire type) and either a varint value
+ * or a length-prefixed value (utf-8 strings and nested items).
+ * Fields that are null are not written, and fields with
+ * unknown numbers are skipped, so fields can be added later
+ * without changing the version.
+ * Json stays the default: clients of this version decode both
+ * formats, but the compact format is only sent in rooms whose
+ * wire formats, assigned by the server when entering the room,
+ * include the format of this version.
+ */
+public class RtmCompactCodec {
+    public static final int VERSION = 1;
+
+    // Name of this version in the wire formats of a room
+    public static final String FORMAT = "compact" + VERSION;
+
+    private static final byte MAGIC = (byte) 0xA7;
+
+    private static final int TYPE_VARINT = 0;
+    private static final int TYPE_LENGTH = 2;
+
+    private static final int CHAT_FROM_USER_ID = 1;
+    private static final int CHAT_FROM_USER_NAME = 2;
+    private static final int CHAT_MESSAGE = 3;
+
+    private static final int GIFT_FROM_USER_ID = 1;
+    private static final int GIFT_FROM_USER_NAME = 2;
+    private static final int GIFT_TO_USER_ID = 3;
+    private static final int GIFT_TO_USER_NAME = 4;
+    private static final int GIFT_ID = 5;
+
+    private static final int RANK_TOTAL = 1;
+    private static final int RANK_ITEM = 2;
+    private static final int RANK_ITEM_USER_ID = 1;
+    private static final int RANK_ITEM_USER_NAME = 2;
+    private static final int RANK_ITEM_AVATAR = 3;
+
+    /**
+     * @return true if messages of the cmd can be
+     * encoded in the compact format
+     */
+    public static boolean supports(int cmd) {
+        return cmd == RtmMessageCodec.CHANNEL_MSG_TYPE_CHAT ||
+                cmd == RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT ||
+                cmd == RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT_RANK;
+    }
+
+    /**
+     * @param formats wire formats separated by commas,
+     *                null if not known
+     * @return true if the format of this version is
+     * one of the formats
+     */
+    public static boolean isAllowed(String formats) {
+        if (formats == null) return false;
+        for (String format : formats.split(",")) {
+            if (FORMAT.equals(format.trim())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the raw message is in the compact
+     * format, of any version
+     */
+    public static boolean isCompact(byte[] raw) {
+        return raw != null && raw.length >= 2 && raw[0] == MAGIC;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message type
+     * is not supported
+     */
+    public static byte[] encode(AbsRtmMessage message) {
+        Writer writer = new Writer();
+        writer.writeByte(MAGIC);
+        writer.writeByte(VERSION);
+        writer.writeVarint(message.cmd);
+
+        if (message instanceof ChatMessage) {
+            ChatMessage.ChatMessageData data = ((ChatMessage) message).data;
+            writer.writeString(CHAT_FROM_USER_ID, data.fromUserId);
+            writer.writeString(CHAT_FROM_USER_NAME, data.fromUserName);
+            writer.writeString(CHAT_MESSAGE, data.message);
+        } else if (message instanceof GiftMessage) {
+            GiftMessage.GiftMessageData data = ((GiftMessage) message).data;
+            writer.writeString(GIFT_FROM_USER_ID, data.fromUserId);
+            writer.writeString(GIFT_FROM_USER_NAME, data.fromUserName);
+            writer.writeString(GIFT_TO_USER_ID, data.toUserId);
+            writer.writeString(GIFT_TO_USER_NAME, data.toUserName);
+            writer.writeInt(GIFT_ID, data.giftId);
+        } else if (message instanceof GiftRankMessage) {
+            GiftRankMessage.GiftRank data = ((GiftRankMessage) message).data;
+            writer.writeInt(RANK_TOTAL, data.total);
+            if (data.list != null) {
+                Writer item = new Writer();
+                for (GiftRankMessage.GiftRankItem rankItem : data.list) {
+                    item.reset();
+                    item.writeString(RANK_ITEM_USER_ID, rankItem.userId);
+                    item.writeString(RANK_ITEM_USER_NAME, rankItem.userName);
+                    item.writeString(RANK_ITEM_AVATAR, rankItem.avatar);
+                    writer.writeBytes(RANK_ITEM, item);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    "[RtmCompactCodec] wrong argument: unsupported message cmd " + message.cmd);
+        }
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * @return the decoded message, or null if it is in a
+     * later version of the format or of an unknown cmd
+     * @throws IllegalArgumentException if the raw
+     * message is not in the compact format or is broken
+     */
+    public static AbsRtmMessage decode(byte[] raw) {
+        if (!isCompact(raw)) {
+            throw new IllegalArgumentException(
+                    "[RtmCompactCodec] wrong argument: not a compact message");
+        }
+
+        Reader reader = new Reader(raw, 1, raw.length);
+        if (reader.readVarint() > VERSION) return null;
+        int cmd = reader.readVarint();
+
+        switch (cmd) {
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_CHAT:
+                return decodeChat(reader);
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT:
+                return decodeGift(reader);
+            case RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT_RANK:
+                return decodeGiftRank(reader);
+            default:
+                return null;
+        }
+    }
+
+    private static ChatMessage decodeChat(Reader reader) {
+        ChatMessage message = new ChatMessage(null, null, null);
+        while (reader.hasNext()) {
+            int tag = reader.readVarint();
+            switch (tag >>> 3) {
+                case CHAT_FROM_USER_ID: message.data.fromUserId = reader.readString(tag); break;
+                case CHAT_FROM_USER_NAME: message.data.fromUserName = reader.readString(tag); break;
+                case CHAT_MESSAGE: message.data.message = reader.readString(tag); break;
+                default: reader.skip(tag); break;
+            }
+        }
+        return message;
+    }
+
+    private static GiftMessage decodeGift(Reader reader) {
+        GiftMessage message = new GiftMessage();
+        message.cmd = RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT;
+        message.data = new GiftMessage.GiftMessageData();
+        while (reader.hasNext()) {
+            int tag = reader.readVarint();
+            switch (tag >>> 3) {
+                case GIFT_FROM_USER_ID: message.data.fromUserId = reader.readString(tag); break;
+                case GIFT_FROM_USER_NAME: message.data.fromUserName = reader.readString(tag); break;
+                case GIFT_TO_USER_ID: message.data.toUserId = reader.readString(tag); break;
+                case GIFT_TO_USER_NAME: message.data.toUserName = reader.readString(tag); break;
+                case GIFT_ID: message.data.giftId = reader.readInt(tag); break;
+                default: reader.skip(tag); break;
+            }
+        }
+        return message;
+    }
+
+    private static GiftRankMessage decodeGiftRank(Reader reader) {
+        GiftRankMessage message = new GiftRankMessage();
+        message.cmd = RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT_RANK;
+        message.data = new GiftRankMessage.GiftRank();
+        message.data.list = new ArrayList<>();
+        while (reader.hasNext()) {
+            int tag = reader.readVarint();
+            switch (tag >>> 3) {
+                case RANK_TOTAL: message.data.total = reader.readInt(tag); break;
+                case RANK_ITEM: message.data.list.add(decodeGiftRankItem(reader.readNested(tag))); break;
+                default: reader.skip(tag); break;
+            }
+        }
+        return message;
+    }
+
+    private static GiftRankMessage.GiftRankItem decodeGiftRankItem(Reader reader) {
+        GiftRankMessage.GiftRankItem item = new GiftRankMessage.GiftRankItem();
+        while (reader.hasNext()) {
+            int tag = reader.readVarint();
+            switch (tag >>> 3) {
+                case RANK_ITEM_USER_ID: item.userId = reader.readString(tag); break;
+                case RANK_ITEM_USER_NAME: item.userName = reader.readString(tag); break;
+                case RANK_ITEM_AVATAR: item.avatar = reader.readString(tag); break;
+                default: reader.skip(tag); break;
+            }
+        }
+        return item;
+    }
+
+    private static class Writer {
+        private byte[] mBuffer = new byte[64];
+        private int mSize;
+
+        void reset() {
+            mSize = 0;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                mBuffer[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        void writeInt(int field, int value) {
+            writeVarint(field << 3 | TYPE_VARINT);
+            writeVarint(value);
+        }
+
+        void writeString(int field, String value) {
+            if (value == null) return;
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(field << 3 | TYPE_LENGTH);
+            writeVarint(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, mBuffer, mSize, bytes.length);
+            mSize += bytes.length;
+        }
+
+        void writeBytes(int field, Writer nested) {
+            writeVarint(field << 3 | TYPE_LENGTH);
+            writeVarint(nested.mSize);
+            ensureCapacity(nested.mSize);
+            System.arraycopy(nested.mBuffer, 0, mBuffer, mSize, nested.mSize);
+            mSize += nested.mSize;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer, mSize);
+        }
+
+        private void ensureCapacity(int length) {
+            if (mSize + length > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mSize + length));
+            }
+        }
+    }
+
+    private static class Reader {
+        private final byte[] mBuffer;
+        private final int mEnd;
+        private int mPosition;
+
+        Reader(byte[] buffer, int start, int end) {
+            mBuffer = buffer;
+            mPosition = start;
+            mEnd = end;
+        }
+
+        boolean hasNext() {
+            return mPosition < mEnd;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (mPosition >= mEnd) throw broken();
+                byte b = mBuffer[mPosition++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw broken();
+        }
+
+        int readInt(int tag) {
+            if ((tag & 0x7) != TYPE_VARINT) throw broken();
+            return readVarint();
+        }
+
+        String readString(int tag) {
+            int length = readLength(tag);
+            String value = new String(mBuffer, mPosition, length, StandardCharsets.UTF_8);
+            mPosition += length;
+            return value;
+        }
+
+        Reader readNested(int tag) {
+            int length = readLength(tag);
+            Reader nested = new Reader(mBuffer, mPosition, mPosition + length);
+            mPosition += length;
+            return nested;
+        }
+
+        void skip(int tag) {
+            switch (tag & 0x7) {
+                case TYPE_VARINT: readVarint(); break;
+                case TYPE_LENGTH: mPosition += readLength(tag); break;
+                default: throw broken();
+            }
+        }
+
+        private int readLength(int tag) {
+            if ((tag & 0x7) != TYPE_LENGTH) throw broken();
+            int length = readVarint();
+            if (length < 0 || length > mEnd - mPosition) throw broken();
+            return length;
+        }
+
+        private IllegalArgumentException broken() {
+            return new IllegalArgumentException(
+                    "[RtmCompactCodec] wrong argument: broken compact message");
+        }
+    }
+}
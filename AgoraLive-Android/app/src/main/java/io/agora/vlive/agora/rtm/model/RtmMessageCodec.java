@@ -0,0 +1,114 @@
+package io.agora.vlive.agora.rtm.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Converts rtm messages between json texts and message objects.
+ * A message is only read once: the cmd field is streamed from
+ * the beginning of the text, and the text is then decoded into
+ * the message type of the cmd.
+ * The Gson instance is shared, it is thread-safe and caches
+ * the type adapters of the message classes.
+ */
+public class RtmMessageCodec {
+    public static final int PEER_MSG_TYPE_SEAT = 1;
+    public static final int PEER_MSG_TYPE_PK = 2;
+    public static final int PEER_MSG_TYPE_OWNER_PK_NOTIFY = 3;
+
+    public static final int CHANNEL_MSG_TYPE_CHAT = 1;
+
+    // Users enter or leave the room
+    public static final int CHANNEL_MSG_TYPE_NOTIFY = 2;
+
+    // Where the UI needs to show the user rank of gift values
+    public static final int CHANNEL_MSG_TYPE_GIFT_RANK = 3;
+
+    // Notifies that the room owner has changed his state
+    public static final int CHANNEL_MSG_CMD_OWNER_STATE = 4;
+
+    // Notifies that the seats' states have changed,
+    // for multi-hosted rooms only
+    public static final int CHANNEL_MSG_TYPE_SEAT = 5;
+
+    // Notifies the PK states, for PK rooms only
+    public static final int CHANNEL_MSG_TYPE_PK = 6;
+
+    public static final int CHANNEL_MSG_TYPE_GIFT = 7;
+
+    public static final int CHANNEL_MSG_TYPE_LEAVE = 8;
+
+    public static final int CHANNEL_MSG_TYPE_PRODUCT_STATE_PURCHASED = 9;
+
+    public static final int CHANNEL_MSG_TYPE_PRODUCT_STATE_CHANGED = 10;
+
+    public static final int PEER_MSG_CMD_PK = 201;
+    public static final int PEER_MSG_CMD_PK_REJECT = 202;
+    public static final int PEER_MSG_CMD_PK_ACCEPT = 203;
+
+    private static final String KEY_CMD = "cmd";
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * @return the cmd of the message, read without decoding
+     * the rest of the message if cmd is the first field
+     * @throws JsonParseException if the text is not a json
+     * object or has no integer cmd
+     */
+    public static int readCmd(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (KEY_CMD.equals(reader.nextName())) {
+                    return reader.nextInt();
+                }
+                reader.skipValue();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException("Cannot read cmd of rtm message", e);
+        }
+
+        throw new JsonParseException("No cmd found in rtm message");
+    }
+
+    /**
+     * Decode a channel message into the message type of its cmd.
+     * @return the message object, or null if the cmd
+     * does not carry any data or is not known
+     * @throws JsonParseException if the text does not
+     * match the message type
+     */
+    public static AbsRtmMessage decodeChannelMessage(int cmd, String json) {
+        Class<? extends AbsRtmMessage> type = getChannelMessageType(cmd);
+        return type != null ? decode(json, type) : null;
+    }
+
+    private static Class<? extends AbsRtmMessage> getChannelMessageType(int cmd) {
+        switch (cmd) {
+            case CHANNEL_MSG_TYPE_CHAT: return ChatMessage.class;
+            case CHANNEL_MSG_TYPE_NOTIFY: return NotificationMessage.class;
+            case CHANNEL_MSG_TYPE_GIFT_RANK: return GiftRankMessage.class;
+            case CHANNEL_MSG_CMD_OWNER_STATE: return OwnerStateMessage.class;
+            case CHANNEL_MSG_TYPE_SEAT: return SeatStateMessage.class;
+            case CHANNEL_MSG_TYPE_PK: return PKStateMessage.class;
+            case CHANNEL_MSG_TYPE_GIFT: return GiftMessage.class;
+            case CHANNEL_MSG_TYPE_PRODUCT_STATE_CHANGED: return ProductStatedChangedMessage.class;
+            default: return null;
+        }
+    }
+
+    public static <T extends AbsRtmMessage> T decode(String json, Class<T> type) {
+        return GSON.fromJson(json, type);
+    }
+
+    public static String encode(AbsRtmMessage message) {
+        return GSON.toJson(message);
+    }
+}
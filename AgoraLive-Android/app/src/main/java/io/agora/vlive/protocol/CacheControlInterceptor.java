@@ -0,0 +1,115 @@
+package io.agora.vlive.protocol;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.agora.vlive.protocol.model.request.Request;
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Network interceptor that makes the responses of near-static
+ * requests (app version, gift and music lists) cacheable.
+ * The request type is read from the reqType header. If the
+ * server gives a cache lifetime, or forbids caching, its
+ * cache control is kept. Otherwise the fallback max age of
+ * the request type is applied to responses whose code is
+ * ok, and the other responses (errors, and responses of the
+ * other request types) are not stored.
+ */
+class CacheControlInterceptor implements Interceptor {
+    static final String HEADER_REQUEST_TYPE = "reqType";
+
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_PRAGMA = "Pragma";
+    private static final String METHOD_GET = "GET";
+    private static final String KEY_CODE = "code";
+
+    // Otherwise the cache stores every response of
+    // the server, without ever using it
+    private static final String CACHE_CONTROL_NO_STORE = "no-store";
+
+    // Max size of a response body checked for its code
+    private static final long MAX_CHECKED_BODY_BYTES = 256 * 1024;
+
+    private static final int APP_VERSION_MAX_AGE_SECONDS = 10 * 60;
+    private static final int CATALOGUE_MAX_AGE_SECONDS = 24 * 60 * 60;
+
+    private final Map<Integer, Integer> mMaxAges = new HashMap<>();
+
+    CacheControlInterceptor() {
+        mMaxAges.put(Request.APP_VERSION, APP_VERSION_MAX_AGE_SECONDS);
+        mMaxAges.put(Request.GIFT_LIST, CATALOGUE_MAX_AGE_SECONDS);
+        mMaxAges.put(Request.MUSIC_LIST, CATALOGUE_MAX_AGE_SECONDS);
+    }
+
+    /**
+     * @return the fallback max age in seconds of a request
+     * type, or -1 if responses of the type are not cached
+     */
+    int getMaxAge(int requestType) {
+        Integer maxAge = mMaxAges.get(requestType);
+        return maxAge != null ? maxAge : -1;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        okhttp3.Request request = chain.request();
+        Response response = chain.proceed(request);
+        if (!METHOD_GET.equals(request.method()) || !response.isSuccessful()) {
+            return response;
+        }
+
+        CacheControl server = response.cacheControl();
+        if (server.noStore() || server.noCache() ||
+                server.maxAgeSeconds() >= 0 || server.sMaxAgeSeconds() >= 0) {
+            return response;
+        }
+
+        int maxAge = getMaxAge(requestType(request));
+        String cacheControl = maxAge >= 0 && isCodeOk(response)
+                ? "public, max-age=" + maxAge
+                : CACHE_CONTROL_NO_STORE;
+
+        return response.newBuilder()
+                .removeHeader(HEADER_PRAGMA)
+                .header(HEADER_CACHE_CONTROL, cacheControl)
+                .build();
+    }
+
+    private static int requestType(okhttp3.Request request) {
+        String type = request.header(HEADER_REQUEST_TYPE);
+        if (type == null) return -1;
+
+        try {
+            return Integer.parseInt(type);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Streams the code field from a copy of the body
+     */
+    private static boolean isCodeOk(Response response) throws IOException {
+        String body = response.peekBody(MAX_CHECKED_BODY_BYTES).string();
+        JsonReader reader = new JsonReader(new StringReader(body));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (KEY_CODE.equals(reader.nextName())) {
+                    return reader.nextInt() == ResponseDispatcher.ERROR_OK;
+                }
+                reader.skipValue();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // Not a response of the server protocol
+        }
+        return false;
+    }
+}
@@ -1,5 +1,9 @@
 package io.agora.vlive.protocol;
 
+import android.content.Context;
+
+import java.io.File;
+
 import io.agora.vlive.protocol.model.request.AudienceListRequest;
 import io.agora.vlive.protocol.model.request.CreateRoomRequest;
 import io.agora.vlive.protocol.model.request.ModifySeatStateRequest;
@@ -27,6 +31,7 @@ public class ClientProxy {
     public static final int PK_UNAWARE = 2;
 
     private static final String APP_CODE = "ent-super";
+    private static final String HTTP_CACHE_DIR = "http";
     private static final int OS_TYPE = 2;
 
     // 1 means android phone app (rather than a pad app)
@@ -36,9 +41,18 @@ public class ClientProxy {
     private long mReqId = 1;
 
     private static volatile ClientProxy sInstance;
+    private static volatile File sCacheDir;
 
     private ClientProxy() {
-        mClient = new Client();
+        mClient = new Client(sCacheDir);
+    }
+
+    /**
+     * Should be called before the proxy is created, so that
+     * near-static responses are cached in the app's cache dir.
+     */
+    public static void init(Context context) {
+        sCacheDir = new File(context.getCacheDir(), HTTP_CACHE_DIR);
     }
 
     public static ClientProxy instance() {
@@ -53,71 +67,88 @@ public class ClientProxy {
         return sInstance;
     }
 
-    public long sendRequest(int request, Object params) {
+    /**
+     * Sends a request, and adds its handle to the group
+     * so that it is cancelled with the requests of a screen.
+     */
+    public RequestHandle sendRequest(int request, Object params, RequestGroup group) {
+        RequestHandle handle = sendRequest(request, params);
+        group.add(handle);
+        return handle;
+    }
+
+    /**
+     * @return the handle of the request, only read-only
+     * requests can be cancelled
+     */
+    public RequestHandle sendRequest(int request, Object params) {
+        long id = mReqId++;
+        RequestHandle handle = null;
+
         switch (request) {
             case Request.APP_VERSION:
                 String ver = (String) params;
-                mClient.requestVersion(mReqId, APP_CODE, OS_TYPE, TERMINAL_TYPE, ver);
+                handle = mClient.requestVersion(id, APP_CODE, OS_TYPE, TERMINAL_TYPE, ver);
                 break;
             case Request.GIFT_LIST:
-                mClient.requestGiftList(mReqId);
+                handle = mClient.requestGiftList(id);
                 break;
             case Request.MUSIC_LIST:
-                mClient.requestMusicList(mReqId);
+                handle = mClient.requestMusicList(id);
                 break;
             case Request.OSS:
                 OssPolicyRequest ossRequest = (OssPolicyRequest) params;
-                mClient.requestOssPolicy(mReqId, ossRequest.token, ossRequest.type);
+                mClient.requestOssPolicy(id, ossRequest.token, ossRequest.type);
                 break;
             case Request.CREATE_USER:
                 UserRequest userRequest = (UserRequest) params;
-                mClient.createUser(mReqId, userRequest.userName);
+                mClient.createUser(id, userRequest.userName);
                 break;
             case Request.EDIT_USER:
                 userRequest = (UserRequest) params;
-                mClient.editUser(mReqId, userRequest.token, userRequest.userId,
+                mClient.editUser(id, userRequest.token, userRequest.userId,
                         userRequest.userName, userRequest.avatar);
                 break;
             case Request.USER_LOGIN:
                 String userId = (String) params;
-                mClient.login(mReqId, userId);
+                mClient.login(id, userId);
                 break;
             case Request.ROOM_LIST:
                 RoomListRequest roomListRequest = (RoomListRequest) params;
-                mClient.requestRoomList(mReqId, roomListRequest.token, roomListRequest.nextId,
+                handle = mClient.requestRoomList(id, roomListRequest.token, roomListRequest.nextId,
                         roomListRequest.count, roomListRequest.type, roomListRequest.pkState);
                 break;
             case Request.CREATE_ROOM:
                 CreateRoomRequest createRoomRequest = (CreateRoomRequest) params;
-                mClient.createRoom(mReqId, createRoomRequest.token,
+                mClient.createRoom(id, createRoomRequest.token,
                         createRoomRequest.roomName, createRoomRequest.type,
                         createRoomRequest.avatar);
                 break;
             case Request.ENTER_ROOM:
                 RoomRequest roomRequest = (RoomRequest) params;
-                mClient.enterRoom(mReqId, roomRequest.token, roomRequest.roomId);
+                mClient.enterRoom(id, roomRequest.token, roomRequest.roomId);
                 break;
             case Request.LEAVE_ROOM:
                 roomRequest = (RoomRequest) params;
-                mClient.leaveRoom(mReqId, roomRequest.token, roomRequest.roomId);
+                mClient.leaveRoom(id, roomRequest.token, roomRequest.roomId);
                 break;
             case Request.AUDIENCE_LIST:
                 AudienceListRequest audienceRequest = (AudienceListRequest) params;
-                mClient.requestAudienceList(mReqId, audienceRequest.token, audienceRequest.roomId,
+                handle = mClient.requestAudienceList(id, audienceRequest.token, audienceRequest.roomId,
                         audienceRequest.nextId, audienceRequest.count, audienceRequest.type);
                 break;
             case Request.SEND_GIFT:
                 SendGiftRequest sendGiftRequest = (SendGiftRequest) params;
-                mClient.sendGift(mReqId, sendGiftRequest.token, sendGiftRequest.roomId,
+                mClient.sendGift(id, sendGiftRequest.token, sendGiftRequest.roomId,
                         sendGiftRequest.giftId, sendGiftRequest.count);
                 break;
             case Request.GIFT_RANK:
                 String roomId = (String) params;
-                mClient.giftRank(mReqId, roomId);
+                handle = mClient.giftRank(id, roomId);
                 break;
             case Request.SEAT_STATE:
                 roomRequest = (RoomRequest) params;
-                mClient.requestSeatState(mReqId, roomRequest.token, roomRequest.roomId);
+                handle = mClient.requestSeatState(id, roomRequest.token, roomRequest.roomId);
                 break;
             case Request.MODIFY_USER_STATE:
                 ModifyUserStateRequest userStateRequest = (ModifyUserStateRequest) params;
@@ -134,7 +165,7 @@ public class ClientProxy {
                 break;
             case Request.REFRESH_TOKEN:
                 RefreshTokenRequest refreshTokenRequest = (RefreshTokenRequest) params;
-                mClient.refreshToken(mReqId, refreshTokenRequest.token, refreshTokenRequest.roomId);
+                mClient.refreshToken(id, refreshTokenRequest.token, refreshTokenRequest.roomId);
                 break;
             case Request.PK_BEHAVIOR:
                 PKRequest pkRequest = (PKRequest) params;
@@ -153,7 +184,7 @@ public class ClientProxy {
                 break;
             case Request.PRODUCT_LIST:
                 ProductRequest productRequest = (ProductRequest) params;
-                mClient.requestProductList(productRequest.token, productRequest.roomId);
+                handle = mClient.requestProductList(id, productRequest.token, productRequest.roomId);
                 break;
             case Request.PRODUCT_MANAGE:
                 productRequest = (ProductRequest) params;
@@ -169,7 +200,7 @@ public class ClientProxy {
                 break;
         }
 
-        return mReqId++;
+        return handle != null ? handle : new SentRequest(id);
     }
 
     public void registerProxyListener(ClientProxyListener listener) {
@@ -179,4 +210,56 @@ public class ClientProxy {
     public void removeProxyListener(ClientProxyListener listener) {
         mClient.removeProxyListener(listener);
     }
+
+    /**
+     * @return the number of read-only requests sent
+     * to the server
+     */
+    public long getSentRequestCount() {
+        return mClient.getSentRequestCount();
+    }
+
+    /**
+     * @return the number of read-only requests that were
+     * not sent because an identical request was in flight,
+     * and were served by the response of that request
+     */
+    public long getCollapsedRequestCount() {
+        return mClient.getCollapsedRequestCount();
+    }
+
+    /**
+     * @return the number of read-only requests cancelled
+     * because no screen waited for their responses
+     */
+    public long getCancelledRequestCount() {
+        return mClient.getCancelledRequestCount();
+    }
+
+    /**
+     * A request that changes the state of the server, which
+     * is not cancelled, nor kept by request groups.
+     */
+    private static class SentRequest implements RequestHandle {
+        private final long mId;
+
+        SentRequest(long id) {
+            mId = id;
+        }
+
+        @Override
+        public long getId() {
+            return mId;
+        }
+
+        @Override
+        public void cancel() {
+            // Not cancelled, see RequestHandle#cancel
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+    }
 }
@@ -31,7 +31,7 @@ public interface ClientProxyListener {
 
     void onGiftListResponse(GiftListResponse response);
 
-    void onRoomListResponse(RoomListResponse response);
+    void onRoomListResponse(RoomListResponse response, String nextId);
 
     void onCreateUserResponse(CreateUserResponse response);
 
@@ -0,0 +1,66 @@
+package io.agora.vlive.protocol;
+
+import com.elvishew.xlog.XLog;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * Builds the http client shared by all server requests.
+ * All requests go to one host, so the connection pool keeps
+ * as many idle connections as requests may run at once for
+ * the host, and HTTP/2 is preferred to multiplex them on one
+ * connection. The near-static responses are kept in a disk
+ * cache, see CacheControlInterceptor.
+ */
+class HttpClientFactory {
+    static final long CACHE_SIZE = 10 * 1024 * 1024;
+
+    private static final int TIMEOUT_IN_SECONDS = 30;
+    private static final int MAX_REQUESTS = 16;
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final int KEEP_ALIVE_MINUTES = 3;
+
+    /**
+     * @param cacheDir where responses are cached,
+     *                 null if responses are not cached
+     * @param debug true to log the requests and responses
+     */
+    static OkHttpClient create(File cacheDir, boolean debug) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectTimeout(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_REQUESTS_PER_HOST,
+                        KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .addNetworkInterceptor(new CacheControlInterceptor());
+
+        if (cacheDir != null) {
+            builder.cache(new Cache(cacheDir, CACHE_SIZE));
+        }
+
+        if (debug) {
+            // Logs what is sent and received on the network,
+            // responses from the cache are not logged
+            HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(XLog::d);
+            interceptor.level(HttpLoggingInterceptor.Level.BODY);
+            builder.addNetworkInterceptor(interceptor);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,40 @@
+package io.agora.vlive.protocol;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Requests of one screen, cancelled together when
+ * the screen no longer needs the responses.
+ */
+public class RequestGroup {
+    private final List<RequestHandle> mHandles = new ArrayList<>();
+
+    public synchronized void add(RequestHandle handle) {
+        // Requests done are removed so that a screen
+        // refreshing periodically does not keep them all
+        Iterator<RequestHandle> iterator = mHandles.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isDone()) iterator.remove();
+        }
+
+        if (!handle.isDone()) mHandles.add(handle);
+    }
+
+    public void cancelAll() {
+        List<RequestHandle> handles;
+        synchronized (this) {
+            handles = new ArrayList<>(mHandles);
+            mHandles.clear();
+        }
+
+        for (RequestHandle handle : handles) {
+            handle.cancel();
+        }
+    }
+
+    public synchronized int size() {
+        return mHandles.size();
+    }
+}
@@ -0,0 +1,24 @@
+package io.agora.vlive.protocol;
+
+/**
+ * Handle of a request sent by ClientProxy.
+ */
+public interface RequestHandle {
+    long getId();
+
+    /**
+     * Stops waiting for the response. The call is cancelled
+     * when no other caller waits for the same response, and
+     * neither the response nor the error of a cancelled call
+     * is passed to the proxy listeners.
+     * Requests that change the state of the server are
+     * not cancelled, they may have been handled already.
+     */
+    void cancel();
+
+    /**
+     * @return true if the response has arrived,
+     * or the request is cancelled
+     */
+    boolean isDone();
+}
@@ -0,0 +1,141 @@
+package io.agora.vlive.protocol;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import io.agora.vlive.protocol.model.response.Response;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.internal.EverythingIsNonNull;
+
+/**
+ * Delivers the responses of server requests to the proxy
+ * listeners. The handler of each request type is routed
+ * once, together with a callback shared by all requests of
+ * the type. A response is checked and its error body is read
+ * only once, in the http thread, and the listeners are then
+ * called in the callback executor.
+ */
+class ResponseDispatcher {
+    static final int ERROR_OK = 0;
+    static final int ERROR_CONNECTION = -1;
+    static final int ERROR_NULL = -2;
+
+    static final String MSG_NULL_RESPONSE = "Response content is null";
+
+    /**
+     * Passes a successful response to a listener
+     */
+    interface Handler<T extends Response> {
+        void handle(ClientProxyListener listener, T response);
+    }
+
+    private final Executor mExecutor;
+    private final CopyOnWriteArrayList<ClientProxyListener> mListeners = new CopyOnWriteArrayList<>();
+    private final Map<Integer, ResponseCallback<? extends Response>> mCallbacks = new ConcurrentHashMap<>();
+
+    /**
+     * @param executor where the listeners are called
+     */
+    ResponseDispatcher(Executor executor) {
+        mExecutor = executor;
+    }
+
+    void addListener(ClientProxyListener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    void removeListener(ClientProxyListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * @param handler null if only errors of the request
+     *                are reported to the listeners
+     */
+    <T extends Response> void route(int request, Handler<T> handler) {
+        mCallbacks.put(request, new ResponseCallback<>(request, handler));
+    }
+
+    /**
+     * @return the shared callback of a routed request type
+     */
+    @SuppressWarnings("unchecked")
+    <T extends Response> Callback<T> callback(int request) {
+        ResponseCallback<? extends Response> callback = mCallbacks.get(request);
+        if (callback == null) {
+            throw new IllegalArgumentException(
+                    "[ResponseDispatcher] wrong argument: request " + request + " is not routed");
+        }
+        return (Callback<T>) callback;
+    }
+
+    /**
+     * A callback of one request, for handlers that need
+     * the arguments of the request
+     */
+    <T extends Response> Callback<T> callback(int request, Handler<T> handler) {
+        return new ResponseCallback<>(request, handler);
+    }
+
+    private void dispatchError(int request, int error, String message) {
+        mExecutor.execute(() -> {
+            for (ClientProxyListener listener : mListeners) {
+                listener.onResponseError(request, error, message);
+            }
+        });
+    }
+
+    private <T extends Response> void dispatch(Handler<T> handler, T response) {
+        mExecutor.execute(() -> {
+            for (ClientProxyListener listener : mListeners) {
+                handler.handle(listener, response);
+            }
+        });
+    }
+
+    private static String readErrorBody(retrofit2.Response<?> response) {
+        ResponseBody body = response.errorBody();
+        if (body == null) return MSG_NULL_RESPONSE;
+
+        try {
+            return body.string();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return MSG_NULL_RESPONSE;
+        }
+    }
+
+    private class ResponseCallback<T extends Response> implements Callback<T> {
+        private final int mRequest;
+        private final Handler<T> mHandler;
+
+        ResponseCallback(int request, Handler<T> handler) {
+            mRequest = request;
+            mHandler = handler;
+        }
+
+        @Override
+        @EverythingIsNonNull
+        public void onResponse(Call<T> call, retrofit2.Response<T> response) {
+            T body = response.body();
+            if (body == null) {
+                dispatchError(mRequest, ERROR_NULL, readErrorBody(response));
+            } else if (body.code != ERROR_OK) {
+                dispatchError(mRequest, body.code, body.msg);
+            } else if (mHandler != null) {
+                dispatch(mHandler, body);
+            }
+        }
+
+        @Override
+        @EverythingIsNonNull
+        public void onFailure(Call<T> call, Throwable t) {
+            dispatchError(mRequest, ERROR_CONNECTION, t.getMessage());
+        }
+    }
+}
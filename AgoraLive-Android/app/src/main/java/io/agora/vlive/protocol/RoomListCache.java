@@ -0,0 +1,202 @@
+package io.agora.vlive.protocol;
+
+import com.elvishew.xlog.XLog;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.agora.vlive.protocol.model.model.RoomInfo;
+
+/**
+ * Last known room lists of each room type and pk state, so
+ * that a room list is shown at once and revalidated with the
+ * server in the background. Pages received are merged into
+ * the list by room id. The lists are kept in memory, and
+ * written to snapshot files to be shown at cold start.
+ */
+public class RoomListCache {
+    private static final String SNAPSHOT_PREFIX = "rooms_";
+    private static final String SNAPSHOT_SUFFIX = ".json";
+    private static final String SNAPSHOT_TEMP_SUFFIX = ".tmp";
+    private static final int DISK_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static final Type LIST_TYPE = new TypeToken<List<RoomInfo>>(){}.getType();
+
+    private final Map<String, List<RoomInfo>> mLists = new HashMap<>();
+    private final Gson mGson = new Gson();
+    private final File mDir;
+    private final Executor mDiskExecutor;
+
+    /**
+     * @param dir where snapshots are written,
+     *            null if lists are kept in memory only
+     */
+    public RoomListCache(File dir) {
+        this(dir, createDiskExecutor());
+    }
+
+    RoomListCache(File dir, Executor diskExecutor) {
+        mDir = dir;
+        mDiskExecutor = diskExecutor;
+    }
+
+    private static Executor createDiskExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                DISK_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static String key(int type, Integer pkState) {
+        return pkState == null ? String.valueOf(type) : type + "_" + pkState;
+    }
+
+    /**
+     * @return a copy of the last known list, empty if unknown
+     */
+    public synchronized List<RoomInfo> get(int type, Integer pkState) {
+        return new ArrayList<>(getList(key(type, pkState)));
+    }
+
+    private List<RoomInfo> getList(String key) {
+        List<RoomInfo> list = mLists.get(key);
+        if (list == null) {
+            // The snapshot is a few rooms, read at
+            // once to show them in the first frame
+            list = readSnapshot(key);
+            mLists.put(key, list);
+        }
+        return list;
+    }
+
+    /**
+     * Merges a page of rooms into the list
+     * @param after id of the room the page follows,
+     *              null or empty for the first page
+     * @param pageSize number of rooms requested for the page
+     * @return a copy of the list after merging
+     */
+    public List<RoomInfo> merge(int type, Integer pkState, String after,
+                                List<RoomInfo> page, int pageSize) {
+        String key = key(type, pkState);
+        List<RoomInfo> merged;
+        synchronized (this) {
+            merged = merge(getList(key), after,
+                    page != null ? page : new ArrayList<>(), pageSize);
+            mLists.put(key, merged);
+        }
+
+        writeSnapshot(key, merged);
+        return new ArrayList<>(merged);
+    }
+
+    static List<RoomInfo> merge(List<RoomInfo> list, String after, List<RoomInfo> page, int pageSize) {
+        Set<String> pageIds = new HashSet<>();
+        for (RoomInfo info : page) pageIds.add(info.roomId);
+
+        List<RoomInfo> merged = new ArrayList<>();
+        if (after == null || after.isEmpty()) {
+            merged.addAll(page);
+            // Rooms of the later pages are kept until the list
+            // is scrolled to them, unless the first page is the
+            // whole list. Rooms no longer in the first page are
+            // removed.
+            if (page.size() >= pageSize) {
+                for (int i = pageSize; i < list.size(); i++) {
+                    RoomInfo info = list.get(i);
+                    if (!pageIds.contains(info.roomId)) merged.add(info);
+                }
+            }
+            return merged;
+        }
+
+        int anchor = indexOf(list, after);
+        if (anchor < 0) {
+            // The list has been refreshed since the page
+            // was requested, only new rooms are added
+            merged.addAll(list);
+            for (RoomInfo info : page) {
+                if (indexOf(list, info.roomId) < 0) merged.add(info);
+            }
+            return merged;
+        }
+
+        // The rooms after the anchor are replaced by the page
+        for (int i = 0; i <= anchor; i++) {
+            RoomInfo info = list.get(i);
+            if (!pageIds.contains(info.roomId)) merged.add(info);
+        }
+        merged.addAll(page);
+        return merged;
+    }
+
+    private static int indexOf(List<RoomInfo> list, String roomId) {
+        for (int i = 0; i < list.size(); i++) {
+            if (roomId.equals(list.get(i).roomId)) return i;
+        }
+        return -1;
+    }
+
+    private File snapshotFile(String key) {
+        return new File(mDir, SNAPSHOT_PREFIX + key + SNAPSHOT_SUFFIX);
+    }
+
+    private List<RoomInfo> readSnapshot(String key) {
+        File file = mDir != null ? snapshotFile(key) : null;
+        if (file == null || !file.exists()) return new ArrayList<>();
+
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8)) {
+            List<RoomInfo> list = mGson.fromJson(reader, LIST_TYPE);
+            if (list != null) return list;
+        } catch (IOException | JsonParseException e) {
+            XLog.e("read room list snapshot fails:" + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    private void writeSnapshot(String key, List<RoomInfo> list) {
+        if (mDir == null) return;
+
+        mDiskExecutor.execute(() -> {
+            if (!mDir.exists() && !mDir.mkdirs()) return;
+
+            // Written to a temp file first, so that
+            // a broken snapshot is never read
+            File file = snapshotFile(key);
+            File temp = new File(mDir, file.getName() + SNAPSHOT_TEMP_SUFFIX);
+            try (Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                mGson.toJson(list, LIST_TYPE, writer);
+            } catch (IOException e) {
+                XLog.e("write room list snapshot fails:" + e.getMessage());
+                return;
+            }
+
+            if (!temp.renameTo(file)) {
+                XLog.e("write room list snapshot fails:" + file.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,160 @@
+package io.agora.vlive.protocol;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.internal.EverythingIsNonNull;
+
+/**
+ * Collapses identical read-only requests in flight. A request
+ * is identified by its type and parameters; while it is in
+ * flight, an identical request is not sent again, because the
+ * response is delivered to all proxy listeners anyway, so
+ * every caller is served by the one response.
+ * Listeners removed before the response arrives do not
+ * receive it, see ResponseDispatcher.
+ * The call is cancelled when all of its callers have
+ * cancelled their requests.
+ */
+class SingleFlight {
+    interface CallFactory<T> {
+        Call<T> create();
+    }
+
+    private static class Flight {
+        private Call<?> mCall;
+        private int mCallers = 1;
+        private volatile boolean mEnded;
+    }
+
+    private class Caller implements RequestHandle {
+        private final long mId;
+        private final Object mKey;
+        private final Flight mFlight;
+        private final AtomicBoolean mCancelled = new AtomicBoolean();
+
+        private Caller(long id, Object key, Flight flight) {
+            mId = id;
+            mKey = key;
+            mFlight = flight;
+        }
+
+        @Override
+        public long getId() {
+            return mId;
+        }
+
+        @Override
+        public void cancel() {
+            if (mCancelled.compareAndSet(false, true)) {
+                leave(mKey, mFlight);
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            return mCancelled.get() || mFlight.mEnded;
+        }
+    }
+
+    private final Map<Object, Flight> mInFlight = new HashMap<>();
+    private long mSentCount;
+    private long mCollapsedCount;
+    private long mCancelledCount;
+
+    static Object key(int request, Object... params) {
+        Object[] key = new Object[params.length + 1];
+        key[0] = request;
+        System.arraycopy(params, 0, key, 1, params.length);
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Sends the request created by the factory, unless an
+     * identical request is in flight
+     * @param id id of the request of this caller
+     * @param key identifies the request, see {@link #key}
+     * @param callback called when the response arrives,
+     *                 unless the call is cancelled
+     */
+    <T> RequestHandle enqueue(long id, Object key, CallFactory<T> factory, Callback<T> callback) {
+        Flight flight;
+        synchronized (this) {
+            flight = mInFlight.get(key);
+            if (flight != null) {
+                flight.mCallers++;
+                mCollapsedCount++;
+                return new Caller(id, key, flight);
+            }
+
+            flight = new Flight();
+            mInFlight.put(key, flight);
+            mSentCount++;
+        }
+
+        // The flight has at least this caller until the
+        // handle is returned, so it cannot be cancelled
+        // before the call is set.
+        Call<T> call = factory.create();
+        synchronized (this) {
+            flight.mCall = call;
+        }
+
+        final Flight sent = flight;
+        call.enqueue(new Callback<T>() {
+            @Override
+            @EverythingIsNonNull
+            public void onResponse(Call<T> call, Response<T> response) {
+                end(key, sent);
+                if (!call.isCanceled()) callback.onResponse(call, response);
+            }
+
+            @Override
+            @EverythingIsNonNull
+            public void onFailure(Call<T> call, Throwable t) {
+                end(key, sent);
+                if (!call.isCanceled()) callback.onFailure(call, t);
+            }
+        });
+
+        return new Caller(id, key, flight);
+    }
+
+    private synchronized void end(Object key, Flight flight) {
+        flight.mEnded = true;
+        if (mInFlight.get(key) == flight) mInFlight.remove(key);
+    }
+
+    private void leave(Object key, Flight flight) {
+        Call<?> call;
+        synchronized (this) {
+            if (--flight.mCallers > 0 || flight.mEnded) return;
+            end(key, flight);
+            call = flight.mCall;
+            mCancelledCount++;
+        }
+
+        call.cancel();
+    }
+
+    synchronized long getSentCount() {
+        return mSentCount;
+    }
+
+    synchronized long getCollapsedCount() {
+        return mCollapsedCount;
+    }
+
+    /**
+     * @return the number of calls cancelled
+     * because no caller waited for them
+     */
+    synchronized long getCancelledCount() {
+        return mCancelledCount;
+    }
+}
@@ -25,6 +25,11 @@ public class EnterRoomResponse extends Response {
         public int currentUsers;
         public Owner owner;
         public PkInfo pk;
+
+        // Wire formats of channel messages that all clients
+        // allowed in the room decode, like "json,compact1".
+        // Null if the room only allows json.
+        public String wireFormats;
     }
 
     public static class RankInfo {
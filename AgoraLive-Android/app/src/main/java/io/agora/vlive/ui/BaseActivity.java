@@ -30,6 +30,8 @@ import io.agora.vlive.Config;
 import io.agora.vlive.agora.rtc.RtcEventHandler;
 import io.agora.vlive.protocol.ClientProxy;
 import io.agora.vlive.protocol.ClientProxyListener;
+import io.agora.vlive.protocol.RequestGroup;
+import io.agora.vlive.protocol.RequestHandle;
 import io.agora.vlive.protocol.model.response.AppVersionResponse;
 import io.agora.vlive.protocol.model.response.AudienceListResponse;
 import io.agora.vlive.protocol.model.response.CreateRoomResponse;
@@ -92,6 +94,10 @@ public abstract class BaseActivity extends AppCompatActivity implements ClientPr
     private BottomSheetDialog mSheetDialog;
     private long mLastToastTime;
 
+    // Read-only requests sent by this activity, cancelled
+    // when it is finished
+    private final RequestGroup mRequestGroup = new RequestGroup();
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -101,6 +107,18 @@ public abstract class BaseActivity extends AppCompatActivity implements ClientPr
         getDisplaySize();
     }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (isFinishing()) mRequestGroup.cancelAll();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mRequestGroup.cancelAll();
+    }
+
     private void setGlobalLayoutListener() {
         final View layout = findViewById(Window.ID_ANDROID_CONTENT);
         ViewTreeObserver observer = layout.getViewTreeObserver();
@@ -363,8 +381,8 @@ public abstract class BaseActivity extends AppCompatActivity implements ClientPr
         return application().rtmClient();
     }
 
-    public long sendRequest(int req, Object params) {
-        return proxy().sendRequest(req, params);
+    public RequestHandle sendRequest(int req, Object params) {
+        return proxy().sendRequest(req, params, mRequestGroup);
     }
 
     public void registerRtcHandler(RtcEventHandler handler) {
@@ -443,7 +461,7 @@ public abstract class BaseActivity extends AppCompatActivity implements ClientPr
     }
 
     @Override
-    public void onRoomListResponse(RoomListResponse response) {
+    public void onRoomListResponse(RoomListResponse response, String nextId) {
 
     }
 
@@ -25,7 +25,7 @@ import io.agora.vlive.utils.Global;
 import io.agora.vlive.utils.UserUtil;
 
 public class LiveMultiHostSeatLayout extends RelativeLayout {
-    private static final int MAX_SEAT = 6;
+    public static final int MAX_SEAT = 6;
 
     public interface LiveHostInSeatOnClickedListener {
         /**
@@ -242,6 +242,16 @@ public class LiveMultiHostSeatLayout extends RelativeLayout {
         }
     }
 
+    /**
+     * Update the state of one seat, other seats are not touched.
+     * @param position seat position starting from 0
+     */
+    public void updateSeat(int position, @NonNull SeatStateMessage.SeatStateMessageDataItem item) {
+        if (0 <= position && position < MAX_SEAT) {
+            refreshSeatStates(position, item.seat, item.user);
+        }
+    }
+
     private void refreshSeatStates(int position, @Nullable SeatStateMessage.SeatState seat,
                                    @Nullable SeatStateMessage.UserState user) {
         SeatItem curSeatState = mSeatList.get(position);
@@ -0,0 +1,95 @@
+package io.agora.vlive.ui.components;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Collects the messages that arrive between two display
+ * frames, so that the message list is updated once per frame
+ * with the whole batch.
+ * At most a fixed number of rate-limited messages are shown
+ * per second. The messages over the limit are dropped and
+ * only counted, the count is returned once the second ends
+ * to be shown as a summary.
+ * Messages can be offered from any thread.
+ */
+class LiveRoomMessageBuffer<T> {
+    private static final long WINDOW_MS = 1000;
+
+    private final ArrayList<T> mPending = new ArrayList<>();
+
+    // Indices of pending messages that are not rate-limited
+    private final BitSet mUnlimited = new BitSet();
+
+    private int mMaxPerSecond;
+    private long mWindowStart = -1;
+    private int mAdmitted;
+    private int mDropped;
+
+    LiveRoomMessageBuffer(int maxPerSecond) {
+        setMaxPerSecond(maxPerSecond);
+    }
+
+    synchronized void setMaxPerSecond(int maxPerSecond) {
+        if (maxPerSecond <= 0) {
+            throw new IllegalArgumentException(
+                    "[LiveRoomMessageBuffer] wrong argument: max messages per second must be positive");
+        }
+        mMaxPerSecond = maxPerSecond;
+    }
+
+    /**
+     * @param limited false if the message is always shown,
+     *                like the messages sent by the local user
+     * @return true if no message was pending before, and
+     * the caller needs to schedule a drain
+     */
+    synchronized boolean offer(T message, boolean limited) {
+        if (!limited) mUnlimited.set(mPending.size());
+        mPending.add(message);
+        return mPending.size() == 1;
+    }
+
+    /**
+     * Move the pending messages that are within the rate
+     * limit to the output list, in the order they arrived.
+     * @param nowMs monotonic time in milliseconds
+     * @return the number of messages dropped during the
+     * last second if it has ended, otherwise 0
+     */
+    synchronized int drain(long nowMs, List<T> out) {
+        int summary = 0;
+        if (mWindowStart < 0 || nowMs - mWindowStart >= WINDOW_MS) {
+            summary = mDropped;
+            mDropped = 0;
+            mAdmitted = 0;
+            mWindowStart = nowMs;
+        }
+
+        for (int i = 0; i < mPending.size(); i++) {
+            if (mUnlimited.get(i)) {
+                out.add(mPending.get(i));
+            } else if (mAdmitted < mMaxPerSecond) {
+                out.add(mPending.get(i));
+                mAdmitted++;
+            } else {
+                mDropped++;
+            }
+        }
+
+        mPending.clear();
+        mUnlimited.clear();
+        return summary;
+    }
+
+    /**
+     * @return the delay in milliseconds until the dropped
+     * messages of the current second can be summarized,
+     * or -1 if no message has been dropped
+     */
+    synchronized long getSummaryDelay(long nowMs) {
+        if (mDropped == 0) return -1;
+        return Math.max(0, mWindowStart + WINDOW_MS - nowMs);
+    }
+}
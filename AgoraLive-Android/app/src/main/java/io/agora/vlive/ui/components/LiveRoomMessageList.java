@@ -4,11 +4,13 @@ import android.content.Context;
 import android.graphics.Color;
 import android.graphics.Rect;
 import android.graphics.Typeface;
+import android.os.Looper;
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -18,10 +20,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatImageView;
 import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import io.agora.vlive.R;
 import io.agora.vlive.utils.GiftUtil;
@@ -42,6 +47,7 @@ public class LiveRoomMessageList extends RecyclerView {
     private static final int MESSAGE_TEXT_COLOR_LIGHT = Color.argb(101, 35, 35, 35);
     private static final int MAX_SAVED_MESSAGE = 50;
     private static final int MESSAGE_ITEM_MARGIN = 16;
+    private static final int DEFAULT_MAX_MESSAGES_PER_SECOND = 20;
 
     private LiveRoomMessageAdapter mAdapter;
     private LayoutInflater mInflater;
@@ -53,6 +59,23 @@ public class LiveRoomMessageList extends RecyclerView {
 
     private boolean mNarrow = false;
 
+    // The narrow mode of the texts currently shown, it
+    // changes after the texts of the new mode are rendered.
+    private boolean mDisplayNarrow = false;
+
+    private final LiveRoomMessageRenderer<LiveMessageItem> mRenderer =
+            new LiveRoomMessageRenderer<>(new MessageTextBuilder());
+    private PrecomputedTextCompat.Params mTextMetricsParams;
+    private long mNextMessageId;
+
+    // Messages are added to the list once per display frame
+    private final LiveRoomMessageBuffer<LiveMessageItem> mBuffer =
+            new LiveRoomMessageBuffer<>(DEFAULT_MAX_MESSAGES_PER_SECOND);
+    private final Choreographer.FrameCallback mFrameCallback = this::onFrame;
+    private final Runnable mScheduleFrameRunnable = this::scheduleFrame;
+    private boolean mFrameScheduled;
+    private boolean mSummaryScheduled;
+
     public LiveRoomMessageList(@NonNull Context context) {
         super(context);
     }
@@ -83,7 +106,31 @@ public class LiveRoomMessageList extends RecyclerView {
         mLeaveNotificationText = getResources().getString(R.string.live_system_notification_member_left);
     }
 
+    /**
+     * Add a message received from the channel, can be called
+     * from any thread. Messages over the rate limit are
+     * summarized instead of shown.
+     */
     public void addMessage(int type, String user, String message, int... index) {
+        offerMessage(createItem(type, user, message, index), true);
+    }
+
+    /**
+     * Add a message sent by the local user, which is
+     * always shown. Can be called from any thread.
+     */
+    public void addLocalMessage(int type, String user, String message, int... index) {
+        offerMessage(createItem(type, user, message, index), false);
+    }
+
+    /**
+     * Set the max number of channel messages shown per second
+     */
+    public void setMaxMessagesPerSecond(int count) {
+        mBuffer.setMaxPerSecond(count);
+    }
+
+    private LiveMessageItem createItem(int type, String user, String message, int... index) {
         LiveMessageItem item = new LiveMessageItem(type, user, message);
         if (type == MSG_TYPE_GIFT && index != null) {
             item.giftIndex = index[0];
@@ -97,18 +144,102 @@ public class LiveRoomMessageList extends RecyclerView {
                 }
             }
         }
-        mAdapter.addMessage(item);
-        mLayoutManager.scrollToPosition(mAdapter.getItemCount() - 1);
-        mAdapter.notifyDataSetChanged();
+        return item;
+    }
+
+    private void offerMessage(LiveMessageItem item, boolean limited) {
+        if (!mBuffer.offer(item, limited)) {
+            // A frame has been scheduled for earlier messages
+            return;
+        }
+
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            scheduleFrame();
+        } else {
+            post(mScheduleFrameRunnable);
+        }
+    }
+
+    private void scheduleFrame() {
+        if (mSummaryScheduled) {
+            // Drain at the next frame instead of waiting
+            // for the summary of dropped messages.
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mSummaryScheduled = false;
+            mFrameScheduled = false;
+        }
+
+        if (!mFrameScheduled) {
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            mFrameScheduled = true;
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+        mSummaryScheduled = false;
+
+        long nowMs = frameTimeNanos / 1000000;
+        List<LiveMessageItem> batch = new ArrayList<>();
+        int dropped = mBuffer.drain(nowMs, batch);
+        if (dropped > 0) {
+            batch.add(new LiveMessageItem(MSG_TYPE_SYSTEM, null, getResources()
+                    .getString(R.string.live_message_overflow_format, dropped)));
+        }
+
+        if (!batch.isEmpty() && mAdapter != null) {
+            // Only the newest messages of a large batch are
+            // kept, the others are not rendered at all.
+            List<LiveMessageItem> shown = batch.size() > MAX_SAVED_MESSAGE
+                    ? batch.subList(batch.size() - MAX_SAVED_MESSAGE, batch.size())
+                    : batch;
+            for (LiveMessageItem item : shown) {
+                item.id = mNextMessageId++;
+            }
+
+            // Shown after the texts are rendered, so that
+            // binding does not build any text.
+            mRenderer.render(shown, mNarrow, mLightMode, () -> {
+                mAdapter.addMessages(shown);
+                mLayoutManager.scrollToPosition(mAdapter.getItemCount() - 1);
+            });
+        }
+
+        long delay = mBuffer.getSummaryDelay(nowMs);
+        if (delay >= 0) {
+            Choreographer.getInstance().postFrameCallbackDelayed(mFrameCallback, delay);
+            mFrameScheduled = true;
+            mSummaryScheduled = true;
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mScheduleFrameRunnable);
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        mFrameScheduled = false;
+        mSummaryScheduled = false;
     }
 
     public void setNarrow(boolean narrow) {
+        if (mNarrow == narrow) return;
         mNarrow = narrow;
-        mAdapter.notifyDataSetChanged();
+
+        List<LiveMessageItem> items = mAdapter.getMessages();
+        mRenderer.render(items, narrow, mLightMode, () -> {
+            if (mNarrow != narrow) {
+                // Changed again, wait for the latest mode
+                return;
+            }
+            mDisplayNarrow = narrow;
+            mAdapter.notifyItemRangeChanged(0, mAdapter.getItemCount());
+        });
     }
 
     private class LiveRoomMessageAdapter extends Adapter<MessageListViewHolder> {
-        private ArrayList<LiveMessageItem> mMessageList = new ArrayList<>();
+        private LiveRoomMessageStore<LiveMessageItem> mMessages =
+                new LiveRoomMessageStore<>(MAX_SAVED_MESSAGE);
 
         @NonNull
         @Override
@@ -124,8 +255,8 @@ public class LiveRoomMessageList extends RecyclerView {
 
         @Override
         public void onBindViewHolder(@NonNull MessageListViewHolder holder, int position) {
-            LiveMessageItem item = mMessageList.get(position);
-            holder.setMessage(item.user, item.message);
+            LiveMessageItem item = mMessages.get(position);
+            holder.setMessage(mRenderer.get(item, mDisplayNarrow, mLightMode));
 
             if (item.type == MSG_TYPE_GIFT && holder.giftIcon != null) {
                 holder.giftIcon.setImageResource(GiftUtil.GIFT_ICON_RES[item.giftIndex]);
@@ -134,19 +265,82 @@ public class LiveRoomMessageList extends RecyclerView {
 
         @Override
         public int getItemCount() {
-            return mMessageList.size();
+            return mMessages.size();
         }
 
         @Override
         public int getItemViewType(int position) {
-            return mMessageList.get(position).type;
+            return mMessages.get(position).type;
+        }
+
+        void addMessages(List<LiveMessageItem> items) {
+            // Batches are trimmed to the capacity before they
+            // are rendered, this only guards the store.
+            int added = Math.min(items.size(), mMessages.capacity());
+            int removed = 0;
+            for (int i = items.size() - added; i < items.size(); i++) {
+                if (mMessages.size() == mMessages.capacity()) {
+                    mRenderer.evict(mMessages.get(0));
+                    removed++;
+                }
+                mMessages.add(items.get(i));
+            }
+
+            if (removed > 0) {
+                notifyItemRangeRemoved(0, removed);
+            }
+            notifyItemRangeInserted(mMessages.size() - added, added);
         }
 
-        void addMessage(LiveMessageItem item) {
-            if (mMessageList.size() == MAX_SAVED_MESSAGE) {
-                mMessageList.remove(mMessageList.size() - 1);
+        List<LiveMessageItem> getMessages() {
+            List<LiveMessageItem> list = new ArrayList<>(mMessages.size());
+            for (int i = 0; i < mMessages.size(); i++) {
+                list.add(mMessages.get(i));
             }
-            mMessageList.add(item);
+            return list;
+        }
+    }
+
+    private static class MessageTextBuilder
+            implements LiveRoomMessageRenderer.TextBuilder<LiveMessageItem> {
+        @Override
+        public long getId(LiveMessageItem item) {
+            return item.id;
+        }
+
+        @Override
+        public CharSequence build(LiveMessageItem item, boolean narrow, boolean light) {
+            int nameColor = light
+                    ? Color.BLACK
+                    : Color.WHITE;
+            int messageColor = light
+                    ? MESSAGE_TEXT_COLOR_LIGHT
+                    : MESSAGE_TEXT_COLOR;
+
+            String user = item.user;
+            String message = item.message;
+            if (user == null) {
+                // Summary of dropped messages
+                SpannableString summarySpan = new SpannableString(message);
+                summarySpan.setSpan(new ForegroundColorSpan(messageColor),
+                        0, summarySpan.length(), Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+                return summarySpan;
+            }
+
+            String text = narrow ? user + ": " : user + ":  " + message;
+            SpannableString messageSpan = new SpannableString(text);
+            messageSpan.setSpan(new StyleSpan(Typeface.BOLD),
+                    0, user.length() + 1, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+            messageSpan.setSpan(new ForegroundColorSpan(nameColor),
+                    0, user.length() + 1, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+
+            if (!narrow || item.type != MSG_TYPE_GIFT) {
+                messageSpan.setSpan(new ForegroundColorSpan(messageColor),
+                        user.length() + 2, messageSpan.length(),
+                        Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+            }
+
+            return messageSpan;
         }
     }
 
@@ -162,35 +356,26 @@ public class LiveRoomMessageList extends RecyclerView {
             giftIcon = itemView.findViewById(R.id.live_message_gift_icon);
             layout = itemView.findViewById(R.id.live_message_item_layout);
             this.type = type;
+
+            if (mTextMetricsParams == null) {
+                // All message items share the text appearance
+                mTextMetricsParams = TextViewCompat.getTextMetricsParams(messageText);
+                mRenderer.setTextMetricsParams(mTextMetricsParams);
+            }
         }
 
-        void setMessage(String user, String message) {
+        void setMessage(CharSequence text) {
             int background = mLightMode
                     ? R.drawable.round_scalable_gray_transparent_bg
                     : R.drawable.round_scalable_gray_bg;
-            int nameColor = mLightMode
-                    ? Color.BLACK
-                    : Color.WHITE;
-            int messageColor = mLightMode
-                    ? MESSAGE_TEXT_COLOR_LIGHT
-                    : MESSAGE_TEXT_COLOR;
-
             layout.setBackgroundResource(background);
 
-            String text = mNarrow ? user + ": " : user + ":  " + message;
-            SpannableString messageSpan = new SpannableString(text);
-            messageSpan.setSpan(new StyleSpan(Typeface.BOLD),
-                    0, user.length() + 1, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
-            messageSpan.setSpan(new ForegroundColorSpan(nameColor),
-                    0, user.length() + 1, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
-
-            if (!mNarrow || this.type != MSG_TYPE_GIFT) {
-                messageSpan.setSpan(new ForegroundColorSpan(messageColor),
-                        user.length() + 2, messageSpan.length(),
-                        Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+            if (text instanceof PrecomputedTextCompat &&
+                    ((PrecomputedTextCompat) text).getParams().equals(mTextMetricsParams)) {
+                TextViewCompat.setPrecomputedText(messageText, (PrecomputedTextCompat) text);
+            } else {
+                messageText.setText(text);
             }
-
-            messageText.setText(messageSpan);
         }
     }
 
@@ -211,6 +396,9 @@ public class LiveRoomMessageList extends RecyclerView {
         String message;
         int giftIndex;
 
+        // Assigned when the message is shown
+        long id;
+
         LiveMessageItem(int type, String user, String message) {
             this.type = type;
             this.user = user;
@@ -0,0 +1,120 @@
+package io.agora.vlive.ui.components;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.SpannedString;
+import android.util.LongSparseArray;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds the styled text of live room messages once, in a
+ * background thread, and caches it by message id and display
+ * mode (narrow or not, light or not).
+ * The text is precomputed for the text views of the list when
+ * their metrics are known, otherwise it is kept as a spanned
+ * string which text views do not need to copy.
+ * Message ids must increase in the order messages are shown.
+ * Except building, all methods must be called in the main thread.
+ */
+class LiveRoomMessageRenderer<T> {
+    interface TextBuilder<T> {
+        long getId(T message);
+
+        /**
+         * Called in the background thread
+         */
+        CharSequence build(T message, boolean narrow, boolean light);
+    }
+
+    // Shared by all message lists, rendering is short
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+
+    private final TextBuilder<T> mBuilder;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LongSparseArray<CharSequence> mCache = new LongSparseArray<>();
+    private volatile PrecomputedTextCompat.Params mParams;
+
+    // Messages with smaller ids have been evicted
+    private long mMinId;
+
+    LiveRoomMessageRenderer(TextBuilder<T> builder) {
+        mBuilder = builder;
+    }
+
+    /**
+     * Set the text metrics of the text views messages are
+     * shown in, messages rendered later are precomputed.
+     */
+    void setTextMetricsParams(PrecomputedTextCompat.Params params) {
+        mParams = params;
+    }
+
+    /**
+     * Render the messages in the background thread and cache
+     * the results, the callback is run in the main thread
+     * after all results are cached.
+     * @param messages must not be modified afterwards
+     */
+    void render(List<T> messages, boolean narrow, boolean light, Runnable callback) {
+        sExecutor.execute(() -> {
+            final List<CharSequence> texts = new ArrayList<>(messages.size());
+            for (T message : messages) {
+                texts.add(create(message, narrow, light));
+            }
+
+            mMainHandler.post(() -> {
+                for (int i = 0; i < messages.size(); i++) {
+                    long id = mBuilder.getId(messages.get(i));
+                    if (id >= mMinId) {
+                        mCache.put(key(id, narrow, light), texts.get(i));
+                    }
+                }
+                callback.run();
+            });
+        });
+    }
+
+    /**
+     * @return the cached text, or the text built in the
+     * calling thread if it has not been rendered
+     */
+    CharSequence get(T message, boolean narrow, boolean light) {
+        long key = key(mBuilder.getId(message), narrow, light);
+        CharSequence text = mCache.get(key);
+        if (text == null) {
+            text = create(message, narrow, light);
+            mCache.put(key, text);
+        }
+        return text;
+    }
+
+    /**
+     * Remove the texts of a message that is not shown any
+     * more, it must be the oldest message shown.
+     */
+    void evict(T message) {
+        long id = mBuilder.getId(message);
+        for (int mode = 0; mode < 4; mode++) {
+            mCache.delete((id << 2) | mode);
+        }
+        mMinId = Math.max(mMinId, id + 1);
+    }
+
+    private CharSequence create(T message, boolean narrow, boolean light) {
+        CharSequence text = mBuilder.build(message, narrow, light);
+        PrecomputedTextCompat.Params params = mParams;
+        return params != null
+                ? PrecomputedTextCompat.create(text, params)
+                : new SpannedString(text);
+    }
+
+    private static long key(long id, boolean narrow, boolean light) {
+        return (id << 2) | (narrow ? 2 : 0) | (light ? 1 : 0);
+    }
+}
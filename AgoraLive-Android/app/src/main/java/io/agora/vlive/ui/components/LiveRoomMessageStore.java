@@ -0,0 +1,67 @@
+package io.agora.vlive.ui.components;
+
+/**
+ * A fixed-capacity circular buffer of the messages shown in
+ * the live room. Position 0 is the oldest message, which is
+ * evicted when a message is added to a full store.
+ * Adding and reading a position are both O(1), and positions
+ * map directly to adapter positions.
+ * Must be used in the main thread.
+ */
+class LiveRoomMessageStore<T> {
+    private final Object[] mItems;
+
+    // Index of the oldest message in the array
+    private int mHead;
+    private int mSize;
+
+    LiveRoomMessageStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "[LiveRoomMessageStore] wrong argument: capacity must be positive");
+        }
+        mItems = new Object[capacity];
+    }
+
+    int capacity() {
+        return mItems.length;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int position) {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + mSize);
+        }
+        return (T) mItems[index(position)];
+    }
+
+    /**
+     * @return true if the oldest message has been evicted
+     */
+    boolean add(T item) {
+        if (mSize < mItems.length) {
+            mItems[index(mSize)] = item;
+            mSize++;
+            return false;
+        }
+
+        mItems[mHead] = item;
+        mHead = index(1);
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i < mItems.length; i++) mItems[i] = null;
+        mHead = 0;
+        mSize = 0;
+    }
+
+    private int index(int position) {
+        int index = mHead + position;
+        return index < mItems.length ? index : index - mItems.length;
+    }
+}
@@ -0,0 +1,32 @@
+package io.agora.vlive.ui.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compares the users shown in the fixed avatar positions of
+ * the live room top bar with a new rank list, so that only
+ * the positions whose user changed are updated.
+ */
+class LiveRoomUserDiff {
+    /**
+     * @param oldIds user ids currently shown, position 0 first
+     * @param newIds user ids of the new rank list
+     * @param max the number of avatar positions
+     * @return the positions smaller than max whose user is
+     * different, or is shown in one list only, in order
+     */
+    static List<Integer> changedPositions(List<String> oldIds, List<String> newIds, int max) {
+        List<Integer> changed = new ArrayList<>();
+        int oldCount = Math.min(oldIds.size(), max);
+        int newCount = Math.min(newIds.size(), max);
+        for (int i = 0; i < Math.max(oldCount, newCount); i++) {
+            if (i >= oldCount || i >= newCount ||
+                    !Objects.equals(oldIds.get(i), newIds.get(i))) {
+                changed.add(i);
+            }
+        }
+        return changed;
+    }
+}
@@ -1,6 +1,7 @@
 package io.agora.vlive.ui.components;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
@@ -12,8 +13,14 @@ import androidx.appcompat.widget.AppCompatTextView;
 import androidx.core.graphics.drawable.RoundedBitmapDrawable;
 import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import io.agora.vlive.R;
 import io.agora.vlive.protocol.model.response.EnterRoomResponse;
@@ -22,6 +29,12 @@ import io.agora.vlive.utils.UserUtil;
 public class LiveRoomUserLayout extends RelativeLayout {
     private static final int MAX_ICON_COUNT = 4;
 
+    // User count changes within this time are shown once
+    private static final long COUNT_UPDATE_DELAY = 500;
+
+    // Rank lists are compared and avatars decoded here
+    private static final ExecutorService sIconExecutor = Executors.newSingleThreadExecutor();
+
     public interface UserLayoutListener {
         void onUserLayoutShowUserList(View view);
     }
@@ -35,6 +48,19 @@ public class LiveRoomUserLayout extends RelativeLayout {
 
     private UserLayoutListener mListener;
 
+    // Avatar views of the rank positions, created once
+    private final AppCompatImageView[] mIcons = new AppCompatImageView[MAX_ICON_COUNT];
+    private List<String> mIconUserIds = Collections.emptyList();
+    private final Map<Integer, Bitmap> mIconBitmaps = new ConcurrentHashMap<>();
+    private int mIconGeneration;
+
+    private int mPendingCount;
+    private boolean mCountScheduled;
+    private final Runnable mCountUpdate = () -> {
+        mCountScheduled = false;
+        setCount(mPendingCount);
+    };
+
     public LiveRoomUserLayout(Context context) {
         super(context);
     }
@@ -80,18 +106,43 @@ public class LiveRoomUserLayout extends RelativeLayout {
     }
 
     public void reset(int total, List<EnterRoomResponse.RankInfo> rankUsers) {
-        String value = countToString(total);
-        mCountText.setText(value);
+        removeCallbacks(mCountUpdate);
+        mCountScheduled = false;
+        setCount(total);
         setUserIcons(rankUsers);
     }
 
+    /**
+     * Only the avatars whose user has changed are updated
+     */
     public void reset(List<EnterRoomResponse.RankInfo> rankUsers) {
         setUserIcons(rankUsers);
     }
 
+    /**
+     * The count is shown a while later, together
+     * with the counts set in the meantime.
+     */
     public void reset(int total) {
+        mPendingCount = total;
+        if (!mCountScheduled) {
+            mCountScheduled = true;
+            postDelayed(mCountUpdate, COUNT_UPDATE_DELAY);
+        }
+    }
+
+    private void setCount(int total) {
         String value = countToString(total);
-        mCountText.setText(value);
+        if (!value.contentEquals(mCountText.getText())) {
+            mCountText.setText(value);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mCountUpdate);
+        mCountScheduled = false;
     }
 
     private String countToString(int number) {
@@ -110,39 +161,86 @@ public class LiveRoomUserLayout extends RelativeLayout {
     }
 
     private void setUserIcons(List<EnterRoomResponse.RankInfo> rankUsers) {
-        if (mIconLayout.getChildCount() > 0) {
-            mIconLayout.removeAllViews();
+        List<String> userIds = new ArrayList<>(MAX_ICON_COUNT);
+        if (rankUsers != null) {
+            for (int i = 0; i < rankUsers.size() && i < MAX_ICON_COUNT; i++) {
+                userIds.add(rankUsers.get(i).userId);
+            }
         }
 
-        if (rankUsers == null) return;
+        // Results of the rank lists set earlier are dropped
+        final int generation = ++mIconGeneration;
+        final List<String> shownIds = mIconUserIds;
+        sIconExecutor.execute(() -> {
+            List<Integer> changed = LiveRoomUserDiff.changedPositions(
+                    shownIds, userIds, MAX_ICON_COUNT);
+            if (changed.isEmpty()) return;
 
-        int id = 0;
-        for (int i = 0; i < rankUsers.size(); i++) {
-            if (i >= MAX_ICON_COUNT) break;
-            EnterRoomResponse.RankInfo info = rankUsers.get(i);
-            setIconResource(info.userId, id++);
-        }
+            for (int position : changed) {
+                if (position < userIds.size()) getIconBitmap(userIds.get(position));
+            }
+
+            post(() -> {
+                if (generation != mIconGeneration) return;
+                for (int position : changed) {
+                    updateIcon(position, position < userIds.size() ? userIds.get(position) : null);
+                }
+                mIconUserIds = userIds;
+            });
+        });
     }
 
-    private void setIconResource(String userId, int referenceId) {
+    /**
+     * Called in the icon thread or the main thread
+     */
+    private Bitmap getIconBitmap(String userId) {
         int resId = UserUtil.getUserProfileIcon(userId);
-        RoundedBitmapDrawable drawable = RoundedBitmapDrawableFactory.create(getResources(),
-                BitmapFactory.decodeResource(getResources(), resId));
-        drawable.setCircular(true);
+        Bitmap bitmap = mIconBitmaps.get(resId);
+        if (bitmap == null) {
+            bitmap = BitmapFactory.decodeResource(getResources(), resId);
+            mIconBitmaps.put(resId, bitmap);
+        }
+        return bitmap;
+    }
 
-        RelativeLayout.LayoutParams params = new
-                RelativeLayout.LayoutParams(mIconSize, mIconSize);
-        params.rightMargin = mIconMargin;
-        if (referenceId > 0) {
-            params.addRule(RelativeLayout.LEFT_OF, referenceId);
-        } else {
-            params.addRule(RelativeLayout.ALIGN_PARENT_END, RelativeLayout.TRUE);
+    private void updateIcon(int position, String userId) {
+        AppCompatImageView icon = getIcon(position);
+        if (userId == null) {
+            icon.setImageDrawable(null);
+            icon.setVisibility(GONE);
+            return;
         }
 
-        AppCompatImageView imageView = new AppCompatImageView(getContext());
-        imageView.setId(referenceId + 1);
-        imageView.setImageDrawable(drawable);
-        mIconLayout.addView(imageView, params);
+        RoundedBitmapDrawable drawable = RoundedBitmapDrawableFactory.create(
+                getResources(), getIconBitmap(userId));
+        drawable.setCircular(true);
+        icon.setImageDrawable(drawable);
+        icon.setVisibility(VISIBLE);
+    }
+
+    private AppCompatImageView getIcon(int position) {
+        if (mIcons[position] != null) return mIcons[position];
+
+        // Each avatar is placed to the left of the previous one,
+        // the positions after the last shown one are gone.
+        for (int i = 0; i <= position; i++) {
+            if (mIcons[i] != null) continue;
+            RelativeLayout.LayoutParams params = new
+                    RelativeLayout.LayoutParams(mIconSize, mIconSize);
+            params.rightMargin = mIconMargin;
+            if (i > 0) {
+                params.addRule(RelativeLayout.LEFT_OF, i);
+            } else {
+                params.addRule(RelativeLayout.ALIGN_PARENT_END, RelativeLayout.TRUE);
+            }
+
+            AppCompatImageView imageView = new AppCompatImageView(getContext());
+            imageView.setId(i + 1);
+            imageView.setVisibility(GONE);
+            mIconLayout.addView(imageView, params);
+            mIcons[i] = imageView;
+        }
+        return mIcons[position];
     }
 
     public void showNotification(boolean show) {
@@ -268,8 +268,8 @@ public class ECommerceLiveActivity extends LiveRoomActivity
     }
 
     @Override
-    public void onRoomListResponse(RoomListResponse response) {
-        super.onRoomListResponse(response);
+    public void onRoomListResponse(RoomListResponse response, String nextId) {
+        super.onRoomListResponse(response, nextId);
         if (mPKRoomListAction != null && mPKRoomListAction.isShown()) {
             runOnUiThread(() -> mPKRoomListAction.appendUsers(response.data));
         }
@@ -2,6 +2,7 @@ package io.agora.vlive.ui.live;
 
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.view.SurfaceView;
 import android.view.View;
 import android.widget.FrameLayout;
@@ -44,6 +45,10 @@ public class HostPKLiveActivity extends LiveRoomActivity
 
     private static final int PK_RESULT_DISPLAY_LAST = 2000;
 
+    // PK events received within this time are applied
+    // together, of rank changes only the last one
+    private static final long PK_EVENT_COALESCE_WINDOW = 100;
+
     private RelativeLayout mLayout;
     private FrameLayout mVideoNormalLayout;
     private LiveHostNameLayout mNamePad;
@@ -69,6 +74,10 @@ public class HostPKLiveActivity extends LiveRoomActivity
 
     private int mMessageListHeightInNormalMode;
 
+    private final RoomStateReducer mRoomState = new RoomStateReducer(0);
+    private final Handler mPkEventHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mPkEventFlush = this::flushPkEvents;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -155,6 +164,7 @@ public class HostPKLiveActivity extends LiveRoomActivity
             profile.setAgoraUid(response.data.user.uid);
 
             rtcChannelName = response.data.room.channelName;
+            rtmWireFormats = response.data.room.wireFormats;
             roomId = response.data.room.roomId;
             roomName = response.data.room.roomName;
 
@@ -388,8 +398,8 @@ public class HostPKLiveActivity extends LiveRoomActivity
     }
 
     @Override
-    public void onRoomListResponse(RoomListResponse response) {
-        super.onRoomListResponse(response);
+    public void onRoomListResponse(RoomListResponse response, String nextId) {
+        super.onRoomListResponse(response, nextId);
         if (mPkRoomListActionSheet != null && mPkRoomListActionSheet.isShown()) {
             runOnUiThread(() -> {
                 filterOutCurrentRoom(response.data);
@@ -466,6 +476,7 @@ public class HostPKLiveActivity extends LiveRoomActivity
     public void finish() {
         super.finish();
         bottomButtons.clearStates(application());
+        mPkEventHandler.removeCallbacks(mPkEventFlush);
     }
 
     @Override
@@ -509,6 +520,14 @@ public class HostPKLiveActivity extends LiveRoomActivity
     @Override
     public void onRtmReceivePKEvent(PKStateMessage.PKStateMessageBody messageData) {
         runOnUiThread(() -> {
+            if (mRoomState.applyPK(messageData)) {
+                mPkEventHandler.postDelayed(mPkEventFlush, PK_EVENT_COALESCE_WINDOW);
+            }
+        });
+    }
+
+    private void flushPkEvents() {
+        for (PKStateMessage.PKStateMessageBody messageData : mRoomState.flush().pkEvents) {
             if (messageData.event == PKConstant.PK_EVENT_START) {
                 mPkStarted = true;
                 mPKRoomId = messageData.remoteRoom.roomId;
@@ -527,6 +546,6 @@ public class HostPKLiveActivity extends LiveRoomActivity
                 mPkStarted = false;
                 showShortToast(getResources().getString(R.string.pk_ends));
             }
-        });
+        }
     }
 }
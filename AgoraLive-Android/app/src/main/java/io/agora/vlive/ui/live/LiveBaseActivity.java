@@ -71,6 +71,10 @@ public abstract class LiveBaseActivity extends BaseActivity
     // and obtained when entering the room.
     protected String rtcChannelName;
 
+    // Wire formats allowed in the rtm channel,
+    // also obtained when entering the room.
+    protected String rtmWireFormats;
+
     private RtmMessageManager mMessageManager;
     private CameraManager mCameraVideoManager;
     private PreprocessorFaceUnity mFUPreprocessor;
@@ -135,7 +139,10 @@ public abstract class LiveBaseActivity extends BaseActivity
 
         mMessageManager = RtmMessageManager.instance();
         mMessageManager.init(rtmClient());
-        mMessageManager.registerMessageHandler(this);
+        // All rtm events, including connection state, token
+        // and attribute changes, are delivered in the main
+        // thread, where runOnUiThread() runs at once.
+        mMessageManager.registerMessageHandler(this, RtmMessageManager.DELIVERY_MAIN);
         mMessageManager.setCallbackThread(new Handler(getMainLooper()));
 
         initCameraIfNeeded();
@@ -281,7 +288,7 @@ public abstract class LiveBaseActivity extends BaseActivity
     }
 
     protected void joinRtmChannel() {
-        mMessageManager.joinChannel(rtcChannelName, new ResultCallback<Void>() {
+        mMessageManager.joinChannel(rtcChannelName, rtmWireFormats, new ResultCallback<Void>() {
             @Override
             public void onSuccess(Void aVoid) {
                 XLog.d("on rtm join channel success " + rtcChannelName);
@@ -236,6 +236,7 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
             profile.setAgoraUid(response.data.user.uid);
 
             rtcChannelName = response.data.room.channelName;
+            rtmWireFormats = response.data.room.wireFormats;
             roomId = response.data.room.roomId;
             roomName = response.data.room.roomName;
 
@@ -452,7 +453,7 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
 
             }
         });
-        messageList.addMessage(LiveRoomMessageList.MSG_TYPE_CHAT, profile.getUserName(), content);
+        messageList.addLocalMessage(LiveRoomMessageList.MSG_TYPE_CHAT, profile.getUserName(), content);
     }
 
     protected boolean isCurDialogShowing() {
@@ -497,7 +498,7 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
 
     @Override
     public void onRtmChannelMessageReceived(String peerId, String nickname, String content) {
-        runOnUiThread(() -> messageList.addMessage(LiveRoomMessageList.MSG_TYPE_CHAT, nickname, content));
+        messageList.addMessage(LiveRoomMessageList.MSG_TYPE_CHAT, nickname, content);
     }
 
     @Override
@@ -27,6 +27,7 @@ import java.util.List;
 import io.agora.rtc.Constants;
 import io.agora.rtc.IRtcEngineEventHandler;
 import io.agora.vlive.R;
+import io.agora.vlive.agora.rtm.model.OwnerStateMessage;
 import io.agora.vlive.agora.rtm.model.SeatStateMessage;
 import io.agora.vlive.protocol.manager.SeatServiceManager;
 import io.agora.vlive.protocol.model.model.SeatInfo;
@@ -218,6 +219,10 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
     private static final int ROOM_NAME_HINT_COLOR = Color.rgb(101, 101, 101);
     private static final int ROOM_NAME_COLOR = Color.rgb(235, 235, 235);
 
+    // Seat and owner state messages received within
+    // this time are applied as one change
+    private static final long ROOM_STATE_COALESCE_WINDOW = 100;
+
     private OwnerUIManager mOwnerUIManager;
     private InviteUserActionSheet mInviteUserListActionSheet;
     private LiveMultiHostSeatLayout mSeatLayout;
@@ -229,6 +234,15 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
 
     private boolean mTopLayoutCalculated;
 
+    private final RoomStateReducer mRoomState =
+            new RoomStateReducer(LiveMultiHostSeatLayout.MAX_SEAT);
+    private final Runnable mRoomStateFlush = this::flushRoomState;
+
+    // Version of the room state when the room is requested,
+    // the seats of the response are older than the seat
+    // messages received after it.
+    private long mSeatSnapshotVersion;
+
     @Override
     protected void onPermissionGranted() {
         mSeatManager = new SeatServiceManager(application());
@@ -353,6 +367,7 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
         }
 
         bottomButtons.clearStates(application());
+        if (mSeatLayout != null) mSeatLayout.removeCallbacks(mRoomStateFlush);
     }
 
     @Override
@@ -360,6 +375,15 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
         XLog.i("onRtcJoinChannelSuccess:" + channel + " uid:" + (uid & 0xFFFFFFFFL));
     }
 
+    @Override
+    protected void enterRoom(String roomId) {
+        // The room state is only accessed in the main thread
+        runOnUiThread(() -> {
+            mSeatSnapshotVersion = mRoomState.getVersion();
+            super.enterRoom(roomId);
+        });
+    }
+
     @Override
     public void onEnterRoomResponse(EnterRoomResponse response) {
         super.onEnterRoomResponse(response);
@@ -482,7 +506,38 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
             itemList.add(item);
         }
 
-        mSeatLayout.updateStates(itemList);
+        // The states from the server response are applied
+        // at once with pending messages, unless seat messages
+        // have been received since the room was requested.
+        if (!mRoomState.applySeatSnapshot(itemList, mSeatSnapshotVersion)) {
+            XLog.d("seat states of the room response are dropped");
+        }
+        flushRoomState();
+    }
+
+    private void scheduleRoomStateFlush(boolean schedule) {
+        if (schedule && mSeatLayout != null) {
+            mSeatLayout.postDelayed(mRoomStateFlush, ROOM_STATE_COALESCE_WINDOW);
+        }
+    }
+
+    private void flushRoomState() {
+        if (mSeatLayout == null) return;
+        mSeatLayout.removeCallbacks(mRoomStateFlush);
+
+        RoomStateReducer.Changes changes = mRoomState.flush();
+        for (RoomStateReducer.SeatChange change : changes.seats) {
+            mSeatLayout.updateSeat(change.position, change.item);
+        }
+
+        if (changes.owner != null) {
+            boolean audioMuted = changes.owner.enableAudio != SeatInfo.User.USER_AUDIO_ENABLE;
+            boolean videoMuted = changes.owner.enableVideo != SeatInfo.User.USER_VIDEO_ENABLE;
+            mOwnerUIManager.setAudioMuted(audioMuted);
+            mOwnerUIManager.setVideoMuted(videoMuted);
+            config().setAudioMuted(audioMuted);
+            config().setVideoMuted(videoMuted);
+        }
     }
 
     @Override
@@ -579,20 +634,19 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
     @Override
     public void onRtmOwnerStateChanged(String userId, String userName, int uid, int enableAudio, int enableVideo) {
         // The server notifies via rtm messages that the room owner has changed his state
-        runOnUiThread(() -> {
-            boolean audioMuted = enableAudio != SeatInfo.User.USER_AUDIO_ENABLE;
-            boolean videoMuted = enableVideo != SeatInfo.User.USER_VIDEO_ENABLE;
-            mOwnerUIManager.setAudioMuted(audioMuted);
-            mOwnerUIManager.setVideoMuted(videoMuted);
-            config().setAudioMuted(audioMuted);
-            config().setVideoMuted(videoMuted);
-        });
+        OwnerStateMessage.OwnerState owner = new OwnerStateMessage.OwnerState();
+        owner.userId = userId;
+        owner.userName = userName;
+        owner.uid = uid;
+        owner.enableAudio = enableAudio;
+        owner.enableVideo = enableVideo;
+        runOnUiThread(() -> scheduleRoomStateFlush(mRoomState.applyOwner(owner)));
     }
 
     @Override
     public void onRtmSeatStateChanged(List<SeatStateMessage.SeatStateMessageDataItem> list) {
         // The server notifies via rtm messages that seat states have changed
-        runOnUiThread(() -> mSeatLayout.updateStates(list));
+        runOnUiThread(() -> scheduleRoomStateFlush(mRoomState.applySeats(list)));
     }
 
     @Override
@@ -0,0 +1,249 @@
+package io.agora.vlive.ui.live;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.vlive.agora.rtm.model.OwnerStateMessage;
+import io.agora.vlive.agora.rtm.model.PKStateMessage;
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+import io.agora.vlive.protocol.model.model.SeatInfo;
+import io.agora.vlive.protocol.model.types.PKConstant;
+
+/**
+ * Holds the seat, owner and PK states of a live room, and
+ * turns the state messages received into net changes.
+ * The messages carry no server version, states are versioned
+ * by the order they are received in. The deltas applied
+ * between two flushes are coalesced, so that a burst of
+ * messages (for example after reconnecting) results in one
+ * change of each seat that really changed, instead of
+ * rebuilding all seats for every message.
+ * A seat snapshot of a server response is dropped if seat
+ * messages have been received since it was requested, since
+ * it may be older than them.
+ * Must be used in the main thread.
+ */
+class RoomStateReducer {
+    static class SeatChange {
+        final int position;
+        final SeatStateMessage.SeatStateMessageDataItem item;
+
+        SeatChange(int position, SeatStateMessage.SeatStateMessageDataItem item) {
+            this.position = position;
+            this.item = item;
+        }
+    }
+
+    static class Changes {
+        // Version of the last delta included
+        long version;
+
+        // The seats that changed, in position order. A seat taken
+        // by another user is changed twice: emptied, then taken.
+        final List<SeatChange> seats = new ArrayList<>();
+
+        // The new owner state, null if not changed
+        OwnerStateMessage.OwnerState owner;
+
+        // PK events in the order received, of consecutive
+        // rank changes only the last one is kept
+        final List<PKStateMessage.PKStateMessageBody> pkEvents = new ArrayList<>();
+
+        boolean isEmpty() {
+            return seats.isEmpty() && owner == null && pkEvents.isEmpty();
+        }
+    }
+
+    private final SeatStateMessage.SeatStateMessageDataItem[] mSeats;
+    private final SeatStateMessage.SeatStateMessageDataItem[] mPendingSeats;
+    private OwnerStateMessage.OwnerState mOwner;
+    private OwnerStateMessage.OwnerState mPendingOwner;
+    private final List<PKStateMessage.PKStateMessageBody> mPendingPkEvents = new ArrayList<>();
+
+    private long mVersion;
+    private long mFlushedVersion;
+
+    // Version of the last seat states received by rtm
+    private long mSeatMessageVersion;
+
+    /**
+     * @param seatCount 0 if the room has no seats
+     */
+    RoomStateReducer(int seatCount) {
+        if (seatCount < 0) {
+            throw new IllegalArgumentException(
+                    "[RoomStateReducer] wrong argument: seat count must not be negative");
+        }
+        mSeats = new SeatStateMessage.SeatStateMessageDataItem[seatCount];
+        mPendingSeats = new SeatStateMessage.SeatStateMessageDataItem[seatCount];
+    }
+
+    /**
+     * Apply the states of all seats, item i is of position i.
+     * @return true if the reducer has no pending deltas before,
+     * and a flush should be scheduled
+     */
+    boolean applySeats(@NonNull List<SeatStateMessage.SeatStateMessageDataItem> items) {
+        boolean first = !hasPending();
+        setPendingSeats(items);
+        mVersion++;
+        mSeatMessageVersion = mVersion;
+        return first;
+    }
+
+    /**
+     * Apply the states of all seats taken by the server when
+     * handling a request, some time after it was sent.
+     * @param requestVersion getVersion() when the request was sent
+     * @return false if the snapshot is dropped, because seat
+     * messages have been received since the request was sent
+     */
+    boolean applySeatSnapshot(@NonNull List<SeatStateMessage.SeatStateMessageDataItem> items,
+                              long requestVersion) {
+        if (mSeatMessageVersion > requestVersion) return false;
+        setPendingSeats(items);
+        mVersion++;
+        return true;
+    }
+
+    private void setPendingSeats(@NonNull List<SeatStateMessage.SeatStateMessageDataItem> items) {
+        int count = Math.min(items.size(), mSeats.length);
+        for (int i = 0; i < count; i++) {
+            mPendingSeats[i] = items.get(i);
+        }
+    }
+
+    /**
+     * @return true if a flush should be scheduled
+     */
+    boolean applyOwner(@NonNull OwnerStateMessage.OwnerState owner) {
+        boolean first = !hasPending();
+        mPendingOwner = owner;
+        mVersion++;
+        return first;
+    }
+
+    /**
+     * @return true if a flush should be scheduled
+     */
+    boolean applyPK(@NonNull PKStateMessage.PKStateMessageBody event) {
+        boolean first = !hasPending();
+        int last = mPendingPkEvents.size() - 1;
+        if (event.event == PKConstant.PK_EVENT_RANK_CHANGED && last >= 0 &&
+                mPendingPkEvents.get(last).event == PKConstant.PK_EVENT_RANK_CHANGED) {
+            // Only the latest ranks matter
+            mPendingPkEvents.set(last, event);
+        } else {
+            mPendingPkEvents.add(event);
+        }
+        mVersion++;
+        return first;
+    }
+
+    boolean hasPending() {
+        return mVersion != mFlushedVersion;
+    }
+
+    long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * @return the current state of a seat, null if the
+     * seat has never been taken or closed
+     */
+    @Nullable
+    SeatStateMessage.SeatStateMessageDataItem getSeat(int position) {
+        return mSeats[position];
+    }
+
+    @Nullable
+    OwnerStateMessage.OwnerState getOwner() {
+        return mOwner;
+    }
+
+    /**
+     * Commit the pending deltas as the current state.
+     * @return the net changes since the last flush
+     */
+    Changes flush() {
+        Changes changes = new Changes();
+        changes.version = mVersion;
+
+        for (int i = 0; i < mSeats.length; i++) {
+            SeatStateMessage.SeatStateMessageDataItem pending = mPendingSeats[i];
+            if (pending == null) continue;
+            mPendingSeats[i] = null;
+
+            SeatStateMessage.SeatStateMessageDataItem current = mSeats[i];
+            if (sameSeat(current, pending)) continue;
+
+            if (seatState(current) == SeatInfo.TAKEN &&
+                    seatState(pending) == SeatInfo.TAKEN &&
+                    !userId(current).equals(userId(pending))) {
+                changes.seats.add(new SeatChange(i, emptySeat(pending)));
+            }
+            changes.seats.add(new SeatChange(i, pending));
+            mSeats[i] = pending;
+        }
+
+        if (mPendingOwner != null) {
+            if (!sameOwner(mOwner, mPendingOwner)) {
+                changes.owner = mPendingOwner;
+                mOwner = mPendingOwner;
+            }
+            mPendingOwner = null;
+        }
+
+        changes.pkEvents.addAll(mPendingPkEvents);
+        mPendingPkEvents.clear();
+
+        mFlushedVersion = mVersion;
+        return changes;
+    }
+
+    private static int seatState(@Nullable SeatStateMessage.SeatStateMessageDataItem item) {
+        return item == null || item.seat == null ? SeatInfo.OPEN : item.seat.state;
+    }
+
+    private static String userId(@NonNull SeatStateMessage.SeatStateMessageDataItem item) {
+        return item.user == null || item.user.userId == null ? "" : item.user.userId;
+    }
+
+    private static boolean sameSeat(@Nullable SeatStateMessage.SeatStateMessageDataItem a,
+                                    @NonNull SeatStateMessage.SeatStateMessageDataItem b) {
+        int state = seatState(a);
+        if (state != seatState(b)) return false;
+        if (state != SeatInfo.TAKEN) return true;
+
+        SeatStateMessage.UserState userA = a.user;
+        SeatStateMessage.UserState userB = b.user;
+        if (userA == null || userB == null) return userA == userB;
+        return userId(a).equals(userId(b)) &&
+                userA.uid == userB.uid &&
+                userA.enableAudio == userB.enableAudio &&
+                userA.enableVideo == userB.enableVideo &&
+                (userA.userName == null ? userB.userName == null : userA.userName.equals(userB.userName));
+    }
+
+    private static boolean sameOwner(@Nullable OwnerStateMessage.OwnerState a,
+                                     @NonNull OwnerStateMessage.OwnerState b) {
+        return a != null && a.uid == b.uid &&
+                a.enableAudio == b.enableAudio &&
+                a.enableVideo == b.enableVideo &&
+                (a.userId == null ? b.userId == null : a.userId.equals(b.userId)) &&
+                (a.userName == null ? b.userName == null : a.userName.equals(b.userName));
+    }
+
+    private static SeatStateMessage.SeatStateMessageDataItem emptySeat(
+            @NonNull SeatStateMessage.SeatStateMessageDataItem item) {
+        SeatStateMessage.SeatStateMessageDataItem empty = new SeatStateMessage.SeatStateMessageDataItem();
+        empty.seat = new SeatStateMessage.SeatState();
+        empty.seat.no = item.seat.no;
+        empty.seat.state = SeatInfo.OPEN;
+        return empty;
+    }
+}
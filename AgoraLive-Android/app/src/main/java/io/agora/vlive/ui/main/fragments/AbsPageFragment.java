@@ -14,6 +14,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatTextView;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
@@ -24,6 +25,8 @@ import java.util.List;
 import io.agora.vlive.Config;
 import io.agora.vlive.R;
 import io.agora.vlive.protocol.ClientProxy;
+import io.agora.vlive.protocol.RequestGroup;
+import io.agora.vlive.protocol.RoomListCache;
 import io.agora.vlive.protocol.model.model.RoomInfo;
 import io.agora.vlive.protocol.model.request.Request;
 import io.agora.vlive.protocol.model.request.RoomListRequest;
@@ -51,12 +54,18 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
     private View mNetworkErrorBg;
 
     private int mItemSpacing;
+    private RoomListCache mRoomListCache;
+
+    // Room lists are requested again when the page
+    // is resumed, so they are cancelled when paused
+    private final RequestGroup mRequestGroup = new RequestGroup();
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         mHandler = new Handler(Looper.getMainLooper());
         mPageRefreshRunnable = new PageRefreshRunnable();
+        mRoomListCache = application().roomListCache();
         mItemSpacing = getContainer().getResources()
                 .getDimensionPixelSize(R.dimen.activity_horizontal_margin);
     }
@@ -74,6 +83,9 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
         mRecyclerView.setVisibility(View.VISIBLE);
         mRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), SPAN_COUNT));
         mAdapter = new RoomListAdapter();
+        // The last known rooms are shown at once, and
+        // revalidated when the page is resumed
+        mAdapter.setRooms(mRoomListCache.get(onGetRoomListType(), null));
         mRecyclerView.setAdapter(mAdapter);
         mRecyclerView.addItemDecoration(new RoomListItemDecoration());
         mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
@@ -156,6 +168,7 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
     public void onPause() {
         super.onPause();
         stopRefreshTimer();
+        mRequestGroup.cancelAll();
         getContainer().proxy().removeProxyListener(this);
     }
 
@@ -164,7 +177,6 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
      * @param nextId null if refresh from the beginning of list
      */
     private void refreshPage(String nextId) {
-        if (nextId == null) mAdapter.clear(false);
         refreshPage(nextId, REQ_ROOM_COUNT, onGetRoomListType(), null);
     }
 
@@ -172,18 +184,22 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
         RoomListRequest request = new RoomListRequest(
                 getContainer().config().getUserProfile().getToken(),
                 nextId, count, type, pkState);
-        getContainer().proxy().sendRequest(Request.ROOM_LIST, request);
+        getContainer().proxy().sendRequest(Request.ROOM_LIST, request, mRequestGroup);
     }
 
     @Override
-    public void onRoomListResponse(RoomListResponse response) {
-        final List<RoomInfo> list = response.data.list;
+    public void onRoomListResponse(RoomListResponse response, String nextId) {
+        // The page replaces the rooms after the requested
+        // next id. Next id being empty indicates this is
+        // the start of room list, which is merged with
+        // the rooms of the later pages.
+        mRoomListCache.merge(onGetRoomListType(), null,
+                nextId, response.data.list, REQ_ROOM_COUNT);
         getContainer().runOnUiThread(() -> {
             mNetworkErrorBg.setVisibility(View.GONE);
-            // Next id being empty indicates this is the
-            // start of room list and we need to refresh
-            // the whole page.
-            mAdapter.append(list, TextUtils.isEmpty(response.data.nextId));
+            // Responses may be merged in a different order
+            // than they are posted, the latest list is shown
+            mAdapter.setRooms(mRoomListCache.get(onGetRoomListType(), null));
             checkRoomListEmpty();
             if (mSwipeRefreshLayout.isRefreshing()) {
                 mSwipeRefreshLayout.setRefreshing(false);
@@ -210,8 +226,11 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
             holder.count.setText(String.valueOf(info.currentUsers));
             holder.layout.setBackgroundResource(UserUtil.getUserProfileIcon(info.roomId));
             holder.itemView.setOnClickListener((view) -> {
-                if (config().appIdObtained() && position < mRoomList.size()) {
-                    goLiveRoom(mRoomList.get(position),
+                // Rooms may have moved since bound
+                int current = holder.getAdapterPosition();
+                if (config().appIdObtained() && current != RecyclerView.NO_POSITION &&
+                        current < mRoomList.size()) {
+                    goLiveRoom(mRoomList.get(current),
                             serverTypeToTabType(onGetRoomListType()));
                 } else {
                     Toast.makeText(getContext(), R.string.agora_app_id_failed,
@@ -244,15 +263,19 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
             return mRoomList.size();
         }
 
-        void append(List<RoomInfo> infoList, boolean reset) {
-            if (reset) mRoomList.clear();
-            mRoomList.addAll(infoList);
-            notifyDataSetChanged();
-        }
-
-        void clear(boolean notifyChange) {
-            mRoomList.clear();
-            if (notifyChange) notifyDataSetChanged();
+        /**
+         * Only the rooms added, removed, moved or
+         * changed are bound again
+         */
+        void setRooms(List<RoomInfo> rooms) {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                    new RoomListDiffCallback(mRoomList, rooms));
+            boolean sizeChanged = mRoomList.size() != rooms.size();
+            mRoomList = rooms;
+            result.dispatchUpdatesTo(this);
+
+            // The spacing of the last row depends on the size
+            if (sizeChanged) mRecyclerView.invalidateItemDecorations();
         }
 
         RoomInfo getLast() {
@@ -260,6 +283,41 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
         }
     }
 
+    private static class RoomListDiffCallback extends DiffUtil.Callback {
+        private final List<RoomInfo> mOldList;
+        private final List<RoomInfo> mNewList;
+
+        RoomListDiffCallback(List<RoomInfo> oldList, List<RoomInfo> newList) {
+            mOldList = oldList;
+            mNewList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return TextUtils.equals(mOldList.get(oldItemPosition).roomId,
+                    mNewList.get(newItemPosition).roomId);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            RoomInfo oldInfo = mOldList.get(oldItemPosition);
+            RoomInfo newInfo = mNewList.get(newItemPosition);
+            return TextUtils.equals(oldInfo.roomName, newInfo.roomName) &&
+                    TextUtils.equals(oldInfo.thumbnail, newInfo.thumbnail) &&
+                    oldInfo.currentUsers == newInfo.currentUsers;
+        }
+    }
+
     private void goLiveRoom(RoomInfo info, int roomType) {
         Intent intent = new Intent(getActivity(), getLiveActivityClass());
         intent.putExtra(Global.Constants.TAB_KEY, roomType);
@@ -327,11 +385,15 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
                             ", error message:" + message, Toast.LENGTH_LONG).show();
 
             if (requestType == Request.ROOM_LIST) {
-                if (mAdapter != null) {
-                    mAdapter.clear(true);
+                if (mSwipeRefreshLayout.isRefreshing()) {
+                    mSwipeRefreshLayout.setRefreshing(false);
+                }
+
+                // The last known rooms are kept if any
+                if (mAdapter != null && mAdapter.getItemCount() == 0) {
+                    mNoDataBg.setVisibility(View.GONE);
+                    mNetworkErrorBg.setVisibility(View.VISIBLE);
                 }
-                mNoDataBg.setVisibility(View.GONE);
-                mNetworkErrorBg.setVisibility(View.VISIBLE);
             }
         });
     }
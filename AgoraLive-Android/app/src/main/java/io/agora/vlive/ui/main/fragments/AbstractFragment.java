@@ -64,7 +64,7 @@ public abstract class AbstractFragment extends Fragment implements ClientProxyLi
     }
 
     @Override
-    public void onRoomListResponse(RoomListResponse response) {
+    public void onRoomListResponse(RoomListResponse response, String nextId) {
 
     }
 
@@ -68,6 +68,10 @@ public class Global {
 
         public static final long APP_LOG_SIZE = 1 << 30;
 
+        // Interval of dumping camera channel frame timings
+        // to the app log, only in debug builds
+        public static final long FRAME_TIMING_LOG_INTERVAL = 10000;
+
         public static final int[] TAB_IDS_RES = {
                 R.string.home_category_title_multi,
                 R.string.home_category_title_single,
@@ -0,0 +1,162 @@
+package io.agora.vlive.agora.rtm;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of dispatching rtm events to listeners.
+ */
+public class RtmMessageDispatcherTest {
+    private static final int GAP_ROUNDS = 20000;
+    private static final int GAP_MAX_SPINS = 200;
+
+    private volatile int mSpinSink;
+
+    private static class QueueExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) tasks.poll().run();
+        }
+    }
+
+    @Test
+    public void deliversInlineInOrder() {
+        RtmMessageDispatcher<List<String>> dispatcher = new RtmMessageDispatcher<>();
+        List<String> received = new ArrayList<>();
+        dispatcher.register(received, null);
+
+        dispatcher.dispatch(RtmMessageDispatcher.LANE_NORMAL, listener -> listener.add("a"));
+        dispatcher.dispatch(RtmMessageDispatcher.LANE_NORMAL, listener -> listener.add("b"));
+        assertEquals(Arrays.asList("a", "b"), received);
+        assertEquals(2, dispatcher.getMetrics(RtmMessageDispatcher.LANE_NORMAL).delivered);
+    }
+
+    @Test
+    public void controlEventsJumpAhead() {
+        RtmMessageDispatcher<List<String>> dispatcher = new RtmMessageDispatcher<>();
+        QueueExecutor executor = new QueueExecutor();
+        List<String> received = new ArrayList<>();
+        dispatcher.register(received, executor);
+
+        for (int i = 0; i < 3; i++) {
+            String chat = "chat" + i;
+            dispatcher.dispatch(RtmMessageDispatcher.LANE_NORMAL, listener -> listener.add(chat));
+        }
+        dispatcher.dispatch(RtmMessageDispatcher.LANE_CONTROL, listener -> listener.add("seat"));
+
+        RtmMessageDispatcher.LaneMetrics metrics =
+                dispatcher.getMetrics(RtmMessageDispatcher.LANE_NORMAL);
+        assertEquals(3, metrics.depth);
+        assertEquals(3, metrics.maxDepth);
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        assertEquals(Arrays.asList("seat", "chat0", "chat1", "chat2"), received);
+        assertEquals(0, dispatcher.getMetrics(RtmMessageDispatcher.LANE_NORMAL).depth);
+    }
+
+    @Test
+    public void yieldsExecutorBetweenNormalEvents() {
+        RtmMessageDispatcher<List<String>> dispatcher = new RtmMessageDispatcher<>();
+        QueueExecutor executor = new QueueExecutor();
+        List<String> received = new ArrayList<>();
+        dispatcher.register(received, executor);
+
+        for (int i = 0; i < 20; i++) {
+            dispatcher.dispatch(RtmMessageDispatcher.LANE_NORMAL, listener -> listener.add("chat"));
+        }
+
+        executor.tasks.poll().run();
+        assertTrue(received.size() < 20);
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        assertEquals(20, received.size());
+    }
+
+    @Test
+    public void discardsPendingEventsOnUnregister() {
+        RtmMessageDispatcher<List<String>> dispatcher = new RtmMessageDispatcher<>();
+        QueueExecutor executor = new QueueExecutor();
+        List<String> received = new ArrayList<>();
+        dispatcher.register(received, executor);
+
+        dispatcher.dispatch(RtmMessageDispatcher.LANE_CONTROL, listener -> listener.add("leave"));
+        dispatcher.unregister(received);
+        assertFalse(dispatcher.isRegistered(received));
+
+        executor.runAll();
+        assertTrue(received.isEmpty());
+        assertEquals(0, dispatcher.getMetrics(RtmMessageDispatcher.LANE_CONTROL).depth);
+    }
+
+    @Test
+    public void deliversEventsEnqueuedWhileRunEnds() throws InterruptedException {
+        RtmMessageDispatcher<AtomicInteger> dispatcher = new RtmMessageDispatcher<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicInteger received = new AtomicInteger();
+        dispatcher.register(received, executor);
+
+        try {
+            // Every event is dispatched shortly after the previous
+            // one is delivered, with a varying delay so that some of
+            // them are enqueued while the run of the listener is
+            // ending.
+            Random random = new Random(GAP_ROUNDS);
+            for (int i = 0; i < GAP_ROUNDS; i++) {
+                dispatcher.dispatch(RtmMessageDispatcher.LANE_CONTROL, AtomicInteger::incrementAndGet);
+
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                while (received.get() <= i) {
+                    assertTrue("event " + i + " is never delivered", System.nanoTime() < deadline);
+                }
+
+                for (int spin = random.nextInt(GAP_MAX_SPINS); spin > 0; spin--) {
+                    mSpinSink++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        assertEquals(GAP_ROUNDS, received.get());
+    }
+
+    @Test
+    public void deliversEventsDispatchedByListenerInline() {
+        RtmMessageDispatcher<List<String>> dispatcher = new RtmMessageDispatcher<>();
+        List<String> received = new ArrayList<>();
+        dispatcher.register(received, null);
+
+        dispatcher.dispatch(RtmMessageDispatcher.LANE_NORMAL, listener -> {
+            listener.add("chat");
+            dispatcher.dispatch(RtmMessageDispatcher.LANE_CONTROL, l -> l.add("seat"));
+            dispatcher.dispatch(RtmMessageDispatcher.LANE_NORMAL, l -> l.add("gift"));
+        });
+        assertEquals(Arrays.asList("chat", "seat", "gift"), received);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownLane() {
+        new RtmMessageDispatcher<List<String>>().dispatch(2, listener -> { });
+    }
+}
@@ -0,0 +1,576 @@
+package io.agora.vlive.agora.rtm;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import io.agora.rtm.RtmChannelAttribute;
+import io.agora.rtm.RtmChannelMember;
+import io.agora.vlive.agora.rtm.model.AbsRtmMessage;
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+import io.agora.vlive.agora.rtm.model.GiftMessage;
+import io.agora.vlive.agora.rtm.model.GiftRankMessage;
+import io.agora.vlive.agora.rtm.model.NotificationMessage;
+import io.agora.vlive.agora.rtm.model.OwnerStateMessage;
+import io.agora.vlive.agora.rtm.model.PKStateMessage;
+import io.agora.vlive.agora.rtm.model.RtmCompactCodec;
+import io.agora.vlive.agora.rtm.model.RtmMessageCodec;
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+import io.agora.vlive.protocol.model.model.SeatInfo;
+import io.agora.vlive.protocol.model.types.PKConstant;
+import io.agora.vlive.protocol.model.types.SeatInteraction;
+
+import static io.agora.vlive.agora.rtm.RtmMessageDispatcher.LANE_CONTROL;
+import static io.agora.vlive.agora.rtm.RtmMessageDispatcher.LANE_NORMAL;
+
+/**
+ * Replays recorded or synthetic rtm traffic into the receiving
+ * path (RtmMessageRouter and RtmMessageDispatcher, the same
+ * path RtmMessageManager passes sdk messages to) at a given
+ * rate, and measures how it keeps up: messages per second
+ * sustained until every listener has received every event,
+ * decode and dispatch time per message in the receiving thread,
+ * bytes allocated by the receiving thread, and the backlog and
+ * delivery latency of the listeners.
+ * Runs in the local jvm, without the rtm sdk or a network.
+ * A harness replays traffic once.
+ */
+class RtmReplayHarness {
+    private static final String KEY_PEER = "peer";
+
+    /**
+     * A message as received from the sdk: a peer message, a
+     * channel message in json, or a channel message in the
+     * compact binary format.
+     */
+    static class Record {
+        final boolean peer;
+        final String text;
+        final byte[] raw;
+
+        private Record(boolean peer, String text, byte[] raw) {
+            this.peer = peer;
+            this.text = text;
+            this.raw = raw;
+        }
+
+        static Record peer(String json) {
+            return new Record(true, json, null);
+        }
+
+        static Record channel(String json) {
+            return new Record(false, json, null);
+        }
+
+        static Record channel(byte[] raw) {
+            return new Record(false, null, raw);
+        }
+
+        boolean isRaw() {
+            return raw != null;
+        }
+    }
+
+    static class Report {
+        int messages;
+        int failed;
+
+        // From the first message received to the last event
+        // delivered to all listeners
+        double seconds;
+        double messagesPerSecond;
+
+        // Decoding and dispatching in the receiving thread
+        long decodeP50Us;
+        long decodeP99Us;
+        long decodeMaxUs;
+
+        // Allocated by the receiving thread, -1 if the jvm
+        // cannot measure allocations of a thread
+        long bytesPerMessage;
+        double allocatedMBPerSecond;
+
+        RtmMessageDispatcher.LaneMetrics control;
+        RtmMessageDispatcher.LaneMetrics normal;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d messages (%d failed) in %.3f s, %.0f messages/s\n" +
+                    "decode and dispatch: p50 %d us, p99 %d us, max %d us\n" +
+                    "allocated: %d bytes/message, %.1f MB/s\n" +
+                    "control lane: %s\nnormal lane: %s",
+                    messages, failed, seconds, messagesPerSecond,
+                    decodeP50Us, decodeP99Us, decodeMaxUs,
+                    bytesPerMessage, allocatedMBPerSecond, control, normal);
+        }
+    }
+
+    /**
+     * Load recorded traffic, one message per line: the json
+     * text of the message, with "peer": true added to peer
+     * messages. Empty lines and lines starting with # are
+     * skipped.
+     */
+    static List<Record> load(Reader reader) throws IOException {
+        List<Record> records = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+            JsonElement peer = json.remove(KEY_PEER);
+            String text = json.toString();
+            records.add(peer != null && peer.getAsBoolean()
+                    ? Record.peer(text) : Record.channel(text));
+        }
+        return records;
+    }
+
+    /**
+     * Traffic of a hot room: mostly chat messages and gifts,
+     * with gift ranks, users entering, seat, owner and PK
+     * states, and seat invitations sent to the local user.
+     * @param seed the same seed generates the same traffic
+     */
+    static List<Record> synthetic(int count, long seed) {
+        Gson gson = new Gson();
+        Random random = new Random(seed);
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(100);
+            String user = "user" + random.nextInt(500);
+            if (kind < 60) {
+                ChatMessage.ChatMessageData chat = new ChatMessage.ChatMessageData();
+                chat.fromUserId = user;
+                chat.fromUserName = "name of " + user;
+                chat.message = "message " + i + " from the audience of a very hot room";
+                records.add(Record.channel(json(gson, RtmMessageCodec.CHANNEL_MSG_TYPE_CHAT, chat)));
+            } else if (kind < 78) {
+                GiftMessage.GiftMessageData gift = new GiftMessage.GiftMessageData();
+                gift.fromUserId = user;
+                gift.fromUserName = "name of " + user;
+                gift.toUserId = "owner";
+                gift.toUserName = "name of owner";
+                gift.giftId = random.nextInt(8);
+                records.add(Record.channel(json(gson, RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT, gift)));
+            } else if (kind < 84) {
+                GiftRankMessage.GiftRank rank = new GiftRankMessage.GiftRank();
+                rank.list = new ArrayList<>();
+                for (int j = 0; j < 3; j++) {
+                    GiftRankMessage.GiftRankItem item = new GiftRankMessage.GiftRankItem();
+                    item.userId = "user" + random.nextInt(500);
+                    item.userName = "name of " + item.userId;
+                    item.avatar = String.valueOf(random.nextInt(12));
+                    rank.list.add(item);
+                }
+                rank.total = rank.list.size();
+                records.add(Record.channel(json(gson, RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT_RANK, rank)));
+            } else if (kind < 92) {
+                NotificationMessage.NotificationItem item = new NotificationMessage.NotificationItem();
+                item.userId = user;
+                item.userName = "name of " + user;
+                item.state = NotificationMessage.NotificationItem.NOTIFICATION_ENTER_ROOM;
+                NotificationMessage.Notification notification = new NotificationMessage.Notification();
+                notification.total = 1;
+                notification.list = Arrays.asList(item);
+                records.add(Record.channel(json(gson, RtmMessageCodec.CHANNEL_MSG_TYPE_NOTIFY, notification)));
+            } else if (kind < 95) {
+                List<SeatStateMessage.SeatStateMessageDataItem> seats = new ArrayList<>();
+                for (int j = 0; j < 6; j++) {
+                    SeatStateMessage.SeatStateMessageDataItem item = new SeatStateMessage.SeatStateMessageDataItem();
+                    item.seat = new SeatStateMessage.SeatState();
+                    item.seat.no = j + 1;
+                    item.seat.state = random.nextBoolean() ? SeatInfo.TAKEN : SeatInfo.OPEN;
+                    item.user = new SeatStateMessage.UserState();
+                    item.user.userId = item.seat.state == SeatInfo.TAKEN ? "host" + j : "";
+                    item.user.enableAudio = 1;
+                    item.user.enableVideo = 1;
+                    seats.add(item);
+                }
+                records.add(Record.channel(json(gson, RtmMessageCodec.CHANNEL_MSG_TYPE_SEAT, seats)));
+            } else if (kind < 97) {
+                OwnerStateMessage.OwnerState owner = new OwnerStateMessage.OwnerState();
+                owner.userId = "owner";
+                owner.userName = "name of owner";
+                owner.enableAudio = random.nextInt(2);
+                owner.enableVideo = 1;
+                records.add(Record.channel(json(gson, RtmMessageCodec.CHANNEL_MSG_CMD_OWNER_STATE, owner)));
+            } else if (kind < 99) {
+                PKStateMessage.PKStateMessageBody pk = new PKStateMessage.PKStateMessageBody();
+                pk.event = PKConstant.PK_EVENT_RANK_CHANGED;
+                pk.state = PKConstant.PK_STATE_PK;
+                pk.localRank = random.nextInt(10000);
+                pk.remoteRank = random.nextInt(10000);
+                records.add(Record.channel(json(gson, RtmMessageCodec.CHANNEL_MSG_TYPE_PK, pk)));
+            } else {
+                JsonObject fromUser = new JsonObject();
+                fromUser.addProperty("userId", "owner");
+                fromUser.addProperty("userName", "name of owner");
+                JsonObject data = new JsonObject();
+                data.addProperty("no", 1 + random.nextInt(6));
+                data.addProperty("type", SeatInteraction.OWNER_INVITE);
+                data.addProperty("processId", i);
+                data.add("fromUser", fromUser);
+                records.add(Record.peer(json(gson, RtmMessageCodec.PEER_MSG_TYPE_SEAT, data)));
+            }
+        }
+        return records;
+    }
+
+    // The cmd is written first, as the server does
+    private static String json(Gson gson, int cmd, Object data) {
+        JsonObject json = new JsonObject();
+        json.addProperty("cmd", cmd);
+        json.add("data", gson.toJsonTree(data));
+        return json.toString();
+    }
+
+    /**
+     * @return the same traffic with the channel messages that
+     * the compact format supports encoded in it
+     */
+    static List<Record> toCompact(List<Record> records) {
+        List<Record> compact = new ArrayList<>(records.size());
+        for (Record record : records) {
+            if (!record.peer && !record.isRaw()) {
+                int cmd = RtmMessageCodec.readCmd(record.text);
+                if (RtmCompactCodec.supports(cmd)) {
+                    AbsRtmMessage message = RtmMessageCodec.decodeChannelMessage(cmd, record.text);
+                    compact.add(Record.channel(RtmCompactCodec.encode(message)));
+                    continue;
+                }
+            }
+            compact.add(record);
+        }
+        return compact;
+    }
+
+    private final int mRatePerSecond;
+    private final RtmMessageDispatcher<RtmMessageListener> mDispatcher = new RtmMessageDispatcher<>();
+    private final RtmMessageRouter mRouter = new RtmMessageRouter(mDispatcher);
+    private final List<ExecutorService> mThreads = new ArrayList<>();
+
+    /**
+     * @param ratePerSecond messages received per second,
+     *                      0 to receive as fast as possible
+     */
+    RtmReplayHarness(int ratePerSecond) {
+        if (ratePerSecond < 0) {
+            throw new IllegalArgumentException(
+                    "[RtmReplayHarness] wrong argument: rate must not be negative");
+        }
+        mRatePerSecond = ratePerSecond;
+    }
+
+    /**
+     * @param ownThread true to deliver events in a thread of
+     *                  the listener's own, like the main thread
+     *                  of the app; false to deliver in the
+     *                  receiving thread
+     */
+    void addListener(RtmMessageListener listener, boolean ownThread) {
+        ExecutorService thread = null;
+        if (ownThread) {
+            thread = Executors.newSingleThreadExecutor();
+            mThreads.add(thread);
+        }
+        mDispatcher.register(listener, thread);
+    }
+
+    /**
+     * Receive the messages in the calling thread, and wait
+     * until all events are delivered.
+     */
+    Report replay(List<Record> records) throws InterruptedException {
+        Report report = new Report();
+        report.messages = records.size();
+        long[] decodeNs = new long[records.size()];
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocationBean =
+                threadBean instanceof com.sun.management.ThreadMXBean &&
+                        ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+                        ? (com.sun.management.ThreadMXBean) threadBean : null;
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocationBean != null
+                ? allocationBean.getThreadAllocatedBytes(threadId) : 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < records.size(); i++) {
+            if (mRatePerSecond > 0) {
+                waitUntil(start + i * 1000000000L / mRatePerSecond);
+            }
+
+            long begin = System.nanoTime();
+            if (!receive(records.get(i))) report.failed++;
+            decodeNs[i] = System.nanoTime() - begin;
+        }
+        long received = System.nanoTime();
+
+        long allocated = allocationBean != null
+                ? allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore : -1;
+
+        while (mDispatcher.getMetrics(LANE_CONTROL).depth > 0 ||
+                mDispatcher.getMetrics(LANE_NORMAL).depth > 0) {
+            Thread.sleep(1);
+        }
+        for (ExecutorService thread : mThreads) {
+            // The events being delivered are finished
+            thread.shutdown();
+            thread.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long end = System.nanoTime();
+
+        report.seconds = (end - start) / 1e9;
+        report.messagesPerSecond = report.messages / report.seconds;
+
+        Arrays.sort(decodeNs);
+        if (decodeNs.length > 0) {
+            report.decodeP50Us = decodeNs[decodeNs.length / 2] / 1000;
+            report.decodeP99Us = decodeNs[(int) (decodeNs.length * 0.99)] / 1000;
+            report.decodeMaxUs = decodeNs[decodeNs.length - 1] / 1000;
+        }
+
+        if (allocated >= 0 && report.messages > 0) {
+            report.bytesPerMessage = allocated / report.messages;
+            report.allocatedMBPerSecond = allocated / 1e6 / ((received - start) / 1e9);
+        } else {
+            report.bytesPerMessage = -1;
+        }
+
+        report.control = mDispatcher.getMetrics(LANE_CONTROL);
+        report.normal = mDispatcher.getMetrics(LANE_NORMAL);
+        return report;
+    }
+
+    /**
+     * The same as RtmMessageManager.onMessageReceived
+     * @return false if the message cannot be decoded
+     */
+    private boolean receive(Record record) {
+        try {
+            if (record.peer) {
+                mRouter.onPeerMessage(record.text);
+            } else if (record.isRaw()) {
+                mRouter.onChannelMessage(record.raw);
+            } else {
+                mRouter.onChannelMessage(record.text);
+            }
+            return true;
+        } catch (JsonParseException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            // Parking is not precise, spin for the last part
+            if (remaining > 200000) LockSupport.parkNanos(remaining - 100000);
+        }
+    }
+
+    /**
+     * Counts the events received, and takes some time for
+     * each event like the UI does.
+     */
+    static class CountingListener implements RtmMessageListener {
+        private final long mWorkNs;
+        private final Map<String, AtomicInteger> mCounts = new ConcurrentHashMap<>();
+
+        /**
+         * @param workUs time taken for every event
+         */
+        CountingListener(long workUs) {
+            mWorkNs = workUs * 1000;
+        }
+
+        int count(String event) {
+            AtomicInteger count = mCounts.get(event);
+            return count != null ? count.get() : 0;
+        }
+
+        int total() {
+            int total = 0;
+            for (AtomicInteger count : mCounts.values()) total += count.get();
+            return total;
+        }
+
+        private void onEvent(String event) {
+            AtomicInteger count = mCounts.get(event);
+            if (count == null) {
+                mCounts.putIfAbsent(event, new AtomicInteger());
+                count = mCounts.get(event);
+            }
+            count.incrementAndGet();
+
+            if (mWorkNs > 0) {
+                long end = System.nanoTime() + mWorkNs;
+                while (System.nanoTime() < end);
+            }
+        }
+
+        @Override
+        public void onRtmConnectionStateChanged(int state, int reason) {
+            onEvent("connection");
+        }
+
+        @Override
+        public void onRtmTokenExpired() {
+            onEvent("token");
+        }
+
+        @Override
+        public void onRtmPeersOnlineStatusChanged(Map<String, Integer> map) {
+            onEvent("online");
+        }
+
+        @Override
+        public void onRtmMemberCountUpdated(int memberCount) {
+            onEvent("memberCount");
+        }
+
+        @Override
+        public void onRtmAttributesUpdated(List<RtmChannelAttribute> attributeList) {
+            onEvent("attributes");
+        }
+
+        @Override
+        public void onRtmMemberJoined(RtmChannelMember rtmChannelMember) {
+            onEvent("joined");
+        }
+
+        @Override
+        public void onRtmMemberLeft(RtmChannelMember rtmChannelMember) {
+            onEvent("left");
+        }
+
+        @Override
+        public void onRtmSeatInvited(String userId, String userName, int index) {
+            onEvent("seatInvited");
+        }
+
+        @Override
+        public void onRtmSeatApplied(String userId, String userName, int index) {
+            onEvent("seatApplied");
+        }
+
+        @Override
+        public void onRtmInvitationAccepted(long processId, String userId, String userName, int index) {
+            onEvent("invitationAccepted");
+        }
+
+        @Override
+        public void onRtmApplicationAccepted(long processId, String userId, String userName, int index) {
+            onEvent("applicationAccepted");
+        }
+
+        @Override
+        public void onRtmInvitationRejected(long processId, String userId, String userName, int index) {
+            onEvent("invitationRejected");
+        }
+
+        @Override
+        public void onRtmApplicationRejected(long processId, String userId, String userName, int index) {
+            onEvent("applicationRejected");
+        }
+
+        @Override
+        public void onRtmOwnerForceLeaveSeat(String userId, String userName, int index) {
+            onEvent("forceLeave");
+        }
+
+        @Override
+        public void onRtmHostLeaveSeat(String userId, String userName, int index) {
+            onEvent("hostLeave");
+        }
+
+        @Override
+        public void onRtmPkReceivedFromAnotherHost(String userId, String userName, String roomId) {
+            onEvent("pkReceived");
+        }
+
+        @Override
+        public void onRtmPkAcceptedByTargetHost(String userId, String userName, String roomId) {
+            onEvent("pkAccepted");
+        }
+
+        @Override
+        public void onRtmPkRejectedByTargetHost(String userId, String userName, String roomId) {
+            onEvent("pkRejected");
+        }
+
+        @Override
+        public void onRtmChannelMessageReceived(String peerId, String nickname, String content) {
+            onEvent("chat");
+        }
+
+        @Override
+        public void onRtmChannelNotification(int total, List<NotificationMessage.NotificationItem> list) {
+            onEvent("notification");
+        }
+
+        @Override
+        public void onRtmRoomGiftRankChanged(int total, List<GiftRankMessage.GiftRankItem> list) {
+            onEvent("giftRank");
+        }
+
+        @Override
+        public void onRtmOwnerStateChanged(String userId, String userName, int uid, int enableAudio, int enableVideo) {
+            onEvent("owner");
+        }
+
+        @Override
+        public void onRtmSeatStateChanged(List<SeatStateMessage.SeatStateMessageDataItem> data) {
+            onEvent("seat");
+        }
+
+        @Override
+        public void onRtmReceivePKEvent(PKStateMessage.PKStateMessageBody messageData) {
+            onEvent("pk");
+        }
+
+        @Override
+        public void onRtmGiftMessage(String fromUserId, String fromUserName, String toUserId, String toUserName, int giftId) {
+            onEvent("gift");
+        }
+
+        @Override
+        public void onRtmProductPurchased(String productId, int count) {
+            onEvent("productPurchased");
+        }
+
+        @Override
+        public void onRtmProductStateChanged(String productId, int state) {
+            onEvent("productState");
+        }
+
+        @Override
+        public void onRtmLeaveMessage() {
+            onEvent("leave");
+        }
+    }
+}
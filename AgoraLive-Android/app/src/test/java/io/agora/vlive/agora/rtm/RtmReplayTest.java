@@ -0,0 +1,100 @@
+package io.agora.vlive.agora.rtm;
+
+import org.junit.Test;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays rtm traffic through the receiving path locally.
+ * The reports are printed, to compare decoding and
+ * dispatching changes on the same traffic.
+ */
+public class RtmReplayTest {
+    private static List<RtmReplayHarness.Record> loadHotRoom() throws Exception {
+        try (Reader reader = new InputStreamReader(RtmReplayTest.class.getClassLoader()
+                .getResourceAsStream("rtm/hot_room.jsonl"), StandardCharsets.UTF_8)) {
+            return RtmReplayHarness.load(reader);
+        }
+    }
+
+    @Test
+    public void replaysRecordedTraffic() throws Exception {
+        List<RtmReplayHarness.Record> records = loadHotRoom();
+        assertEquals(20, records.size());
+        assertTrue(records.get(11).peer);
+
+        RtmReplayHarness harness = new RtmReplayHarness(0);
+        RtmReplayHarness.CountingListener inline = new RtmReplayHarness.CountingListener(0);
+        RtmReplayHarness.CountingListener threaded = new RtmReplayHarness.CountingListener(0);
+        harness.addListener(inline, false);
+        harness.addListener(threaded, true);
+        RtmReplayHarness.Report report = harness.replay(records);
+
+        assertEquals(0, report.failed);
+        for (RtmReplayHarness.CountingListener listener :
+                new RtmReplayHarness.CountingListener[] { inline, threaded }) {
+            assertEquals(20, listener.total());
+            assertEquals(6, listener.count("chat"));
+            assertEquals(2, listener.count("gift"));
+            assertEquals(2, listener.count("giftRank"));
+            assertEquals(3, listener.count("notification"));
+            assertEquals(2, listener.count("seat"));
+            assertEquals(2, listener.count("owner"));
+            assertEquals(1, listener.count("seatInvited"));
+            assertEquals(1, listener.count("productState"));
+            assertEquals(1, listener.count("leave"));
+        }
+        assertEquals(0, report.normal.depth);
+        assertEquals(2 * 16, report.normal.delivered);
+        assertEquals(2 * 4, report.control.delivered);
+    }
+
+    @Test
+    public void compactTrafficDeliversSameEvents() throws Exception {
+        List<RtmReplayHarness.Record> json = RtmReplayHarness.synthetic(2000, 7);
+        List<RtmReplayHarness.Record> compact = RtmReplayHarness.toCompact(json);
+
+        RtmReplayHarness.CountingListener jsonListener = new RtmReplayHarness.CountingListener(0);
+        RtmReplayHarness jsonHarness = new RtmReplayHarness(0);
+        jsonHarness.addListener(jsonListener, false);
+        RtmReplayHarness.Report jsonReport = jsonHarness.replay(json);
+
+        RtmReplayHarness.CountingListener compactListener = new RtmReplayHarness.CountingListener(0);
+        RtmReplayHarness compactHarness = new RtmReplayHarness(0);
+        compactHarness.addListener(compactListener, false);
+        RtmReplayHarness.Report compactReport = compactHarness.replay(compact);
+
+        System.out.println("json:\n" + jsonReport + "\ncompact:\n" + compactReport);
+        assertEquals(0, jsonReport.failed);
+        assertEquals(0, compactReport.failed);
+        assertEquals(2000, jsonListener.total());
+        for (String event : new String[] { "chat", "gift", "giftRank", "seat", "pk" }) {
+            assertEquals(jsonListener.count(event), compactListener.count(event));
+        }
+    }
+
+    @Test
+    public void slowListenerBuildsBacklogWithoutLosingEvents() throws Exception {
+        List<RtmReplayHarness.Record> records = RtmReplayHarness.synthetic(1000, 11);
+
+        // Events take 0.5 ms on the listener's thread, and
+        // 1000 messages are received within 0.25 s
+        RtmReplayHarness harness = new RtmReplayHarness(4000);
+        RtmReplayHarness.CountingListener slow = new RtmReplayHarness.CountingListener(500);
+        harness.addListener(slow, true);
+        RtmReplayHarness.Report report = harness.replay(records);
+
+        System.out.println("slow listener:\n" + report);
+        assertEquals(0, report.failed);
+        assertEquals(1000, slow.total());
+        assertTrue(report.normal.maxDepth > 1);
+        assertEquals(0, report.normal.depth);
+        assertEquals(0, report.control.depth);
+        assertTrue(report.seconds >= 0.5);
+    }
+}
@@ -0,0 +1,180 @@
+package io.agora.vlive.agora.rtm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import io.agora.vlive.agora.rtm.model.AbsRtmMessage;
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of queueing outgoing rtm messages.
+ */
+public class RtmSendQueueTest {
+    private static class Task {
+        final Runnable runnable;
+        final long time;
+
+        Task(Runnable runnable, long time) {
+            this.runnable = runnable;
+            this.time = time;
+        }
+    }
+
+    private long mNow;
+    private final List<Task> mTasks = new ArrayList<>();
+    private final List<String> mSent = new ArrayList<>();
+    private final List<RtmSendQueue.Result> mResults = new ArrayList<>();
+    private final List<String> mCallbacks = new ArrayList<>();
+
+    private final RtmSendQueue.Scheduler mScheduler = new RtmSendQueue.Scheduler() {
+        @Override
+        public long now() {
+            return mNow;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            mTasks.add(new Task(task, mNow + delayMs));
+        }
+    };
+
+    private RtmSendQueue mQueue;
+
+    @Before
+    public void setup() {
+        mQueue = new RtmSendQueue((message, result) -> {
+            mSent.add(((ChatMessage) message).data.message);
+            mResults.add(result);
+        }, mScheduler, 4, 10, 2);
+    }
+
+    private void advance(long ms) {
+        mNow += ms;
+        Iterator<Task> iterator = mTasks.iterator();
+        List<Runnable> due = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Task task = iterator.next();
+            if (task.time <= mNow) {
+                due.add(task.runnable);
+                iterator.remove();
+            }
+        }
+        for (Runnable runnable : due) runnable.run();
+    }
+
+    private void succeedAll() {
+        while (!mResults.isEmpty()) mResults.remove(0).onSuccess();
+    }
+
+    private void offer(String user, String text) {
+        AbsRtmMessage message = new ChatMessage(user, user, text);
+        mQueue.offer(message, new RtmSendQueue.Callback() {
+            @Override
+            public void onSuccess() {
+                mCallbacks.add("ok " + text);
+            }
+
+            @Override
+            public void onFailure(int errorCode) {
+                mCallbacks.add("failed " + text + " " + errorCode);
+            }
+        });
+    }
+
+    @Test
+    public void sendsInOrderWithinRateLimit() {
+        for (int i = 0; i < 4; i++) {
+            offer("u" + i, "m" + i);
+            succeedAll();
+        }
+
+        // Burst of 2, then one message every 100 ms
+        assertEquals(2, mSent.size());
+        advance(100);
+        succeedAll();
+        assertEquals(3, mSent.size());
+        advance(100);
+        succeedAll();
+        assertEquals(4, mSent.size());
+        assertEquals("m3", mSent.get(3));
+        assertEquals(4, mCallbacks.size());
+    }
+
+    @Test
+    public void sendsWaitingChatMessagesOfSameUserSeparately() {
+        offer("a", "first");
+        offer("a", "second");
+        offer("a", "third");
+        assertEquals(1, mSent.size());
+        assertEquals(2, mQueue.size());
+
+        succeedAll();
+        assertEquals("second", mSent.get(1));
+        succeedAll();
+        advance(100);
+        succeedAll();
+        assertEquals("third", mSent.get(2));
+        assertEquals(3, mCallbacks.size());
+    }
+
+    @Test
+    public void retriesWithBackoff() {
+        offer("a", "m");
+        mResults.remove(0).onFailure(3, true);
+        assertEquals(1, mSent.size());
+
+        advance(499);
+        assertEquals(1, mSent.size());
+        advance(1);
+        assertEquals(2, mSent.size());
+
+        mResults.remove(0).onFailure(3, true);
+        advance(999);
+        assertEquals(2, mSent.size());
+        advance(1);
+        assertEquals(3, mSent.size());
+        succeedAll();
+        assertEquals("ok m", mCallbacks.get(0));
+    }
+
+    @Test
+    public void failsWithoutRetryIfNotRetryable() {
+        offer("a", "m");
+        mResults.remove(0).onFailure(4, false);
+        advance(10000);
+        assertEquals(1, mSent.size());
+        assertEquals("failed m 4", mCallbacks.get(0));
+    }
+
+    @Test
+    public void holdsMessagesWhilePaused() {
+        mQueue.setPaused(true);
+        offer("a", "m0");
+        offer("b", "m1");
+        advance(1000);
+        assertTrue(mSent.isEmpty());
+
+        mQueue.setPaused(false);
+        succeedAll();
+        assertEquals(2, mSent.size());
+    }
+
+    @Test
+    public void rejectsWhenFullAndFailsOnClear() {
+        mQueue.setPaused(true);
+        for (int i = 0; i < 5; i++) offer("u" + i, "m" + i);
+        assertEquals(4, mQueue.size());
+        assertEquals("failed m4 " + RtmSendQueue.ERROR_QUEUE_FULL, mCallbacks.get(0));
+
+        mQueue.clear();
+        assertEquals(0, mQueue.size());
+        assertEquals(5, mCallbacks.size());
+        assertEquals("failed m0 " + RtmSendQueue.ERROR_CLEARED, mCallbacks.get(1));
+    }
+}
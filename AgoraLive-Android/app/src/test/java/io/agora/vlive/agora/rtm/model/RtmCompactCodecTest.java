@@ -0,0 +1,89 @@
+package io.agora.vlive.agora.rtm.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the compact binary format of rtm messages.
+ */
+public class RtmCompactCodecTest {
+    @Test
+    public void roundTripsChatMessage() {
+        ChatMessage chat = new ChatMessage("1001", "观众", "Hello 👋");
+        byte[] raw = RtmCompactCodec.encode(chat);
+        assertTrue(RtmCompactCodec.isCompact(raw));
+        assertTrue(raw.length < RtmMessageCodec.encode(chat).getBytes().length);
+
+        ChatMessage decoded = (ChatMessage) RtmCompactCodec.decode(raw);
+        assertEquals(RtmMessageCodec.CHANNEL_MSG_TYPE_CHAT, decoded.cmd);
+        assertEquals("1001", decoded.data.fromUserId);
+        assertEquals("观众", decoded.data.fromUserName);
+        assertEquals("Hello 👋", decoded.data.message);
+    }
+
+    @Test
+    public void roundTripsGiftAndRankMessages() {
+        GiftMessage gift = new GiftMessage();
+        gift.cmd = RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT;
+        gift.data = new GiftMessage.GiftMessageData();
+        gift.data.fromUserId = "1";
+        gift.data.toUserName = "host";
+        gift.data.giftId = 300;
+
+        GiftMessage decodedGift = (GiftMessage) RtmCompactCodec.decode(RtmCompactCodec.encode(gift));
+        assertEquals("1", decodedGift.data.fromUserId);
+        assertNull(decodedGift.data.fromUserName);
+        assertEquals("host", decodedGift.data.toUserName);
+        assertEquals(300, decodedGift.data.giftId);
+
+        GiftRankMessage rank = new GiftRankMessage();
+        rank.cmd = RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT_RANK;
+        rank.data = new GiftRankMessage.GiftRank();
+        rank.data.total = 2;
+        rank.data.list = new ArrayList<>();
+        for (String id : Arrays.asList("a", "b")) {
+            GiftRankMessage.GiftRankItem item = new GiftRankMessage.GiftRankItem();
+            item.userId = id;
+            item.avatar = "1";
+            rank.data.list.add(item);
+        }
+
+        GiftRankMessage decodedRank = (GiftRankMessage) RtmCompactCodec.decode(RtmCompactCodec.encode(rank));
+        assertEquals(2, decodedRank.data.total);
+        assertEquals(2, decodedRank.data.list.size());
+        assertEquals("b", decodedRank.data.list.get(1).userId);
+        assertEquals("1", decodedRank.data.list.get(1).avatar);
+    }
+
+    @Test
+    public void ignoresLaterVersion() {
+        byte[] raw = RtmCompactCodec.encode(new ChatMessage("1", "a", "hi"));
+        raw[1] = RtmCompactCodec.VERSION + 1;
+        assertNull(RtmCompactCodec.decode(raw));
+    }
+
+    @Test
+    public void doesNotTakeJsonForCompact() {
+        assertFalse(RtmCompactCodec.isCompact(
+                RtmMessageCodec.encode(new ChatMessage("1", "a", "hi")).getBytes()));
+    }
+
+    @Test
+    public void allowedOnlyByFormatOfSameVersion() {
+        assertTrue(RtmCompactCodec.isAllowed("json, " + RtmCompactCodec.FORMAT));
+        assertFalse(RtmCompactCodec.isAllowed("json"));
+        assertFalse(RtmCompactCodec.isAllowed("json,compact99"));
+        assertFalse(RtmCompactCodec.isAllowed(""));
+        assertFalse(RtmCompactCodec.isAllowed(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedMessage() {
+        byte[] raw = RtmCompactCodec.encode(new ChatMessage("1", "a", "hello"));
+        RtmCompactCodec.decode(Arrays.copyOf(raw, raw.length - 2));
+    }
+}
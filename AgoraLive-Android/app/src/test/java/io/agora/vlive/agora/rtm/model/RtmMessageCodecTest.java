@@ -0,0 +1,53 @@
+package io.agora.vlive.agora.rtm.model;
+
+import com.google.gson.JsonParseException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of reading and decoding rtm messages.
+ */
+public class RtmMessageCodecTest {
+    private static final String GIFT = "{\"cmd\":7,\"data\":{\"fromUserId\":\"1\"," +
+            "\"fromUserName\":\"a\",\"toUserId\":\"2\",\"toUserName\":\"b\",\"giftId\":3}}";
+
+    @Test
+    public void readsCmdAtAnyPosition() {
+        assertEquals(7, RtmMessageCodec.readCmd(GIFT));
+        assertEquals(5, RtmMessageCodec.readCmd("{\"data\":[{\"seat\":{\"no\":1}}],\"cmd\":5}"));
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void rejectsMessageWithoutCmd() {
+        RtmMessageCodec.readCmd("{\"data\":{}}");
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void rejectsMalformedMessage() {
+        RtmMessageCodec.readCmd("[1, 2]");
+    }
+
+    @Test
+    public void decodesChannelMessageOfCmd() {
+        AbsRtmMessage message = RtmMessageCodec.decodeChannelMessage(
+                RtmMessageCodec.readCmd(GIFT), GIFT);
+        assertTrue(message instanceof GiftMessage);
+        assertEquals(7, message.cmd);
+        assertEquals(3, ((GiftMessage) message).data.giftId);
+
+        assertNull(RtmMessageCodec.decodeChannelMessage(
+                RtmMessageCodec.CHANNEL_MSG_TYPE_LEAVE, "{\"cmd\":8}"));
+    }
+
+    @Test
+    public void encodesChatMessage() {
+        String json = RtmMessageCodec.encode(new ChatMessage("1", "a", "hello"));
+        assertEquals(RtmMessageCodec.CHANNEL_MSG_TYPE_CHAT, RtmMessageCodec.readCmd(json));
+
+        ChatMessage message = (ChatMessage) RtmMessageCodec.decodeChannelMessage(
+                RtmMessageCodec.CHANNEL_MSG_TYPE_CHAT, json);
+        assertEquals("hello", message.data.message);
+    }
+}
@@ -0,0 +1,109 @@
+package io.agora.vlive.protocol;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import io.agora.vlive.protocol.model.request.Request;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of caching and connection reuse of
+ * the shared http client, against a local server.
+ */
+public class HttpClientFactoryTest {
+    private static final String BODY_OK = "{\"code\":0,\"msg\":\"\",\"data\":[]}";
+    private static final String BODY_ERROR = "{\"code\":1,\"msg\":\"error\",\"data\":null}";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private OkHttpClient mClient;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mClient = HttpClientFactory.create(mFolder.newFolder("http"), false);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    private String get(String path, int requestType) throws IOException {
+        okhttp3.Request request = new okhttp3.Request.Builder()
+                .url(mServer.url(path))
+                .header(CacheControlInterceptor.HEADER_REQUEST_TYPE, String.valueOf(requestType))
+                .build();
+        try (Response response = mClient.newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+
+    @Test
+    public void cachesCatalogueWithFallbackMaxAge() throws IOException {
+        mServer.enqueue(new MockResponse().setBody(BODY_OK));
+
+        assertEquals(BODY_OK, get("/ent/v1/gifts", Request.GIFT_LIST));
+        assertEquals(BODY_OK, get("/ent/v1/gifts", Request.GIFT_LIST));
+        assertEquals(BODY_OK, get("/ent/v1/gifts", Request.GIFT_LIST));
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(3, mClient.cache().requestCount());
+        assertEquals(2, mClient.cache().hitCount());
+    }
+
+    @Test
+    public void keepsCacheControlOfServer() throws IOException {
+        mServer.enqueue(new MockResponse().setBody(BODY_OK).setHeader("Cache-Control", "no-store"));
+        mServer.enqueue(new MockResponse().setBody(BODY_OK).setHeader("Cache-Control", "no-store"));
+
+        get("/ent/v1/musics", Request.MUSIC_LIST);
+        get("/ent/v1/musics", Request.MUSIC_LIST);
+
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(0, mClient.cache().hitCount());
+    }
+
+    @Test
+    public void doesNotCacheErrorsAndOtherRequests() throws IOException {
+        mServer.enqueue(new MockResponse().setBody(BODY_ERROR));
+        mServer.enqueue(new MockResponse().setBody(BODY_OK));
+        mServer.enqueue(new MockResponse().setBody(BODY_OK));
+        mServer.enqueue(new MockResponse().setBody(BODY_OK));
+
+        assertEquals(BODY_ERROR, get("/ent/v1/gifts", Request.GIFT_LIST));
+        assertEquals(BODY_OK, get("/ent/v1/gifts", Request.GIFT_LIST));
+        get("/ent/v1/rooms", Request.ROOM_LIST);
+        get("/ent/v1/rooms", Request.ROOM_LIST);
+
+        assertEquals(4, mServer.getRequestCount());
+        assertEquals(0, mClient.cache().hitCount());
+        assertEquals(1, mClient.cache().writeSuccessCount());
+    }
+
+    @Test
+    public void reusesConnection() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setBody(BODY_OK));
+            get("/ent/v1/rooms", Request.ROOM_LIST);
+        }
+
+        assertEquals(0, mServer.takeRequest().getSequenceNumber());
+        assertEquals(1, mServer.takeRequest().getSequenceNumber());
+        assertEquals(2, mServer.takeRequest().getSequenceNumber());
+        assertEquals(1, mClient.connectionPool().connectionCount());
+    }
+}
@@ -0,0 +1,64 @@
+package io.agora.vlive.protocol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of cancelling the requests of a screen.
+ */
+public class RequestGroupTest {
+    private static class FakeHandle implements RequestHandle {
+        boolean done;
+        int cancelled;
+
+        @Override
+        public long getId() {
+            return 0;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled++;
+            done = true;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+    }
+
+    @Test
+    public void cancelsAllRequestsOnce() {
+        RequestGroup group = new RequestGroup();
+        FakeHandle first = new FakeHandle();
+        FakeHandle second = new FakeHandle();
+        group.add(first);
+        group.add(second);
+
+        group.cancelAll();
+        group.cancelAll();
+        assertEquals(1, first.cancelled);
+        assertEquals(1, second.cancelled);
+        assertEquals(0, group.size());
+    }
+
+    @Test
+    public void removesRequestsDone() {
+        RequestGroup group = new RequestGroup();
+        FakeHandle done = new FakeHandle();
+        done.done = true;
+        FakeHandle first = new FakeHandle();
+        group.add(first);
+        group.add(done);
+        assertEquals(1, group.size());
+
+        first.done = true;
+        group.add(new FakeHandle());
+        assertEquals(1, group.size());
+
+        group.cancelAll();
+        assertEquals(0, first.cancelled);
+    }
+}
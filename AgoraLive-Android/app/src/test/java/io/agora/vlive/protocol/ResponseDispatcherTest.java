@@ -0,0 +1,249 @@
+package io.agora.vlive.protocol;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.vlive.protocol.model.request.Request;
+import io.agora.vlive.protocol.model.response.AppVersionResponse;
+import io.agora.vlive.protocol.model.response.AudienceListResponse;
+import io.agora.vlive.protocol.model.response.BooleanResponse;
+import io.agora.vlive.protocol.model.response.CreateRoomResponse;
+import io.agora.vlive.protocol.model.response.CreateUserResponse;
+import io.agora.vlive.protocol.model.response.EditUserResponse;
+import io.agora.vlive.protocol.model.response.EnterRoomResponse;
+import io.agora.vlive.protocol.model.response.GiftListResponse;
+import io.agora.vlive.protocol.model.response.GiftRankResponse;
+import io.agora.vlive.protocol.model.response.LeaveRoomResponse;
+import io.agora.vlive.protocol.model.response.LoginResponse;
+import io.agora.vlive.protocol.model.response.ModifyUserStateResponse;
+import io.agora.vlive.protocol.model.response.MusicListResponse;
+import io.agora.vlive.protocol.model.response.OssPolicyResponse;
+import io.agora.vlive.protocol.model.response.ProductListResponse;
+import io.agora.vlive.protocol.model.response.RefreshTokenResponse;
+import io.agora.vlive.protocol.model.response.RoomListResponse;
+import io.agora.vlive.protocol.model.response.SeatStateResponse;
+import io.agora.vlive.protocol.model.response.SendGiftResponse;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of dispatching server responses.
+ */
+public class ResponseDispatcherTest {
+    private static class RecordingListener implements ClientProxyListener {
+        final List<Object> responses = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        @Override
+        public void onAppVersionResponse(AppVersionResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onRefreshTokenResponse(RefreshTokenResponse refreshTokenResponse) {
+            responses.add(refreshTokenResponse);
+        }
+
+        @Override
+        public void onOssPolicyResponse(OssPolicyResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onMusicLisResponse(MusicListResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onGiftListResponse(GiftListResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onRoomListResponse(RoomListResponse response, String nextId) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onCreateUserResponse(CreateUserResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onEditUserResponse(EditUserResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onLoginResponse(LoginResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onCreateRoomResponse(CreateRoomResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onEnterRoomResponse(EnterRoomResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onLeaveRoomResponse(LeaveRoomResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onAudienceListResponse(AudienceListResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onRequestSeatStateResponse(SeatStateResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onModifyUserStateResponse(ModifyUserStateResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onSendGiftResponse(SendGiftResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onGiftRankResponse(GiftRankResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onGetProductListResponse(ProductListResponse response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onProductStateChangedResponse(String productId, int state, boolean success) {
+            responses.add(productId + " " + state + " " + success);
+        }
+
+        @Override
+        public void onProductPurchasedResponse(boolean success) {
+            responses.add(success);
+        }
+
+        @Override
+        public void onSeatInteractionResponse(long processId, String userId, int seatNo, int type) {
+            responses.add(processId);
+        }
+
+        @Override
+        public void onResponseError(int requestType, int error, String message) {
+            errors.add(requestType + " " + error + " " + message);
+        }
+    }
+
+    private final List<Runnable> mTasks = new ArrayList<>();
+    private ResponseDispatcher mDispatcher;
+    private RecordingListener mFirst;
+    private RecordingListener mSecond;
+
+    @Before
+    public void setup() {
+        mDispatcher = new ResponseDispatcher(mTasks::add);
+        mDispatcher.route(Request.APP_VERSION, ClientProxyListener::onAppVersionResponse);
+        mDispatcher.route(Request.PK_BEHAVIOR, null);
+        mFirst = new RecordingListener();
+        mSecond = new RecordingListener();
+        mDispatcher.addListener(mFirst);
+        mDispatcher.addListener(mSecond);
+        mDispatcher.addListener(mFirst);
+    }
+
+    private void runTasks() {
+        for (Runnable task : mTasks) task.run();
+        mTasks.clear();
+    }
+
+    @Test
+    public void routesResponseToAllListenersInExecutor() {
+        AppVersionResponse response = new AppVersionResponse();
+        mDispatcher.<AppVersionResponse>callback(Request.APP_VERSION)
+                .onResponse(null, Response.success(response));
+        assertTrue(mFirst.responses.isEmpty());
+
+        runTasks();
+        assertEquals(1, mFirst.responses.size());
+        assertSame(response, mFirst.responses.get(0));
+        assertSame(response, mSecond.responses.get(0));
+    }
+
+    @Test
+    public void readsErrorBodyOnce() {
+        mDispatcher.<AppVersionResponse>callback(Request.APP_VERSION)
+                .onResponse(null, Response.error(500, ResponseBody.create("server down", null)));
+        runTasks();
+        assertEquals(Request.APP_VERSION + " " + ResponseDispatcher.ERROR_NULL + " server down",
+                mFirst.errors.get(0));
+        assertEquals(mFirst.errors, mSecond.errors);
+    }
+
+    @Test
+    public void reportsServerAndConnectionErrors() {
+        AppVersionResponse response = new AppVersionResponse();
+        response.code = 3;
+        response.msg = "expired";
+        mDispatcher.<AppVersionResponse>callback(Request.APP_VERSION)
+                .onResponse(null, Response.success(response));
+        mDispatcher.<AppVersionResponse>callback(Request.APP_VERSION)
+                .onFailure(null, new IOException("timeout"));
+        runTasks();
+        assertEquals(Request.APP_VERSION + " 3 expired", mFirst.errors.get(0));
+        assertEquals(Request.APP_VERSION + " " + ResponseDispatcher.ERROR_CONNECTION + " timeout",
+                mFirst.errors.get(1));
+        assertTrue(mFirst.responses.isEmpty());
+    }
+
+    @Test
+    public void reportsOnlyErrorsWithoutHandler() {
+        BooleanResponse response = new BooleanResponse();
+        response.data = true;
+        mDispatcher.<BooleanResponse>callback(Request.PK_BEHAVIOR)
+                .onResponse(null, Response.success(response));
+        runTasks();
+        assertTrue(mFirst.responses.isEmpty());
+        assertTrue(mFirst.errors.isEmpty());
+
+        response.code = 1;
+        mDispatcher.<BooleanResponse>callback(Request.PK_BEHAVIOR)
+                .onResponse(null, Response.success(response));
+        runTasks();
+        assertEquals(1, mFirst.errors.size());
+    }
+
+    @Test
+    public void callsHandlerOfOneRequest() {
+        BooleanResponse response = new BooleanResponse();
+        response.data = true;
+        mDispatcher.callback(Request.PRODUCT_MANAGE, (ClientProxyListener listener, BooleanResponse r) ->
+                listener.onProductStateChangedResponse("p", 1, r.data))
+                .onResponse(null, Response.success(response));
+        mDispatcher.removeListener(mSecond);
+        runTasks();
+        assertEquals("p 1 true", mFirst.responses.get(0));
+        assertTrue(mSecond.responses.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRequestNotRouted() {
+        mDispatcher.callback(Request.ROOM_LIST);
+    }
+}
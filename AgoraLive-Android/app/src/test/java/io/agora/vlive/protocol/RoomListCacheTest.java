@@ -0,0 +1,104 @@
+package io.agora.vlive.protocol;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.vlive.protocol.model.model.RoomInfo;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of merging room list pages and
+ * keeping the last known lists.
+ */
+public class RoomListCacheTest {
+    private static final int PAGE_SIZE = 3;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static List<RoomInfo> rooms(String... ids) {
+        List<RoomInfo> list = new ArrayList<>();
+        for (String id : ids) {
+            RoomInfo info = new RoomInfo();
+            info.roomId = id;
+            info.roomName = "room " + id;
+            list.add(info);
+        }
+        return list;
+    }
+
+    private static String ids(List<RoomInfo> list) {
+        StringBuilder builder = new StringBuilder();
+        for (RoomInfo info : list) builder.append(info.roomId);
+        return builder.toString();
+    }
+
+    @Test
+    public void appendsPageAfterAnchor() {
+        List<RoomInfo> merged = RoomListCache.merge(rooms("a", "b", "c"), "c", rooms("d", "e"), PAGE_SIZE);
+        assertEquals("abcde", ids(merged));
+
+        // The page replaces the rooms after the anchor,
+        // and rooms moved into it are not repeated
+        merged = RoomListCache.merge(rooms("a", "b", "c", "x"), "b", rooms("c", "d"), PAGE_SIZE);
+        assertEquals("abcd", ids(merged));
+    }
+
+    @Test
+    public void keepsLaterPagesWhenFirstPageRefreshed() {
+        List<RoomInfo> list = rooms("a", "b", "c", "d", "e", "f");
+        List<RoomInfo> merged = RoomListCache.merge(list, null, rooms("b", "c", "d"), PAGE_SIZE);
+        assertEquals("bcdef", ids(merged));
+
+        merged = RoomListCache.merge(list, "", rooms("g", "a", "b"), PAGE_SIZE);
+        assertEquals("gabdef", ids(merged));
+    }
+
+    @Test
+    public void dropsLaterPagesWhenFirstPageIsWholeList() {
+        List<RoomInfo> merged = RoomListCache.merge(rooms("a", "b", "c", "d", "e"),
+                null, rooms("a", "e"), PAGE_SIZE);
+        assertEquals("ae", ids(merged));
+    }
+
+    @Test
+    public void addsNewRoomsOfPageWithUnknownAnchor() {
+        List<RoomInfo> merged = RoomListCache.merge(rooms("a", "b"), "z", rooms("b", "c"), PAGE_SIZE);
+        assertEquals("abc", ids(merged));
+    }
+
+    @Test
+    public void keepsListsPerTypeAndPkState() {
+        RoomListCache cache = new RoomListCache(null, Runnable::run);
+        cache.merge(1, null, null, rooms("a", "b"), PAGE_SIZE);
+        cache.merge(3, 0, null, rooms("c"), PAGE_SIZE);
+        cache.merge(3, 1, null, null, PAGE_SIZE);
+
+        assertEquals("ab", ids(cache.get(1, null)));
+        assertEquals("c", ids(cache.get(3, 0)));
+        assertEquals("", ids(cache.get(3, 1)));
+        assertEquals("", ids(cache.get(2, null)));
+
+        // Copies are returned
+        cache.get(1, null).clear();
+        assertEquals("ab", ids(cache.get(1, null)));
+    }
+
+    @Test
+    public void readsSnapshotOfLastList() throws IOException {
+        File dir = mFolder.newFolder("rooms");
+        new RoomListCache(dir, Runnable::run).merge(1, null, null, rooms("a", "b"), PAGE_SIZE);
+
+        List<RoomInfo> list = new RoomListCache(dir, Runnable::run).get(1, null);
+        assertEquals("ab", ids(list));
+        assertEquals("room a", list.get(0).roomName);
+        assertEquals("", ids(new RoomListCache(dir, Runnable::run).get(2, null)));
+    }
+}
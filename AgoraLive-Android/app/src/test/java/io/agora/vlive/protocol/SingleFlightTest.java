@@ -0,0 +1,176 @@
+package io.agora.vlive.protocol;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.vlive.protocol.model.request.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of collapsing identical requests in flight.
+ */
+public class SingleFlightTest {
+    /**
+     * A call that completes when the test says so
+     */
+    private static class FakeCall implements Call<String> {
+        Callback<String> callback;
+        boolean canceled;
+
+        void respond(String body) {
+            callback.onResponse(this, Response.success(body));
+        }
+
+        void fail(IOException e) {
+            callback.onFailure(this, e);
+        }
+
+        @Override
+        public Response<String> execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(Callback<String> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return callback != null;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<String> clone() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public okhttp3.Request request() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final List<FakeCall> mCalls = new ArrayList<>();
+    private final List<Object> mDelivered = new ArrayList<>();
+    private SingleFlight mSingleFlight;
+
+    private final Callback<String> mDelegate = new Callback<String>() {
+        @Override
+        public void onResponse(Call<String> call, Response<String> response) {
+            mDelivered.add(response.body());
+        }
+
+        @Override
+        public void onFailure(Call<String> call, Throwable t) {
+            mDelivered.add(t);
+        }
+    };
+
+    @Before
+    public void setup() {
+        mSingleFlight = new SingleFlight();
+    }
+
+    private RequestHandle enqueue(long id, Object key) {
+        return mSingleFlight.enqueue(id, key, () -> {
+            FakeCall call = new FakeCall();
+            mCalls.add(call);
+            return call;
+        }, mDelegate);
+    }
+
+    @Test
+    public void collapsesIdenticalRequests() {
+        RequestHandle first = enqueue(1, SingleFlight.key(Request.ROOM_LIST, "token", null, 10, 1, null));
+        RequestHandle second = enqueue(2, SingleFlight.key(Request.ROOM_LIST, "token", null, 10, 1, null));
+
+        assertEquals(1, mCalls.size());
+        assertEquals(1, mSingleFlight.getSentCount());
+        assertEquals(1, mSingleFlight.getCollapsedCount());
+        assertEquals(2, second.getId());
+
+        mCalls.get(0).respond("rooms");
+        assertEquals(1, mDelivered.size());
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    public void sendsRequestsWithOtherParameters() {
+        enqueue(1, SingleFlight.key(Request.ROOM_LIST, "token", null, 10, 1, null));
+        enqueue(2, SingleFlight.key(Request.ROOM_LIST, "token", "next", 10, 1, null));
+        enqueue(3, SingleFlight.key(Request.ROOM_LIST, "token", null, 10, 2, null));
+        enqueue(4, SingleFlight.key(Request.AUDIENCE_LIST, "token", null, 10, 1, null));
+
+        assertEquals(4, mSingleFlight.getSentCount());
+        assertEquals(0, mSingleFlight.getCollapsedCount());
+    }
+
+    @Test
+    public void sendsAgainAfterResponseOrFailure() {
+        Object key = SingleFlight.key(Request.SEAT_STATE, "token", "room");
+        IOException error = new IOException("timeout");
+        enqueue(1, key);
+        mCalls.get(0).fail(error);
+        enqueue(2, key);
+        mCalls.get(1).respond("seats");
+
+        assertEquals(2, mSingleFlight.getSentCount());
+        assertSame(error, mDelivered.get(0));
+        assertEquals("seats", mDelivered.get(1));
+    }
+
+    @Test
+    public void cancelsCallWhenAllCallersCancel() {
+        Object key = SingleFlight.key(Request.GIFT_LIST);
+        RequestHandle first = enqueue(1, key);
+        RequestHandle second = enqueue(2, key);
+
+        first.cancel();
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertFalse(mCalls.get(0).isCanceled());
+
+        second.cancel();
+        second.cancel();
+        assertTrue(mCalls.get(0).isCanceled());
+        assertEquals(1, mSingleFlight.getCancelledCount());
+
+        // A cancelled call is not waited for,
+        // and its failure is not delivered
+        enqueue(3, key);
+        assertEquals(2, mCalls.size());
+        mCalls.get(0).fail(new IOException("Canceled"));
+        assertTrue(mDelivered.isEmpty());
+        assertFalse(mCalls.get(1).isCanceled());
+    }
+
+    @Test
+    public void doesNotCancelCallDone() {
+        RequestHandle handle = enqueue(1, SingleFlight.key(Request.GIFT_RANK, "room"));
+        mCalls.get(0).respond("rank");
+        handle.cancel();
+
+        assertFalse(mCalls.get(0).isCanceled());
+        assertEquals(0, mSingleFlight.getCancelledCount());
+    }
+}
@@ -0,0 +1,66 @@
+package io.agora.vlive.ui.components;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of batching and rate limiting live room messages.
+ */
+public class LiveRoomMessageBufferTest {
+    @Test
+    public void schedulesOncePerBatch() {
+        LiveRoomMessageBuffer<String> buffer = new LiveRoomMessageBuffer<>(10);
+        assertTrue(buffer.offer("a", true));
+        assertFalse(buffer.offer("b", true));
+
+        List<String> out = new ArrayList<>();
+        assertEquals(0, buffer.drain(0, out));
+        assertEquals(Arrays.asList("a", "b"), out);
+        assertTrue(buffer.offer("c", true));
+    }
+
+    @Test
+    public void summarizesDroppedMessagesAfterOneSecond() {
+        LiveRoomMessageBuffer<String> buffer = new LiveRoomMessageBuffer<>(2);
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < 5; i++) buffer.offer("m" + i, true);
+        buffer.offer("local", false);
+
+        assertEquals(0, buffer.drain(0, out));
+        assertEquals(Arrays.asList("m0", "m1", "local"), out);
+        assertEquals(1000, buffer.getSummaryDelay(0));
+        assertEquals(400, buffer.getSummaryDelay(600));
+
+        out.clear();
+        buffer.offer("m5", true);
+        assertEquals(0, buffer.drain(500, out));
+        assertTrue(out.isEmpty());
+
+        assertEquals(4, buffer.drain(1000, out));
+        assertEquals(-1, buffer.getSummaryDelay(1000));
+    }
+
+    @Test
+    public void admitsMessagesInNextSecond() {
+        LiveRoomMessageBuffer<String> buffer = new LiveRoomMessageBuffer<>(1);
+        List<String> out = new ArrayList<>();
+        buffer.offer("a", true);
+        buffer.offer("b", true);
+        buffer.drain(0, out);
+
+        out.clear();
+        buffer.offer("c", true);
+        assertEquals(1, buffer.drain(1500, out));
+        assertEquals(Arrays.asList("c"), out);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveLimit() {
+        new LiveRoomMessageBuffer<String>(0);
+    }
+}
@@ -0,0 +1,51 @@
+package io.agora.vlive.ui.components;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the circular live room message store.
+ */
+public class LiveRoomMessageStoreTest {
+    @Test
+    public void keepsMessagesInArrivalOrder() {
+        LiveRoomMessageStore<Integer> store = new LiveRoomMessageStore<>(3);
+        assertFalse(store.add(0));
+        assertFalse(store.add(1));
+        assertEquals(2, store.size());
+        assertEquals(0, (int) store.get(0));
+        assertEquals(1, (int) store.get(1));
+    }
+
+    @Test
+    public void evictsOldestMessage() {
+        LiveRoomMessageStore<Integer> store = new LiveRoomMessageStore<>(3);
+        for (int i = 0; i < 3; i++) store.add(i);
+        for (int i = 3; i < 8; i++) {
+            assertTrue(store.add(i));
+            assertEquals(3, store.size());
+            assertEquals(i - 2, (int) store.get(0));
+            assertEquals(i, (int) store.get(2));
+        }
+    }
+
+    @Test
+    public void clearsMessages() {
+        LiveRoomMessageStore<Integer> store = new LiveRoomMessageStore<>(2);
+        store.add(0);
+        store.add(1);
+        store.add(2);
+        store.clear();
+        assertEquals(0, store.size());
+        assertFalse(store.add(3));
+        assertEquals(3, (int) store.get(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsPositionOutOfRange() {
+        LiveRoomMessageStore<Integer> store = new LiveRoomMessageStore<>(2);
+        store.add(0);
+        store.get(1);
+    }
+}
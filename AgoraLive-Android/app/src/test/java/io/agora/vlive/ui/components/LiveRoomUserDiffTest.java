@@ -0,0 +1,37 @@
+package io.agora.vlive.ui.components;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of comparing gift rank lists.
+ */
+public class LiveRoomUserDiffTest {
+    @Test
+    public void findsNoChangeOfSameUsers() {
+        assertTrue(LiveRoomUserDiff.changedPositions(
+                Arrays.asList("a", "b"), Arrays.asList("a", "b"), 4).isEmpty());
+    }
+
+    @Test
+    public void findsSwappedAndAddedPositions() {
+        assertEquals(Arrays.asList(1, 2, 3), LiveRoomUserDiff.changedPositions(
+                Arrays.asList("a", "b", "c"), Arrays.asList("a", "c", "b", "d"), 4));
+    }
+
+    @Test
+    public void findsRemovedPositions() {
+        assertEquals(Arrays.asList(1, 2), LiveRoomUserDiff.changedPositions(
+                Arrays.asList("a", "b", "c"), Collections.singletonList("a"), 4));
+    }
+
+    @Test
+    public void ignoresPositionsBeyondMax() {
+        assertTrue(LiveRoomUserDiff.changedPositions(
+                Arrays.asList("a", "b", "c"), Arrays.asList("a", "b", "d", "e"), 2).isEmpty());
+    }
+}
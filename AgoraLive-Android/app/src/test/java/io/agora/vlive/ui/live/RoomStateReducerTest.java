@@ -0,0 +1,162 @@
+package io.agora.vlive.ui.live;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.agora.vlive.agora.rtm.model.OwnerStateMessage;
+import io.agora.vlive.agora.rtm.model.PKStateMessage;
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+import io.agora.vlive.protocol.model.model.SeatInfo;
+import io.agora.vlive.protocol.model.types.PKConstant;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of coalescing room state messages.
+ */
+public class RoomStateReducerTest {
+    private static SeatStateMessage.SeatStateMessageDataItem seat(int no, int state, String userId) {
+        SeatStateMessage.SeatStateMessageDataItem item = new SeatStateMessage.SeatStateMessageDataItem();
+        item.seat = new SeatStateMessage.SeatState();
+        item.seat.no = no;
+        item.seat.state = state;
+        item.user = new SeatStateMessage.UserState();
+        item.user.userId = userId;
+        item.user.userName = userId;
+        item.user.enableAudio = 1;
+        item.user.enableVideo = 1;
+        return item;
+    }
+
+    private static List<SeatStateMessage.SeatStateMessageDataItem> seats(String... users) {
+        List<SeatStateMessage.SeatStateMessageDataItem> list = new ArrayList<>();
+        for (int i = 0; i < users.length; i++) {
+            list.add(users[i] == null
+                    ? seat(i + 1, SeatInfo.OPEN, "")
+                    : seat(i + 1, SeatInfo.TAKEN, users[i]));
+        }
+        return list;
+    }
+
+    private static PKStateMessage.PKStateMessageBody pk(int event, int localRank) {
+        PKStateMessage.PKStateMessageBody body = new PKStateMessage.PKStateMessageBody();
+        body.event = event;
+        body.localRank = localRank;
+        return body;
+    }
+
+    @Test
+    public void emitsOnlyChangedSeats() {
+        RoomStateReducer reducer = new RoomStateReducer(3);
+        assertTrue(reducer.applySeats(seats("a", null, null)));
+        RoomStateReducer.Changes changes = reducer.flush();
+        assertEquals(1, changes.seats.size());
+        assertEquals(0, changes.seats.get(0).position);
+
+        reducer.applySeats(seats("a", null, "c"));
+        changes = reducer.flush();
+        assertEquals(1, changes.seats.size());
+        assertEquals(2, changes.seats.get(0).position);
+        assertFalse(reducer.hasPending());
+    }
+
+    @Test
+    public void collapsesBurstIntoNetChange() {
+        RoomStateReducer reducer = new RoomStateReducer(3);
+        reducer.applySeats(seats("a", "b", null));
+        reducer.flush();
+
+        // b leaves and takes the seat again, a mutes audio
+        assertTrue(reducer.applySeats(seats("a", null, null)));
+        assertFalse(reducer.applySeats(seats("a", "b", null)));
+        List<SeatStateMessage.SeatStateMessageDataItem> last = seats("a", "b", null);
+        last.get(0).user.enableAudio = 0;
+        assertFalse(reducer.applySeats(last));
+        assertEquals(4, reducer.getVersion());
+
+        RoomStateReducer.Changes changes = reducer.flush();
+        assertEquals(4, changes.version);
+        assertEquals(1, changes.seats.size());
+        assertEquals(0, changes.seats.get(0).position);
+        assertEquals(0, changes.seats.get(0).item.user.enableAudio);
+    }
+
+    @Test
+    public void emptiesSeatTakenByAnotherUser() {
+        RoomStateReducer reducer = new RoomStateReducer(1);
+        reducer.applySeats(seats("a"));
+        reducer.flush();
+
+        reducer.applySeats(seats((String) null));
+        reducer.applySeats(seats("b"));
+        RoomStateReducer.Changes changes = reducer.flush();
+        assertEquals(2, changes.seats.size());
+        assertEquals(SeatInfo.OPEN, changes.seats.get(0).item.seat.state);
+        assertEquals("b", changes.seats.get(1).item.user.userId);
+    }
+
+    @Test
+    public void appliesSnapshotRequestedAfterLastSeatMessage() {
+        RoomStateReducer reducer = new RoomStateReducer(3);
+        reducer.applySeats(seats("a", null, null));
+        long requested = reducer.getVersion();
+
+        assertTrue(reducer.applySeatSnapshot(seats("a", "b", null), requested));
+        RoomStateReducer.Changes changes = reducer.flush();
+        assertEquals(2, changes.seats.size());
+        assertEquals("b", reducer.getSeat(1).user.userId);
+    }
+
+    @Test
+    public void dropsSnapshotOlderThanSeatMessages() {
+        RoomStateReducer reducer = new RoomStateReducer(3);
+        long requested = reducer.getVersion();
+
+        // b takes a seat after the room is requested,
+        // and the response is taken before that
+        reducer.applySeats(seats(null, "b", null));
+        assertFalse(reducer.applySeatSnapshot(seats("a", null, null), requested));
+
+        reducer.flush();
+        assertNull(reducer.getSeat(0));
+        assertEquals("b", reducer.getSeat(1).user.userId);
+    }
+
+    @Test
+    public void keepsLatestOwnerStateIfChanged() {
+        RoomStateReducer reducer = new RoomStateReducer(0);
+        OwnerStateMessage.OwnerState owner = new OwnerStateMessage.OwnerState();
+        owner.userId = "o";
+        owner.enableAudio = 1;
+        reducer.applyOwner(owner);
+        assertSame(owner, reducer.flush().owner);
+
+        OwnerStateMessage.OwnerState muted = new OwnerStateMessage.OwnerState();
+        muted.userId = "o";
+        reducer.applyOwner(muted);
+        OwnerStateMessage.OwnerState unmuted = new OwnerStateMessage.OwnerState();
+        unmuted.userId = "o";
+        unmuted.enableAudio = 1;
+        reducer.applyOwner(unmuted);
+        assertTrue(reducer.flush().isEmpty());
+    }
+
+    @Test
+    public void mergesConsecutiveRankChanges() {
+        RoomStateReducer reducer = new RoomStateReducer(0);
+        reducer.applyPK(pk(PKConstant.PK_EVENT_START, 0));
+        reducer.applyPK(pk(PKConstant.PK_EVENT_RANK_CHANGED, 1));
+        reducer.applyPK(pk(PKConstant.PK_EVENT_RANK_CHANGED, 2));
+        reducer.applyPK(pk(PKConstant.PK_EVENT_END, 2));
+
+        List<PKStateMessage.PKStateMessageBody> events = reducer.flush().pkEvents;
+        assertEquals(3, events.size());
+        assertEquals(Arrays.asList(PKConstant.PK_EVENT_START,
+                PKConstant.PK_EVENT_RANK_CHANGED, PKConstant.PK_EVENT_END),
+                Arrays.asList(events.get(0).event, events.get(1).event, events.get(2).event));
+        assertEquals(2, events.get(1).localRank);
+    }
+}
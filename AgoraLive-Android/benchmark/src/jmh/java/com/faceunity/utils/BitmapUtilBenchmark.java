@@ -0,0 +1,53 @@
+package com.faceunity.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * The per-pixel loops of BitmapUtil: ARGB to NV21 encoding,
+ * and the conversion of glReadPixels output to bitmap pixels.
+ */
+@State(Scope.Thread)
+public class BitmapUtilBenchmark {
+    @Param({"640x480", "1280x720"})
+    public String resolution;
+
+    private int mWidth;
+    private int mHeight;
+    private int[] mPixels;
+    private int[] mBitmapPixels;
+    private byte[] mNv21;
+
+    @Setup
+    public void setup() {
+        String[] size = resolution.split("x");
+        mWidth = Integer.parseInt(size[0]);
+        mHeight = Integer.parseInt(size[1]);
+
+        mPixels = new int[mWidth * mHeight];
+        Random random = new Random(mPixels.length);
+        for (int i = 0; i < mPixels.length; i++) {
+            mPixels[i] = random.nextInt();
+        }
+
+        mBitmapPixels = new int[mPixels.length];
+        mNv21 = new byte[mWidth * mHeight * 3 / 2];
+    }
+
+    @Benchmark
+    public byte[] encodeYUV420SP() {
+        BitmapUtil.encodeYUV420SP(mNv21, mPixels, mWidth, mHeight);
+        return mNv21;
+    }
+
+    @Benchmark
+    public int[] glPixelsToBitmapPixels() {
+        BitmapUtil.glPixelsToBitmapPixels(mPixels, mBitmapPixels, mWidth, mHeight);
+        return mBitmapPixels;
+    }
+}
@@ -0,0 +1,35 @@
+package io.agora.capture.video.camera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Choosing the preview frame rate range from the ranges
+ * typically supported by a Camera2 device, scaled by 1000.
+ */
+@State(Scope.Thread)
+public class FrameRateRangeBenchmark {
+    private static final int[][] RANGES = {
+            {15, 15}, {7, 30}, {15, 30}, {24, 24},
+            {30, 30}, {7, 60}, {15, 60}, {60, 60}
+    };
+
+    private final List<VideoCapture.FrameRateRange> mRanges = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int[] range : RANGES) {
+            mRanges.add(new VideoCapture.FrameRateRange(range[0] * 1000, range[1] * 1000));
+        }
+    }
+
+    @Benchmark
+    public VideoCapture.FrameRateRange closestFrameRateRange() {
+        return VideoCapture.getClosestFrameRateRange(mRanges, 24 * 1000);
+    }
+}
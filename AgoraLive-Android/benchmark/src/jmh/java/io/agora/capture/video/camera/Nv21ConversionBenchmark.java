@@ -0,0 +1,169 @@
+package io.agora.capture.video.camera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * YUV_420_888 to NV21 conversion of Camera2 images, for the
+ * chroma layouts reported by devices. The planes are direct
+ * buffers like the ones of android.media.Image.
+ * The legacy case is the conversion used before Nv21Converter,
+ * kept here to compare against.
+ */
+@State(Scope.Thread)
+public class Nv21ConversionBenchmark {
+    private static final int ROW_PADDING = 64;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"NV21", "NV12", "I420", "PADDED"})
+    public String layout;
+
+    private int mWidth;
+    private int mHeight;
+    private ByteBuffer mY;
+    private ByteBuffer mU;
+    private ByteBuffer mV;
+    private int mYRowStride;
+    private int mUVRowStride;
+    private int mUVPixelStride;
+
+    private final Nv21Converter mConverter = new Nv21Converter();
+    private ByteBuffer mOutput;
+
+    private byte[] mLegacyBuffer;
+    private int mLegacyYSize;
+    private int mLegacyUVSize;
+
+    @Setup
+    public void setup() {
+        String[] size = resolution.split("x");
+        mWidth = Integer.parseInt(size[0]);
+        mHeight = Integer.parseInt(size[1]);
+        mOutput = ByteBuffer.wrap(new byte[Nv21Converter.getNv21Size(mWidth, mHeight)]);
+
+        boolean padded = "PADDED".equals(layout);
+        mYRowStride = padded ? mWidth + ROW_PADDING : mWidth;
+        mY = plane(mYRowStride * (mHeight - 1) + mWidth);
+
+        int rows = mHeight / 2;
+        if ("I420".equals(layout)) {
+            mUVRowStride = mWidth / 2;
+            mUVPixelStride = 1;
+            mU = plane(mUVRowStride * rows);
+            mV = plane(mUVRowStride * rows);
+        } else {
+            // Semi-planar, both planes are views of one
+            // interleaved buffer like the camera HAL gives.
+            mUVRowStride = padded ? mWidth + ROW_PADDING : mWidth;
+            mUVPixelStride = 2;
+            ByteBuffer chroma = plane(mUVRowStride * (rows - 1) + mWidth);
+            ByteBuffer first = slice(chroma, 0, chroma.capacity() - 1);
+            ByteBuffer second = slice(chroma, 1, chroma.capacity() - 1);
+            boolean vFirst = !"NV12".equals(layout);
+            mU = vFirst ? second : first;
+            mV = vFirst ? first : second;
+        }
+    }
+
+    private static ByteBuffer plane(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.put(data);
+        buffer.clear();
+        return buffer;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice();
+    }
+
+    @Benchmark
+    public ByteBuffer converter() {
+        mOutput.clear();
+        mConverter.convert(mWidth, mHeight, mY, mYRowStride,
+                mU, mV, mUVRowStride, mUVPixelStride, mOutput);
+        return mOutput;
+    }
+
+    @Benchmark
+    public byte[] legacy() {
+        return legacyYUV420888toNV21();
+    }
+
+    /**
+     * The conversion of VideoCaptureCamera2 before Nv21Converter,
+     * on the plane buffers instead of an Image, kept as it was.
+     * Note the NV21 shortcut is never taken since a byte is
+     * compared with 255, every layout is copied sample by sample.
+     */
+    private byte[] legacyYUV420888toNV21() {
+        int width = mWidth;
+        int height = mHeight;
+        int ySize = width * height;
+        int uvSize = width * height / 4;
+
+        if (ySize != mLegacyYSize || uvSize != mLegacyUVSize ||
+                mLegacyBuffer == null) {
+            mLegacyBuffer = new byte[ySize + uvSize * 2];
+            mLegacyYSize = ySize;
+            mLegacyUVSize = uvSize;
+        }
+
+        ByteBuffer yBuffer = mY.duplicate();
+        ByteBuffer uBuffer = mU.duplicate();
+        ByteBuffer vBuffer = mV.duplicate();
+
+        int rowStride = mYRowStride;
+        int pos = 0;
+
+        if (rowStride == width) {
+            yBuffer.get(mLegacyBuffer, 0, ySize);
+            pos += ySize;
+        } else {
+            int yBufferPos = width - rowStride;
+            for (; pos < ySize; pos += width) {
+                yBufferPos += rowStride - width;
+                yBuffer.position(yBufferPos);
+                yBuffer.get(mLegacyBuffer, pos, width);
+            }
+        }
+
+        rowStride = mUVRowStride;
+        int pixelStride = mUVPixelStride;
+
+        if (pixelStride == 2 && rowStride == width && uBuffer.get(0) == vBuffer.get(1)) {
+            byte savePixel = vBuffer.get(1);
+            vBuffer.put(1, (byte) 0);
+            if (uBuffer.get(0) == 0) {
+                vBuffer.put(1, (byte) 255);
+                if (uBuffer.get(0) == 255) {
+                    vBuffer.put(1, savePixel);
+                    vBuffer.get(mLegacyBuffer, ySize, uvSize);
+                    return mLegacyBuffer;
+                }
+            }
+            vBuffer.put(1, savePixel);
+        }
+
+        for (int row = 0; row < height / 2; row++) {
+            for (int col = 0; col < width / 2; col++) {
+                int vuPos = col * pixelStride + row * rowStride;
+                mLegacyBuffer[pos++] = vBuffer.get(vuPos);
+                mLegacyBuffer[pos++] = uBuffer.get(vuPos);
+            }
+        }
+
+        return mLegacyBuffer;
+    }
+}
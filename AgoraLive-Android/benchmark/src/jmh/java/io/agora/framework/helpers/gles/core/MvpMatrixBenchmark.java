@@ -0,0 +1,34 @@
+package io.agora.framework.helpers.gles.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The MVP matrix of an on-screen consumer, fitting a 720p
+ * camera frame into a portrait surface. The 720x1280 surface
+ * has the aspect ratio of the frame, and the matrix is reused.
+ */
+@State(Scope.Thread)
+public class MvpMatrixBenchmark {
+    @Param({"720x1280", "1080x2340"})
+    public String surface;
+
+    private float mSurfaceWidth;
+    private float mSurfaceHeight;
+
+    @Setup
+    public void setup() {
+        String[] size = surface.split("x");
+        mSurfaceWidth = Float.parseFloat(size[0]);
+        mSurfaceHeight = Float.parseFloat(size[1]);
+    }
+
+    @Benchmark
+    public float[] changeMVPMatrix() {
+        return GlUtil.changeMVPMatrix(GlUtil.IDENTITY_MATRIX,
+                mSurfaceWidth, mSurfaceHeight, 720, 1280);
+    }
+}
@@ -0,0 +1,122 @@
+package io.agora.vlive.agora.rtm;
+
+import com.google.gson.Gson;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+import io.agora.vlive.agora.rtm.model.GiftMessage;
+import io.agora.vlive.agora.rtm.model.GiftRankMessage;
+import io.agora.vlive.agora.rtm.model.NotificationMessage;
+import io.agora.vlive.agora.rtm.model.PKStateMessage;
+import io.agora.vlive.agora.rtm.model.RtmMessageCodec;
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+
+/**
+ * Parsing of the channel messages received during a live
+ * room. The legacy case parses the way RtmMessageManager
+ * did before RtmMessageCodec, kept here to compare against.
+ */
+@State(Scope.Thread)
+public class RtmMessageParseBenchmark {
+    private static final String CHAT = "{\"cmd\":1,\"data\":{" +
+            "\"fromUserId\":\"1001\",\"fromUserName\":\"audience-1001\"," +
+            "\"message\":\"Hello from the audience\"}}";
+
+    private static final String GIFT = "{\"cmd\":7,\"data\":{" +
+            "\"fromUserId\":\"1001\",\"fromUserName\":\"audience-1001\"," +
+            "\"toUserId\":\"2001\",\"toUserName\":\"host-2001\",\"giftId\":3}}";
+
+    private static final String GIFT_RANK = "{\"cmd\":3,\"data\":{\"total\":3,\"list\":[" +
+            "{\"userId\":\"1001\",\"userName\":\"audience-1001\",\"avatar\":\"1\"}," +
+            "{\"userId\":\"1002\",\"userName\":\"audience-1002\",\"avatar\":\"2\"}," +
+            "{\"userId\":\"1003\",\"userName\":\"audience-1003\",\"avatar\":\"3\"}]}}";
+
+    private static final String NOTIFICATION = "{\"cmd\":2,\"data\":{\"total\":128,\"list\":[" +
+            "{\"userId\":\"1004\",\"userName\":\"audience-1004\",\"role\":3,\"state\":1}]}}";
+
+    private static final String SEAT = "{\"cmd\":5,\"data\":[" +
+            seat(1, 1, "2002") + "," + seat(2, 0, "") + "," + seat(3, 0, "") + "," +
+            seat(4, 1, "2003") + "," + seat(5, 0, "") + "," + seat(6, 2, "") + "]}";
+
+    private static final String PK = "{\"cmd\":6,\"data\":{\"event\":1,\"state\":1," +
+            "\"startTime\":1600000000000,\"countDown\":180000,\"remoteRank\":12,\"localRank\":7," +
+            "\"result\":0,\"remoteRoom\":{\"roomId\":\"r2\",\"channelName\":\"c2\"," +
+            "\"owner\":{\"userId\":\"3001\",\"uid\":3001,\"userName\":\"host-3001\"," +
+            "\"enableVideo\":1,\"enableAudio\":1}},\"relayConfig\":{" +
+            "\"local\":{\"channelName\":\"c1\",\"token\":\"t1\",\"uid\":1}," +
+            "\"proxy\":{\"channelName\":\"c1\",\"token\":\"t2\",\"uid\":2}," +
+            "\"remote\":{\"channelName\":\"c2\",\"token\":\"t3\",\"uid\":3}}}}";
+
+    private static String seat(int no, int state, String userId) {
+        return "{\"seat\":{\"no\":" + no + ",\"state\":" + state + "}," +
+                "\"user\":{\"userId\":\"" + userId + "\",\"userName\":\"host-" + userId + "\"," +
+                "\"uid\":" + no + ",\"enableAudio\":1,\"enableVideo\":1}}";
+    }
+
+    @Param({"chat", "gift", "giftRank", "notification", "seat", "pk"})
+    public String message;
+
+    // The number of registered message listeners, the
+    // legacy parsing decodes the message for every listener.
+    @Param({"1", "3"})
+    public int listeners;
+
+    private String mJson;
+
+    @Setup
+    public void setup() {
+        switch (message) {
+            case "chat": mJson = CHAT; break;
+            case "gift": mJson = GIFT; break;
+            case "giftRank": mJson = GIFT_RANK; break;
+            case "notification": mJson = NOTIFICATION; break;
+            case "seat": mJson = SEAT; break;
+            default: mJson = PK; break;
+        }
+    }
+
+    @Benchmark
+    public void codec(Blackhole blackhole) {
+        int cmd = RtmMessageCodec.readCmd(mJson);
+        blackhole.consume(RtmMessageCodec.decodeChannelMessage(cmd, mJson));
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) throws JSONException {
+        String json = mJson;
+        Gson gson = new Gson();
+        JSONObject obj = new JSONObject(json);
+        int cmd = obj.getInt("cmd");
+
+        for (int i = 0; i < listeners; i++) {
+            switch (cmd) {
+                case 1:
+                    blackhole.consume(gson.fromJson(json, ChatMessage.class));
+                    break;
+                case 2:
+                    blackhole.consume(gson.fromJson(json, NotificationMessage.class));
+                    break;
+                case 3:
+                    blackhole.consume(gson.fromJson(json, GiftRankMessage.class));
+                    break;
+                case 5:
+                    blackhole.consume(gson.fromJson(json, SeatStateMessage.class));
+                    break;
+                case 6:
+                    blackhole.consume(gson.fromJson(json, PKStateMessage.class));
+                    break;
+                case 7:
+                    blackhole.consume(gson.fromJson(json, GiftMessage.class));
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.agora.vlive.agora.rtm.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Encoding and decoding of the frequent channel messages in
+ * json, as sent with rtm text messages, and in the compact
+ * format of RtmCompactCodec, as sent with rtm raw messages.
+ * The message sizes on the wire are printed in the setup.
+ */
+@State(Scope.Thread)
+public class RtmWireFormatBenchmark {
+    @Param({"chat", "gift", "giftRank"})
+    public String message;
+
+    private AbsRtmMessage mMessage;
+    private String mJson;
+    private byte[] mCompact;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (message) {
+            case "chat":
+                mMessage = new ChatMessage("1001", "audience-1001", "Hello from the audience");
+                break;
+            case "gift":
+                GiftMessage gift = new GiftMessage();
+                gift.cmd = RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT;
+                gift.data = new GiftMessage.GiftMessageData();
+                gift.data.fromUserId = "1001";
+                gift.data.fromUserName = "audience-1001";
+                gift.data.toUserId = "2001";
+                gift.data.toUserName = "host-2001";
+                gift.data.giftId = 3;
+                mMessage = gift;
+                break;
+            default:
+                GiftRankMessage rank = new GiftRankMessage();
+                rank.cmd = RtmMessageCodec.CHANNEL_MSG_TYPE_GIFT_RANK;
+                rank.data = new GiftRankMessage.GiftRank();
+                rank.data.total = 3;
+                rank.data.list = new ArrayList<>();
+                for (int i = 1; i <= 3; i++) {
+                    GiftRankMessage.GiftRankItem item = new GiftRankMessage.GiftRankItem();
+                    item.userId = "100" + i;
+                    item.userName = "audience-100" + i;
+                    item.avatar = String.valueOf(i);
+                    rank.data.list.add(item);
+                }
+                mMessage = rank;
+                break;
+        }
+
+        mJson = RtmMessageCodec.encode(mMessage);
+        mCompact = RtmCompactCodec.encode(mMessage);
+        System.out.println("\n" + message + ": json " +
+                mJson.getBytes(StandardCharsets.UTF_8).length + " bytes, compact " +
+                mCompact.length + " bytes");
+    }
+
+    @Benchmark
+    public String jsonEncode() {
+        return RtmMessageCodec.encode(mMessage);
+    }
+
+    @Benchmark
+    public byte[] compactEncode() {
+        return RtmCompactCodec.encode(mMessage);
+    }
+
+    @Benchmark
+    public AbsRtmMessage jsonDecode() {
+        return RtmMessageCodec.decodeChannelMessage(RtmMessageCodec.readCmd(mJson), mJson);
+    }
+
+    @Benchmark
+    public AbsRtmMessage compactDecode() {
+        return RtmCompactCodec.decode(mCompact);
+    }
+}
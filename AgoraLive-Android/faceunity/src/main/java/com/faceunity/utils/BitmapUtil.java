@@ -63,19 +63,7 @@ public class BitmapUtil {
             @Override
             public void run() {
                 final int bitmapSource[] = new int[texWidth * texHeight];
-                int offset1, offset2;
-                int[] data = intBuffer.array();
-                for (int i = 0; i < texHeight; i++) {
-                    offset1 = i * texWidth;
-                    offset2 = (texHeight - i - 1) * texWidth;
-                    for (int j = 0; j < texWidth; j++) {
-                        int texturePixel = data[offset1 + j];
-                        int blue = (texturePixel >> 16) & 0xff;
-                        int red = (texturePixel << 16) & 0x00ff0000;
-                        int pixel = (texturePixel & 0xff00ff00) | red | blue;
-                        bitmapSource[offset2 + j] = pixel;
-                    }
-                }
+                glPixelsToBitmapPixels(intBuffer.array(), bitmapSource, texWidth, texHeight);
                 final Bitmap shotCaptureBitmap = Bitmap.createBitmap(bitmapSource, texWidth, texHeight, Bitmap.Config.ARGB_8888).copy(Bitmap.Config.ARGB_8888, true);
                 if (listener != null) {
                     listener.onReadBitmapListener(shotCaptureBitmap);
@@ -89,6 +77,29 @@ public class BitmapUtil {
         GLES20.glDeleteFramebuffers(1, mFrameBuffers, 0);
     }
 
+    /**
+     * glReadPixels 读出的 RGBA 像素转为 Bitmap 的 ARGB 像素（上下翻转，交换 R 和 B）
+     *
+     * @param glPixels
+     * @param bitmapPixels
+     * @param width
+     * @param height
+     */
+    public static void glPixelsToBitmapPixels(int[] glPixels, int[] bitmapPixels, int width, int height) {
+        int offset1, offset2;
+        for (int i = 0; i < height; i++) {
+            offset1 = i * width;
+            offset2 = (height - i - 1) * width;
+            for (int j = 0; j < width; j++) {
+                int texturePixel = glPixels[offset1 + j];
+                int blue = (texturePixel >> 16) & 0xff;
+                int red = (texturePixel << 16) & 0x00ff0000;
+                int pixel = (texturePixel & 0xff00ff00) | red | blue;
+                bitmapPixels[offset2 + j] = pixel;
+            }
+        }
+    }
+
     /**
      * 加载本地图片
      *
@@ -5,6 +5,7 @@ import android.view.SurfaceView;
 import android.view.TextureView;
 
 import io.agora.framework.modules.channels.ChannelManager;
+import io.agora.framework.modules.channels.FrameTimingListener;
 import io.agora.framework.modules.consumers.IVideoConsumer;
 import io.agora.framework.modules.consumers.SurfaceViewConsumer;
 import io.agora.framework.modules.consumers.TextureViewConsumer;
@@ -82,8 +83,8 @@ public class CameraManager {
     /**
      * Set camera preview. The view must be set before
      * attached to the window.
-     * Currently only the latest preview set will display
-     * local videos
+     * Multiple previews can be set at the same time, all of
+     * them display the same local video.
      * If the TextureView is detached from the window,
      * it's previewing will be automatically stopped and it
      * is removed from the consumer list.
@@ -104,8 +105,8 @@ public class CameraManager {
     /**
      * Set camera preview. The view must be set before
      * attached to the window.
-     * Currently only the latest preview set will display
-     * local videos
+     * Multiple previews can be set at the same time, all of
+     * them display the same local video.
      * If the SurfaceView is detached from the window, it's
      * previewing will be automatically stopped and it
      * is removed from the consumer list.
@@ -127,6 +128,23 @@ public class CameraManager {
         }
     }
 
+    /**
+     * Periodically report how long each stage of the camera
+     * channel takes, like beautification, rotation and the
+     * on-screen or off-screen consumers.
+     * @param listener called in the camera channel thread,
+     *                 null to stop timing
+     * @param intervalMs report interval in milliseconds
+     * @param gpuTiming whether to measure GPU time by GL timer
+     *                  queries if the device supports
+     */
+    public void setFrameTimingListener(FrameTimingListener listener,
+                                       long intervalMs, boolean gpuTiming) {
+        if (mCameraChannel != null) {
+            mCameraChannel.setFrameTimingListener(listener, intervalMs, gpuTiming);
+        }
+    }
+
     public void setFacing(int facing) {
         if (mCameraChannel != null) {
             mCameraChannel.setFacing(facing);
@@ -120,6 +120,33 @@ public class CameraVideoChannel extends VideoChannel implements VideoCapture.OnV
         return mCapturedStarted;
     }
 
+    /**
+     * @return the number of camera frames dropped before being
+     * processed, because the channel could not keep up with
+     * the capture.
+     */
+    public long getDroppedFrameCount() {
+        return mVideoCapture != null ? mVideoCapture.getDroppedFrameCount() : 0;
+    }
+
+    /**
+     * @return how many times the camera had no buffer to write
+     * into because all of them were still held by the channel
+     * or the consumers.
+     */
+    public long getBufferStarvationCount() {
+        return mVideoCapture != null ? mVideoCapture.getBufferStarvationCount() : 0;
+    }
+
+    @Override
+    protected void onImageDataRequirementChanged(boolean required) {
+        // Tear down the image readback of the camera
+        // if the frames can be processed as textures.
+        if (mVideoCapture != null) {
+            mVideoCapture.setImageDataEnabled(required);
+        }
+    }
+
     @Override
     public void onCameraFirstFrame() {
         if (mListener != null) {
@@ -0,0 +1,199 @@
+package io.agora.capture.video.camera;
+
+/**
+ * A fixed ring of image buffers shared with the camera.
+ * A buffer filled by the camera is attached to the frame
+ * that carries it, and is given back to the camera only
+ * after the last holder of the frame releases it, so that
+ * the preprocessor and consumers never read a buffer the
+ * camera is writing into.
+ * If the camera has no buffer left to fill, the oldest
+ * frame that has not been processed yet is dropped and
+ * its buffer is reclaimed (drop-oldest backpressure).
+ */
+class CaptureBufferRing {
+    interface BufferQueue {
+        /**
+         * Hand the buffer to the camera to be filled,
+         * for example Camera.addCallbackBuffer().
+         */
+        void queueBuffer(byte[] data);
+    }
+
+    private static final int STATE_QUEUED = 0;
+    private static final int STATE_IN_FLIGHT = 1;
+
+    class Buffer {
+        final byte[] data;
+        private int state = STATE_QUEUED;
+        private VideoCaptureFrame owner;
+        private long sequence;
+
+        private Buffer(int size) {
+            data = new byte[size];
+        }
+
+        /**
+         * Called when the frame that holds this buffer
+         * is released by all of its holders.
+         */
+        void release(VideoCaptureFrame frame) {
+            synchronized (CaptureBufferRing.this) {
+                // The buffer may have been reclaimed
+                // when the frame was dropped.
+                if (owner == frame) {
+                    requeue(this);
+                }
+            }
+        }
+    }
+
+    private final Buffer[] mBuffers;
+    private final BufferQueue mQueue;
+    private boolean mActive;
+    private long mSequence;
+
+    private long mDroppedFrames;
+    private long mStarvationCount;
+
+    CaptureBufferRing(int count, int bufferSize, BufferQueue queue) {
+        mBuffers = new Buffer[count];
+        for (int i = 0; i < count; i++) {
+            mBuffers[i] = new Buffer(bufferSize);
+        }
+        mQueue = queue;
+    }
+
+    int getBufferSize() {
+        return mBuffers[0].data.length;
+    }
+
+    /**
+     * Give all buffers to the camera.
+     */
+    synchronized void start() {
+        mActive = true;
+        for (Buffer buffer : mBuffers) {
+            buffer.owner = null;
+            buffer.state = STATE_QUEUED;
+            mQueue.queueBuffer(buffer.data);
+        }
+    }
+
+    /**
+     * Give the camera the buffers not held by any frame
+     * after the ring has been stopped, the others go back
+     * to the camera when their frames are released.
+     * Used when the camera has discarded all the buffers
+     * it was given.
+     */
+    synchronized void resume() {
+        mActive = true;
+        for (Buffer buffer : mBuffers) {
+            if (buffer.state == STATE_QUEUED) {
+                mQueue.queueBuffer(buffer.data);
+            }
+        }
+    }
+
+    /**
+     * Stop handing buffers back to the camera, must be
+     * called before the camera is released. Buffers still
+     * held by frames are simply discarded on release.
+     */
+    synchronized void stop() {
+        mActive = false;
+    }
+
+    /**
+     * Attach the buffer the camera has just filled to the
+     * frame that delivers it.
+     * @return false if the data does not belong to this
+     * ring, and the frame should not be delivered.
+     */
+    synchronized boolean attach(byte[] data, VideoCaptureFrame frame) {
+        Buffer buffer = find(data);
+        if (buffer == null) {
+            return false;
+        }
+
+        buffer.state = STATE_IN_FLIGHT;
+        buffer.owner = frame;
+        buffer.sequence = mSequence++;
+        frame.image = buffer.data;
+        frame.imageBuffer = buffer;
+
+        if (countQueued() == 0) {
+            reclaimOldest(buffer);
+        }
+
+        return true;
+    }
+
+    private Buffer find(byte[] data) {
+        for (Buffer buffer : mBuffers) {
+            if (buffer.data == data) {
+                return buffer;
+            }
+        }
+
+        return null;
+    }
+
+    private int countQueued() {
+        int count = 0;
+        for (Buffer buffer : mBuffers) {
+            if (buffer.state == STATE_QUEUED) count++;
+        }
+        return count;
+    }
+
+    // Every buffer is in flight and the camera has nothing
+    // to write the next image into. Drop the oldest frame
+    // that has not started processing to free its buffer.
+    private void reclaimOldest(Buffer latest) {
+        long after = -1;
+        while (true) {
+            Buffer oldest = null;
+            for (Buffer buffer : mBuffers) {
+                if (buffer != latest && buffer.state == STATE_IN_FLIGHT &&
+                        buffer.sequence > after &&
+                        (oldest == null || buffer.sequence < oldest.sequence)) {
+                    oldest = buffer;
+                }
+            }
+
+            if (oldest == null) {
+                // All buffers are used by frames being processed
+                // or held by consumers, the camera will skip
+                // images until one of them is released.
+                mStarvationCount++;
+                return;
+            }
+
+            if (oldest.owner.tryDrop()) {
+                mDroppedFrames++;
+                requeue(oldest);
+                return;
+            }
+
+            after = oldest.sequence;
+        }
+    }
+
+    private void requeue(Buffer buffer) {
+        buffer.owner = null;
+        buffer.state = STATE_QUEUED;
+        if (mActive) {
+            mQueue.queueBuffer(buffer.data);
+        }
+    }
+
+    synchronized long getDroppedFrameCount() {
+        return mDroppedFrames;
+    }
+
+    synchronized long getStarvationCount() {
+        return mStarvationCount;
+    }
+}
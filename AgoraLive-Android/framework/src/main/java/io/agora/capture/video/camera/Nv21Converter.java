@@ -0,0 +1,250 @@
+package io.agora.capture.video.camera;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Converts the three planes of a YUV_420_888 image into NV21
+ * (the full Y plane followed by interleaved V and U samples).
+ * The layout of the chroma planes is detected for every image,
+ * and the common layouts are copied with bulk buffer operations
+ * instead of reading the samples one by one:
+ * 1. The planes are already NV21 in memory, the V plane and
+ *    the U plane are views of the same VU interleaved buffer.
+ * 2. The planes are NV12 in memory (UV interleaved), every
+ *    pair of samples is swapped in a bulk short copy.
+ * 3. The planes are fully planar (I420), rows are read in bulk
+ *    and interleaved in Java arrays.
+ * Other layouts fall back to sample by sample copy.
+ * Not thread-safe, every capture should use its own instance.
+ */
+public class Nv21Converter {
+    public static final int LAYOUT_UNKNOWN = 0;
+    public static final int LAYOUT_NV21 = 1;
+    public static final int LAYOUT_NV12 = 2;
+    public static final int LAYOUT_PLANAR = 3;
+    public static final int LAYOUT_GENERIC = 4;
+
+    private byte[] mRowU;
+    private byte[] mRowV;
+    private byte[] mRowVU;
+    private int mLastLayout = LAYOUT_UNKNOWN;
+
+    public static int getNv21Size(int width, int height) {
+        return width * height + (width / 2) * (height / 2) * 2;
+    }
+
+    /**
+     * Write the NV21 image to the output buffer starting at
+     * its position, the position is moved to the end of the
+     * image after conversion.
+     * The plane buffers are not modified, except the chroma
+     * samples that are briefly written to detect whether
+     * the planes alias each other.
+     * @param y the Y plane, the pixel stride must be 1
+     * @param u the U plane
+     * @param v the V plane
+     * @param uvRowStride the row stride of both chroma planes
+     * @param uvPixelStride the pixel stride of both chroma planes
+     * @param out the output buffer, direct or not
+     */
+    public void convert(int width, int height,
+                        ByteBuffer y, int yRowStride,
+                        ByteBuffer u, ByteBuffer v,
+                        int uvRowStride, int uvPixelStride,
+                        ByteBuffer out) {
+        if (width <= 0 || height <= 0 || (width & 1) != 0 || (height & 1) != 0) {
+            throw new IllegalArgumentException(
+                    "[Nv21Converter] wrong argument: invalid image size " + width + "x" + height);
+        }
+
+        if (out.remaining() < getNv21Size(width, height)) {
+            throw new IllegalArgumentException(
+                    "[Nv21Converter] wrong argument: output buffer is too small");
+        }
+
+        copyPlane(y, yRowStride, width, height, out);
+
+        int layout = detectLayout(u, v, uvPixelStride);
+        mLastLayout = layout;
+        switch (layout) {
+            case LAYOUT_NV21:
+                copySemiPlanar(v, u, uvRowStride, width, height / 2, out);
+                break;
+            case LAYOUT_NV12:
+                swapSemiPlanar(u, v, uvRowStride, width, height / 2, out);
+                break;
+            case LAYOUT_PLANAR:
+                interleavePlanar(u, v, uvRowStride, width / 2, height / 2, out);
+                break;
+            default:
+                copyGeneric(u, v, uvRowStride, uvPixelStride, width / 2, height / 2, out);
+                break;
+        }
+    }
+
+    /**
+     * @return the chroma layout of the last image converted
+     */
+    public int getLastLayout() {
+        return mLastLayout;
+    }
+
+    private static int detectLayout(ByteBuffer u, ByteBuffer v, int pixelStride) {
+        if (pixelStride == 1) {
+            return LAYOUT_PLANAR;
+        } else if (pixelStride != 2) {
+            return LAYOUT_GENERIC;
+        }
+
+        if (v.limit() > 1 && aliases(v, 1, u, 0)) {
+            return LAYOUT_NV21;
+        } else if (u.limit() > 1 && aliases(u, 1, v, 0)) {
+            return LAYOUT_NV12;
+        }
+
+        return LAYOUT_GENERIC;
+    }
+
+    // Whether the two positions refer to the same memory.
+    // Comparing the values is not enough, so the sample is
+    // written with two different values which are checked
+    // through the other buffer, and then restored.
+    private static boolean aliases(ByteBuffer a, int indexA, ByteBuffer b, int indexB) {
+        if (a.isReadOnly() || b.limit() <= indexB) {
+            return false;
+        }
+
+        byte saved = a.get(indexA);
+        boolean result = false;
+        a.put(indexA, (byte) 0);
+        if (b.get(indexB) == 0) {
+            a.put(indexA, (byte) 255);
+            result = b.get(indexB) == (byte) 255;
+        }
+        a.put(indexA, saved);
+        return result;
+    }
+
+    private static void copyPlane(ByteBuffer plane, int rowStride,
+                                  int width, int height, ByteBuffer out) {
+        ByteBuffer src = plane.duplicate();
+        if (rowStride == width) {
+            src.position(0).limit(width * height);
+            out.put(src);
+            return;
+        }
+
+        for (int row = 0; row < height; row++) {
+            int start = row * rowStride;
+            src.limit(start + width).position(start);
+            out.put(src);
+        }
+    }
+
+    // The first buffer starts with the sample that comes first
+    // in the output. The last sample of the image may be out
+    // of its bounds since the buffers overlap, and is read
+    // from the second buffer.
+    private static void copySemiPlanar(ByteBuffer first, ByteBuffer second,
+                                       int rowStride, int width, int rows, ByteBuffer out) {
+        ByteBuffer src = first.duplicate();
+        if (rowStride == width) {
+            int size = width * rows;
+            int end = Math.min(size, first.limit());
+            src.limit(end).position(0);
+            out.put(src);
+            if (end < size) {
+                out.put(second.get(size - 2));
+            }
+            return;
+        }
+
+        for (int row = 0; row < rows; row++) {
+            int start = row * rowStride;
+            int end = Math.min(start + width, first.limit());
+            src.limit(end).position(start);
+            out.put(src);
+            if (end < start + width) {
+                out.put(second.get(start + width - 2));
+            }
+        }
+    }
+
+    // NV12 to NV21: every UV pair is read as a 16-bit value in
+    // one byte order and written in the other one. The short
+    // views are created once, rows starting at an odd offset
+    // are read from the view that starts at the second byte.
+    private static void swapSemiPlanar(ByteBuffer uv, ByteBuffer vu,
+                                       int rowStride, int width, int rows, ByteBuffer out) {
+        if (rowStride == width) {
+            // The rows are contiguous and swapped in one pass
+            width *= rows;
+            rows = 1;
+        }
+
+        ByteBuffer src = uv.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        src.position(0);
+        ShortBuffer evenPairs = src.asShortBuffer();
+        src.position(Math.min(1, src.limit()));
+        ShortBuffer oddPairs = src.asShortBuffer();
+
+        int outStart = out.position();
+        ShortBuffer dst = out.duplicate().order(ByteOrder.BIG_ENDIAN).asShortBuffer();
+
+        for (int row = 0; row < rows; row++) {
+            int start = row * rowStride;
+            int end = Math.min(start + width, uv.limit());
+            int pairs = (end - start) / 2;
+            ShortBuffer pairsOfRow = (start & 1) == 0 ? evenPairs : oddPairs;
+            pairsOfRow.limit(start / 2 + pairs).position(start / 2);
+            dst.put(pairsOfRow);
+
+            if (pairs * 2 < width) {
+                // The V sample of the last pair is only
+                // reachable from the V plane.
+                int last = start + width - 2;
+                dst.put((short) ((vu.get(last) << 8) | (uv.get(last) & 0xFF)));
+            }
+        }
+
+        out.position(outStart + dst.position() * 2);
+    }
+
+    private void interleavePlanar(ByteBuffer u, ByteBuffer v, int rowStride,
+                                  int chromaWidth, int rows, ByteBuffer out) {
+        if (mRowU == null || mRowU.length < chromaWidth) {
+            mRowU = new byte[chromaWidth];
+            mRowV = new byte[chromaWidth];
+            mRowVU = new byte[chromaWidth * 2];
+        }
+
+        ByteBuffer srcU = u.duplicate();
+        ByteBuffer srcV = v.duplicate();
+        for (int row = 0; row < rows; row++) {
+            int start = row * rowStride;
+            srcU.position(start);
+            srcU.get(mRowU, 0, chromaWidth);
+            srcV.position(start);
+            srcV.get(mRowV, 0, chromaWidth);
+
+            for (int col = 0, pos = 0; col < chromaWidth; col++) {
+                mRowVU[pos++] = mRowV[col];
+                mRowVU[pos++] = mRowU[col];
+            }
+            out.put(mRowVU, 0, chromaWidth * 2);
+        }
+    }
+
+    private static void copyGeneric(ByteBuffer u, ByteBuffer v, int rowStride, int pixelStride,
+                                    int chromaWidth, int rows, ByteBuffer out) {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < chromaWidth; col++) {
+                int index = row * rowStride + col * pixelStride;
+                out.put(v.get(index));
+                out.put(u.get(index));
+            }
+        }
+    }
+}
@@ -85,6 +85,24 @@ public abstract class VideoCapture extends VideoProducer {
 
     boolean firstFrame;
 
+    // Whether the CPU image of every frame is read back
+    // from the camera. If no one needs the image, the
+    // frames are driven by the preview texture only.
+    // Written in the channel thread and read in the
+    // camera threads.
+    volatile boolean pImageDataEnabled = true;
+
+    // Delivers the frames without CPU images
+    final SurfaceTexture.OnFrameAvailableListener pTextureFrameListener =
+            surfaceTexture -> {
+        pYUVImage = null;
+        onFrameAvailable();
+    };
+
+    // Frames are recycled once the channel and all
+    // the consumers have done with them.
+    final VideoCaptureFramePool mFramePool = new VideoCaptureFramePool();
+
     OnVideoCaptureStateListener stateListener;
 
     VideoCapture(Context context) {
@@ -158,31 +176,76 @@ public abstract class VideoCapture extends VideoProducer {
 
     protected abstract int getNumberOfCameras();
 
+    /**
+     * @return the number of captured frames dropped before
+     * being processed because the capture ran out of buffers.
+     */
+    public long getDroppedFrameCount() {
+        return 0;
+    }
+
+    /**
+     * @return how many times the camera found no free buffer
+     * because all of them were still used by the pipeline.
+     */
+    public long getBufferStarvationCount() {
+        return 0;
+    }
+
     protected abstract void startPreview();
 
     void setSharedContext(EGLContext eglContext) {
         pEGLContext = eglContext;
     }
 
+    /**
+     * Switch between delivering the frames with or without
+     * CPU images, must be called in the channel thread.
+     * Takes effect immediately if the capture has started,
+     * or when the capture starts next time.
+     */
+    void setImageDataEnabled(boolean enabled) {
+        if (pImageDataEnabled != enabled) {
+            pImageDataEnabled = enabled;
+            onImageDataEnabledChanged(enabled);
+        }
+    }
+
+    boolean isImageDataEnabled() {
+        return pImageDataEnabled;
+    }
+
+    protected abstract void onImageDataEnabledChanged(boolean enabled);
+
     void onFrameAvailable() {
+        deliverFrame(obtainFrame());
+    }
+
+    /**
+     * Takes a recycled frame and fills it with the
+     * current capture states.
+     */
+    VideoCaptureFrame obtainFrame() {
         // The images from front system camera are mirrored by default.
         boolean mirrored = (mFacing == Constant.CAMERA_FACING_FRONT);
 
-        VideoCaptureFrame frame = new VideoCaptureFrame(
-                // The format may be changed during processing.
-                // Create a copy of the format config to avoid
-                // the original format instance from being
-                // modified unexpectedly.
-                pCaptureFormat.copy(),
-                pPreviewSurfaceTexture,
-                pPreviewTextureId,
-                pYUVImage,
-                null,
-                System.currentTimeMillis(),
-                pCameraNativeOrientation,
-                mirrored,
-                firstFrame);
+        VideoCaptureFrame frame = mFramePool.acquire();
+        // The format may be changed during processing.
+        // Copy the format config into the frame's own
+        // instance to avoid the original format from
+        // being modified unexpectedly.
+        frame.format.set(pCaptureFormat);
+        frame.surfaceTexture = pPreviewSurfaceTexture;
+        frame.textureId = pPreviewTextureId;
+        frame.image = pYUVImage;
+        frame.timestamp = System.currentTimeMillis();
+        frame.rotation = pCameraNativeOrientation;
+        frame.mirrored = mirrored;
+        frame.firstFrame = firstFrame;
+        return frame;
+    }
 
+    void deliverFrame(VideoCaptureFrame frame) {
         pushVideoFrame(frame);
 
         if (firstFrame && stateListener != null) {
@@ -36,6 +36,10 @@ public class VideoCaptureCamera
 
     private int mExpectedFrameSize;
 
+    // Buffers are handed back to the camera only after
+    // the frames referring to them are released.
+    private volatile CaptureBufferRing mBufferRing;
+
     private Camera mCamera;
     // Lock to mutually exclude execution of OnPreviewFrame() and {start/stop}Capture().
     private ReentrantLock mPreviewBufferLock = new ReentrantLock();
@@ -192,10 +196,10 @@ public class VideoCaptureCamera
 
         mExpectedFrameSize = pCaptureFormat.getWidth() * pCaptureFormat.getHeight()
                 * ImageFormat.getBitsPerPixel(pCaptureFormat.getPixelFormat()) / 8;
-        for (int i = 0; i < NUM_CAPTURE_BUFFERS; i++) {
-            byte[] buffer = new byte[mExpectedFrameSize];
-            mCamera.addCallbackBuffer(buffer);
-        }
+        final Camera camera = mCamera;
+        mBufferRing = new CaptureBufferRing(NUM_CAPTURE_BUFFERS,
+                mExpectedFrameSize, camera::addCallbackBuffer);
+        mBufferRing.start();
 
         synchronized (mCameraStateLock) {
             mCameraState = CameraState.OPENING;
@@ -214,7 +218,15 @@ public class VideoCaptureCamera
         }
 
         try {
-            mCamera.setPreviewCallbackWithBuffer(this);
+            if (pImageDataEnabled) {
+                mCamera.setPreviewCallbackWithBuffer(this);
+            } else {
+                // Also clears the buffers given to the camera
+                mCamera.setPreviewCallbackWithBuffer(null);
+                mBufferRing.stop();
+                pPreviewSurfaceTexture.setOnFrameAvailableListener(
+                        pTextureFrameListener, pChannelHandler);
+            }
             mCamera.setPreviewTexture(pPreviewSurfaceTexture);
             mCamera.startPreview();
             firstFrame = true;
@@ -244,6 +256,32 @@ public class VideoCaptureCamera
         }
     }
 
+    @Override
+    protected void onImageDataEnabledChanged(boolean enabled) {
+        if (mCamera == null || mCameraState != CameraState.STARTED) {
+            // Applied when the preview starts
+            return;
+        }
+
+        Log.d(TAG, "image data enabled " + enabled);
+        try {
+            if (enabled) {
+                pPreviewSurfaceTexture.setOnFrameAvailableListener(null);
+                // The camera clears its buffer queue when the
+                // preview callback is removed.
+                mBufferRing.resume();
+                mCamera.setPreviewCallbackWithBuffer(this);
+            } else {
+                mCamera.setPreviewCallbackWithBuffer(null);
+                mBufferRing.stop();
+                pPreviewSurfaceTexture.setOnFrameAvailableListener(
+                        pTextureFrameListener, pChannelHandler);
+            }
+        } catch (RuntimeException ex) {
+            Log.e(TAG, "onImageDataEnabledChanged: " + ex);
+        }
+    }
+
     @Override
     public void stopCaptureAndBlockUntilStopped() {
         Log.d(TAG, "stopCaptureAndBlockUntilStopped");
@@ -283,6 +321,9 @@ public class VideoCaptureCamera
         }
 
         pCaptureFormat = null;
+        if (mBufferRing != null) {
+            mBufferRing.stop();
+        }
         mCamera.release();
         mCamera = null;
 
@@ -295,20 +336,48 @@ public class VideoCaptureCamera
     public void onPreviewFrame(byte[] data, @NonNull Camera camera) {
         mPreviewBufferLock.lock();
         try {
+            if (!pImageDataEnabled) {
+                // Delivered before the callback was removed, the
+                // buffer is given back when the callback resumes.
+                return;
+            }
+
             if (mCameraState != CameraState.STARTED) {
+                camera.addCallbackBuffer(data);
                 return;
             }
 
             if (data.length != mExpectedFrameSize) {
                 Log.e(TAG, "the frame size is not as expected");
+                camera.addCallbackBuffer(data);
                 return;
             }
 
             pYUVImage = data;
-            onFrameAvailable();
+            VideoCaptureFrame frame = obtainFrame();
+            if (!mBufferRing.attach(data, frame)) {
+                Log.e(TAG, "the frame buffer is not allocated by the capture");
+                frame.release();
+                return;
+            }
+
+            // The buffer goes back to the camera when the
+            // frame is released by the channel and consumers.
+            deliverFrame(frame);
         } finally {
             mPreviewBufferLock.unlock();
-            camera.addCallbackBuffer(data);
         }
     }
+
+    @Override
+    public long getDroppedFrameCount() {
+        CaptureBufferRing ring = mBufferRing;
+        return ring != null ? ring.getDroppedFrameCount() : 0;
+    }
+
+    @Override
+    public long getBufferStarvationCount() {
+        CaptureBufferRing ring = mBufferRing;
+        return ring != null ? ring.getStarvationCount() : 0;
+    }
 }
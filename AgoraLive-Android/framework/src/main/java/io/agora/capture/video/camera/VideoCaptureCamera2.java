@@ -49,6 +49,14 @@ public class VideoCaptureCamera2 extends VideoCapture {
             Log.e(TAG, "CameraDevice.StateCallback onOpened");
             mCameraDevice = cameraDevice;
             changeCameraStateAndNotify(CameraState.CONFIGURING);
+            // The preview objects of the last session are
+            // only reused when the session is reconfigured.
+            mSurface = null;
+            releaseRetiredImageReader();
+            if (mImageReader != null) {
+                mImageReader.close();
+                mImageReader = null;
+            }
             createPreviewObjectsAndStartPreviewOrFail();
             firstFrame = true;
         }
@@ -95,6 +103,7 @@ public class VideoCaptureCamera2 extends VideoCapture {
         public void onConfigured(CameraCaptureSession cameraCaptureSession) {
             Log.d(TAG, "CameraPreviewSessionListener.onConfigured");
             mPreviewSession = cameraCaptureSession;
+            releaseRetiredImageReader();
             try {
                 // This line triggers the preview. A |listener| is registered to receive the actual
                 // capture result details. A CrImageReaderListener will be triggered every time a
@@ -165,6 +174,7 @@ public class VideoCaptureCamera2 extends VideoCapture {
     private CaptureRequest mPreviewRequest;
     private CaptureRequest.Builder mPreviewRequestBuilder;
     private ImageReader mImageReader;
+    private ImageReader mRetiredImageReader;
     private static CameraManager mCameraManager;
 
     private volatile boolean mPendingStartRequest;
@@ -173,9 +183,9 @@ public class VideoCaptureCamera2 extends VideoCapture {
     private CameraState mCameraState = CameraState.STOPPED;
     private Surface mSurface;
 
-    private int mImageYSize;
-    private int mImageUVSize;
+    private final Nv21Converter mNv21Converter = new Nv21Converter();
     private byte[] mBuffer;
+    private ByteBuffer mOutputBuffer;
 
     private CameraCharacteristics getCameraCharacteristics(String id) {
         try {
@@ -196,10 +206,12 @@ public class VideoCaptureCamera2 extends VideoCapture {
     private boolean createPreviewObjectsAndStartPreview() {
         if (mCameraDevice == null) return false;
 
-        mImageReader = ImageReader.newInstance(pCaptureFormat.getWidth(),
-                pCaptureFormat.getHeight(), pCaptureFormat.getPixelFormat(), 2);
-        final CameraPreviewReaderListener imageReaderListener = new CameraPreviewReaderListener();
-        mImageReader.setOnImageAvailableListener(imageReaderListener, pChannelHandler);
+        if (pImageDataEnabled) {
+            mImageReader = ImageReader.newInstance(pCaptureFormat.getWidth(),
+                    pCaptureFormat.getHeight(), pCaptureFormat.getPixelFormat(), 2);
+            final CameraPreviewReaderListener imageReaderListener = new CameraPreviewReaderListener();
+            mImageReader.setOnImageAvailableListener(imageReaderListener, pChannelHandler);
+        }
 
         try {
             // TEMPLATE_PREVIEW specifically means "high frame rate is given
@@ -216,19 +228,30 @@ public class VideoCaptureCamera2 extends VideoCapture {
             return false;
         }
 
-        pPreviewSurfaceTexture = new SurfaceTexture(pPreviewTextureId);
-        pPreviewSurfaceTexture.setDefaultBufferSize(mPreviewWidth, mPreviewHeight);
-        mSurface = new Surface(pPreviewSurfaceTexture);
+        if (mSurface == null) {
+            pPreviewSurfaceTexture = new SurfaceTexture(pPreviewTextureId);
+            pPreviewSurfaceTexture.setDefaultBufferSize(mPreviewWidth, mPreviewHeight);
+            mSurface = new Surface(pPreviewSurfaceTexture);
+        }
+
+        // Without the ImageReader, frames are delivered
+        // when the preview texture is updated.
+        pPreviewSurfaceTexture.setOnFrameAvailableListener(
+                mImageReader != null ? null : pTextureFrameListener, pChannelHandler);
 
         // Construct an ImageReader Surface and plug it into our CaptureRequest.Builder.
         mPreviewRequestBuilder.addTarget(mSurface);
-        mPreviewRequestBuilder.addTarget(mImageReader.getSurface());
+        if (mImageReader != null) {
+            mPreviewRequestBuilder.addTarget(mImageReader.getSurface());
+        }
 
         configureCommonCaptureSettings(mPreviewRequestBuilder);
 
         List<Surface> surfaceList = new ArrayList<>(2);
         surfaceList.add(mSurface);
-        surfaceList.add(mImageReader.getSurface());
+        if (mImageReader != null) {
+            surfaceList.add(mImageReader.getSurface());
+        }
 
         mPreviewRequest = mPreviewRequestBuilder.build();
 
@@ -245,6 +268,32 @@ public class VideoCaptureCamera2 extends VideoCapture {
         return true;
     }
 
+    @Override
+    protected void onImageDataEnabledChanged(boolean enabled) {
+        if (mCameraDevice == null || mCameraState != CameraState.STARTED) {
+            // Applied when the capture session is created
+            return;
+        }
+
+        Log.d(TAG, "image data enabled " + enabled + ", reconfigure the session");
+        // The ImageReader surface may still be used by the
+        // current session, it is closed after the new
+        // session has replaced the current one.
+        releaseRetiredImageReader();
+        mRetiredImageReader = mImageReader;
+        mImageReader = null;
+
+        changeCameraStateAndNotify(CameraState.CONFIGURING);
+        createPreviewObjectsAndStartPreviewOrFail();
+    }
+
+    private void releaseRetiredImageReader() {
+        if (mRetiredImageReader != null) {
+            mRetiredImageReader.close();
+            mRetiredImageReader = null;
+        }
+    }
+
     private void configureCommonCaptureSettings(CaptureRequest.Builder requestBuilder) {
         // |mFocusMode| indicates if we're in auto/continuous, single-shot or manual mode.
         // AndroidMeteringMode.SINGLE_SHOT is dealt with independently since it needs to be
@@ -446,72 +495,23 @@ public class VideoCaptureCamera2 extends VideoCapture {
     private byte[] YUV_420_888toNV21(Image image) {
         int width = image.getWidth();
         int height = image.getHeight();
-        int ySize = width * height;
-        int uvSize = width * height / 4;
-
-        if (ySize != mImageYSize || uvSize != mImageUVSize ||
-            mBuffer == null) {
-            mBuffer = new byte[ySize + uvSize * 2];
-            mImageYSize = ySize;
-            mImageUVSize = uvSize;
-        }
-
-        ByteBuffer yBuffer = image.getPlanes()[0].getBuffer(); // Y
-        ByteBuffer uBuffer = image.getPlanes()[1].getBuffer(); // U
-        ByteBuffer vBuffer = image.getPlanes()[2].getBuffer(); // V
-
-        int rowStride = image.getPlanes()[0].getRowStride();
-        assert (image.getPlanes()[0].getPixelStride() == 1);
-
-        int pos = 0;
-
-        if (rowStride == width) { // likely
-            yBuffer.get(mBuffer, 0, ySize);
-            pos += ySize;
-        } else {
-            int yBufferPos = width - rowStride; // not an actual position
-            for (; pos < ySize; pos += width) {
-                yBufferPos += rowStride - width;
-                yBuffer.position(yBufferPos);
-                yBuffer.get(mBuffer, pos, width);
-            }
-        }
-
-        rowStride = image.getPlanes()[2].getRowStride();
-        int pixelStride = image.getPlanes()[2].getPixelStride();
-
-        assert (rowStride == image.getPlanes()[1].getRowStride());
-        assert (pixelStride == image.getPlanes()[1].getPixelStride());
-
-        if (pixelStride == 2 && rowStride == width && uBuffer.get(0) == vBuffer.get(1)) {
-            // maybe V an U planes overlap as per NV21, which means vBuffer[1] is alias of uBuffer[0]
-            byte savePixel = vBuffer.get(1);
-            vBuffer.put(1, (byte) 0);
-            if (uBuffer.get(0) == 0) {
-                vBuffer.put(1, (byte) 255);
-                if (uBuffer.get(0) == 255) {
-                    vBuffer.put(1, savePixel);
-                    vBuffer.get(mBuffer, ySize, uvSize);
-
-                    return mBuffer; // shortcut
-                }
-            }
-
-            // unfortunately, the check failed. We must save U and V pixel by pixel
-            vBuffer.put(1, savePixel);
-        }
-
-        // other optimizations could check if (pixelStride == 1) or (pixelStride == 2),
-        // but performance gain would be less significant
-
-        for (int row = 0; row < height / 2; row++) {
-            for (int col = 0; col < width / 2; col++) {
-                int vuPos = col * pixelStride + row * rowStride;
-                mBuffer[pos++] = vBuffer.get(vuPos);
-                mBuffer[pos++] = uBuffer.get(vuPos);
-            }
+        int size = Nv21Converter.getNv21Size(width, height);
+
+        if (mBuffer == null || mBuffer.length != size) {
+            mBuffer = new byte[size];
+            // The image bytes are used as an array by the
+            // preprocessor, so the output buffer is backed
+            // by the array instead of being a direct one.
+            mOutputBuffer = ByteBuffer.wrap(mBuffer);
         }
 
+        Image.Plane[] planes = image.getPlanes();
+        mOutputBuffer.clear();
+        mNv21Converter.convert(width, height,
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[2].getRowStride(), planes[2].getPixelStride(),
+                mOutputBuffer);
         return mBuffer;
     }
 }
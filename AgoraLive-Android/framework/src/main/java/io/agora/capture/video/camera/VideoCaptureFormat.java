@@ -66,6 +66,14 @@ public class VideoCaptureFormat {
                 '}';
     }
 
+    void set(VideoCaptureFormat format) {
+        mWidth = format.mWidth;
+        mHeight = format.mHeight;
+        mFrameRate = format.mFrameRate;
+        mPixelFormat = format.mPixelFormat;
+        mTexFormat = format.mTexFormat;
+    }
+
     public VideoCaptureFormat copy() {
         return new VideoCaptureFormat(
                 mWidth, mHeight, mFrameRate, mPixelFormat, mTexFormat);
@@ -22,6 +22,14 @@ public class VideoCaptureFrame {
      */
     public float[] textureTransform;
 
+    /**
+     * The vertex (MVP) transformation that must be applied
+     * when drawing this frame, or null if there is none.
+     * It is set when the rotation of the frame is not
+     * rendered into the texture but left to the consumers.
+     */
+    public float[] vertexTransform;
+
     /**
      * If the frames are from system texture, they
      * must contain the texture content in the
@@ -45,6 +53,8 @@ public class VideoCaptureFrame {
     /**
      * Raw image data from the system camera. For android
      * devices this format is NV21 by default.
+     * It is null if neither the preprocessor nor any
+     * consumer requires image data.
      */
     public byte[] image;
 
@@ -63,6 +73,35 @@ public class VideoCaptureFrame {
      */
     public boolean firstFrame;
 
+    // The pool this frame is recycled to, null if
+    // the frame is created outside of any pool.
+    private final VideoCaptureFramePool mPool;
+
+    // Transform matrix storage owned by the frame, so
+    // that it is not allocated for each frame.
+    private final float[] mTransformBuffer = new float[16];
+
+    // The frame this frame is copied from, kept valid
+    // until this frame is released.
+    private VideoCaptureFrame mSource;
+
+    private int mRefCount = 1;
+
+    // The capture buffer that holds the image data. It is
+    // handed back to the camera when the frame is released.
+    CaptureBufferRing.Buffer imageBuffer;
+
+    // A frame can be dropped by the capture before being
+    // processed, if the camera runs out of buffers.
+    private boolean mProcessing;
+    private boolean mDropped;
+
+    VideoCaptureFrame(VideoCaptureFramePool pool) {
+        this.mPool = pool;
+        this.format = new VideoCaptureFormat(0, 0, 0, 0, 0);
+        this.textureTransform = mTransformBuffer;
+    }
+
     public VideoCaptureFrame(VideoCaptureFormat format, SurfaceTexture texture,
                              int textureId, byte[] image, float[] textureTransform,
                              long timestamp, int rotation, boolean mirror, boolean firstFrame) {
@@ -75,6 +114,7 @@ public class VideoCaptureFrame {
         this.rotation = rotation;
         this.mirrored = mirror;
         this.firstFrame = firstFrame;
+        this.mPool = null;
     }
 
     public VideoCaptureFrame(VideoCaptureFrame frame) {
@@ -83,10 +123,136 @@ public class VideoCaptureFrame {
         this.surfaceTexture = frame.surfaceTexture;
         this.image = frame.image;
         this.textureTransform = frame.textureTransform;
+        this.vertexTransform = frame.vertexTransform;
         this.timestamp = frame.timestamp;
         this.rotation = frame.rotation;
         this.mirrored = frame.mirrored;
         this.firstFrame = frame.firstFrame;
+        this.mPool = null;
+    }
+
+    /**
+     * Make this frame a copy of the source frame, without
+     * allocating anything. The source is retained until
+     * this frame is released, so that its image data and
+     * capture buffer stay valid while this frame is used.
+     */
+    public void copyFrom(VideoCaptureFrame source) {
+        source.retain();
+        if (mSource != null) mSource.release();
+        mSource = source;
+
+        format.set(source.format);
+        textureId = source.textureId;
+        surfaceTexture = source.surfaceTexture;
+        image = source.image;
+        if (source.textureTransform != null) {
+            System.arraycopy(source.textureTransform, 0, mTransformBuffer, 0, mTransformBuffer.length);
+        }
+        textureTransform = mTransformBuffer;
+        vertexTransform = source.vertexTransform;
+        timestamp = source.timestamp;
+        rotation = source.rotation;
+        mirrored = source.mirrored;
+        firstFrame = source.firstFrame;
+    }
+
+    /**
+     * Latch the latest image of the surface texture, and
+     * read its transformation matrix into the matrix owned
+     * by this frame. Must be called in the OpenGL thread
+     * that the surface texture is attached to.
+     */
+    public void updateTexImage() {
+        surfaceTexture.updateTexImage();
+        surfaceTexture.getTransformMatrix(mTransformBuffer);
+        textureTransform = mTransformBuffer;
+    }
+
+    /**
+     * Keep the frame valid after the current callback
+     * returns. Every retain() must be paired with a
+     * release() call.
+     */
+    public synchronized void retain() {
+        mRefCount++;
+    }
+
+    /**
+     * Give up the ownership of the frame. The frame is
+     * returned to its pool when the last holder releases
+     * it, and must not be accessed any more afterwards.
+     */
+    public void release() {
+        synchronized (this) {
+            if (mRefCount <= 0) {
+                throw new IllegalStateException(
+                        "[VideoCaptureFrame] release a frame that is already released");
+            }
+
+            if (--mRefCount > 0) {
+                return;
+            }
+        }
+
+        if (imageBuffer != null) {
+            imageBuffer.release(this);
+            imageBuffer = null;
+        }
+
+        if (mSource != null) {
+            mSource.release();
+            mSource = null;
+        }
+
+        if (mPool != null) {
+            reset();
+            mPool.recycle(this);
+        }
+    }
+
+    synchronized void onAcquired() {
+        mRefCount = 1;
+        mProcessing = false;
+        mDropped = false;
+    }
+
+    /**
+     * Mark the frame as being processed, so that the
+     * capture cannot drop it any more.
+     * @return false if the frame has been dropped and
+     * should be released without being processed.
+     */
+    public synchronized boolean tryBeginProcess() {
+        if (mDropped) {
+            return false;
+        }
+
+        mProcessing = true;
+        return true;
+    }
+
+    synchronized boolean tryDrop() {
+        if (mProcessing) {
+            return false;
+        }
+
+        mDropped = true;
+        return true;
+    }
+
+    private void reset() {
+        surfaceTexture = null;
+        image = null;
+        // The transformation matrix may have been replaced
+        // by a shared one, like GlUtil.IDENTITY_MATRIX.
+        textureTransform = mTransformBuffer;
+        vertexTransform = null;
+        textureId = 0;
+        rotation = 0;
+        timestamp = 0;
+        mirrored = false;
+        firstFrame = false;
     }
 
     public String toString() {
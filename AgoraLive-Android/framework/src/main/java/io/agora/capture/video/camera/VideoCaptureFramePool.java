@@ -0,0 +1,72 @@
+package io.agora.capture.video.camera;
+
+/**
+ * A bounded pool of recyclable video frames.
+ * Producers acquire a frame, fill it and push it to the
+ * video channel; the frame returns to the pool once the
+ * last holder calls VideoCaptureFrame.release().
+ * After the pool is warmed up, the capture pipeline
+ * does not allocate any frame objects.
+ * If all pooled frames are in use, a new frame is still
+ * handed out so that capturing never stalls, but at most
+ * the capacity of frames are kept for reuse.
+ */
+public class VideoCaptureFramePool {
+    public static final int DEFAULT_CAPACITY = 4;
+
+    private final VideoCaptureFrame[] mFreeFrames;
+    private int mFreeCount;
+
+    // Total count of frame objects ever created by this
+    // pool. It stays unchanged in the steady state.
+    private int mAllocatedCount;
+
+    public VideoCaptureFramePool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public VideoCaptureFramePool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "[VideoCaptureFramePool] wrong argument: capacity must be positive");
+        }
+        mFreeFrames = new VideoCaptureFrame[capacity];
+    }
+
+    /**
+     * Obtain a frame with the reference count of 1.
+     * The caller owns the frame and must release it
+     * when it is no longer used.
+     */
+    public synchronized VideoCaptureFrame acquire() {
+        VideoCaptureFrame frame;
+        if (mFreeCount > 0) {
+            frame = mFreeFrames[--mFreeCount];
+            mFreeFrames[mFreeCount] = null;
+        } else {
+            frame = new VideoCaptureFrame(this);
+            mAllocatedCount++;
+        }
+
+        frame.onAcquired();
+        return frame;
+    }
+
+    synchronized void recycle(VideoCaptureFrame frame) {
+        if (mFreeCount < mFreeFrames.length) {
+            mFreeFrames[mFreeCount++] = frame;
+        }
+    }
+
+    public int getCapacity() {
+        return mFreeFrames.length;
+    }
+
+    public synchronized int getFreeCount() {
+        return mFreeCount;
+    }
+
+    public synchronized int getAllocatedCount() {
+        return mAllocatedCount;
+    }
+}
@@ -86,6 +86,23 @@ public class VideoModule {
         mChannelManager.enableOffscreenMode(channelId, enabled);
     }
 
+    /**
+     * Set how the channel schedules the frames that it
+     * cannot process in time.
+     * The default is FrameScheduler.MODE_LATEST, which
+     * always processes the latest frame and keeps the
+     * capture latency low on slow devices.
+     * @param channelId
+     * @param mode one of FrameScheduler.MODE_UNBOUNDED,
+     *             MODE_LATEST and MODE_BOUNDED
+     * @param capacity the max number of waiting frames
+     *                 in MODE_BOUNDED
+     * @see io.agora.framework.modules.channels.FrameScheduler
+     */
+    public void setFrameScheduleMode(int channelId, int mode, int capacity) {
+        mChannelManager.setFrameScheduleMode(channelId, mode, capacity);
+    }
+
     public void setPreprocessor(int channelId, IPreprocessor preprocessor) {
         if (getPreprocessor(channelId) == null) {
             Log.i(TAG, "current preprocessor has not been set");
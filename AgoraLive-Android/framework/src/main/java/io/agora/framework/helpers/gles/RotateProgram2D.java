@@ -5,6 +5,7 @@ import android.opengl.GLES20;
 import java.nio.FloatBuffer;
 
 import io.agora.framework.helpers.gles.core.Drawable2d;
+import io.agora.framework.helpers.gles.core.FramebufferRing;
 import io.agora.framework.helpers.gles.core.GlUtil;
 import io.agora.framework.helpers.gles.core.Program;
 
@@ -52,11 +53,9 @@ public class RotateProgram2D extends Program {
     private FloatBuffer mVertexBuffer;
     private FloatBuffer mTextureBuffer;
 
-    private int[] mFramebuffer = new int[1];
-    private int[] mTargetTexture = new int[1];
-
-    private int mWidth;
-    private int mHeight;
+    // Consecutive frames are rendered into different
+    // textures, see FramebufferRing.
+    private final FramebufferRing mFramebufferRing = new FramebufferRing();
 
     public RotateProgram2D() {
         super(CAMERA_INPUT_VERTEX_SHADER, FRAGMENT_SHADER_2D);
@@ -65,58 +64,11 @@ public class RotateProgram2D extends Program {
     }
 
     public void update(int width, int height) {
-        if (mWidth != width || mHeight != height) {
-            mWidth = width;
-            mHeight = height;
-            deleteFramebuffer();
-            bindFramebuffer(mWidth, mHeight);
-        }
-    }
-
-    private void bindFramebuffer(int width, int height) {
-        GLES20.glGenFramebuffers(1, mFramebuffer, 0);
-        GlUtil.checkGlError("glGenFramebuffers");
-
-        GLES20.glGenTextures(1, mTargetTexture, 0);
-        GlUtil.checkGlError("glGenTextures");
-
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTargetTexture[0]);
-        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
-                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
-
-        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
-                GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
-        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
-                GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
-        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
-                GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
-                GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
-
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebuffer[0]);
-        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER,
-                GLES20.GL_COLOR_ATTACHMENT0,
-                GLES20.GL_TEXTURE_2D,
-                mTargetTexture[0], 0);
-
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
-    }
-
-    private void deleteFramebuffer() {
-        if (mTargetTexture[0] != 0) {
-            GLES20.glDeleteTextures(1, mTargetTexture, 0);
-            mTargetTexture[0] = 0;
-        }
-
-        if (mFramebuffer[0] != 0) {
-            GLES20.glDeleteFramebuffers(1, mFramebuffer, 0);
-            mFramebuffer[0] = 0;
-        }
+        mFramebufferRing.update(width, height);
     }
 
     public void destroyProgram() {
-        deleteFramebuffer();
+        mFramebufferRing.release();
         release();
     }
 
@@ -173,9 +125,8 @@ public class RotateProgram2D extends Program {
         GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
         GLES20.glUniform1i(mTexSampleLocation, 0);
 
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebuffer[0]);
-        GlUtil.checkGlError("glBindFramebuffer");
-        GLES20.glViewport(0, 0, mWidth, mHeight);
+        int targetTexture = mFramebufferRing.bindNext();
+        GLES20.glViewport(0, 0, mFramebufferRing.getWidth(), mFramebufferRing.getHeight());
         GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
 
         GLES20.glDisableVertexAttribArray(mVertexCoordLocation);
@@ -185,6 +136,6 @@ public class RotateProgram2D extends Program {
         GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
         GLES20.glUseProgram(0);
 
-        return mTargetTexture[0];
+        return targetTexture;
     }
 }
@@ -0,0 +1,128 @@
+package io.agora.framework.helpers.gles.core;
+
+import android.opengl.GLES20;
+
+/**
+ * A ring of framebuffers with 2D texture attachments, that
+ * a render pass draws into in turn.
+ * The texture of a frame may still be read by consumers
+ * (like the encoder of the rtc engine) when the next frame
+ * is rendered. Using a different texture for the next frame
+ * lets both run at the same time, instead of the driver
+ * synchronizing them on a single texture.
+ * There is no fence between the consumers and the ring,
+ * the consumers read the textures in their own contexts
+ * and threads. The depth of the ring is the only slack: a
+ * texture is rendered into again after (count - 1) more
+ * frames, so a consumer must be done with a frame by then.
+ * Must be used in the thread that owns the OpenGL context.
+ */
+public class FramebufferRing {
+    public static final int DEFAULT_COUNT = 3;
+
+    private final int[] mFramebuffers;
+    private final int[] mTextures;
+
+    private int mWidth;
+    private int mHeight;
+
+    // The slot rendered into most recently, -1 if none
+    private int mCurrent = -1;
+
+    public FramebufferRing() {
+        this(DEFAULT_COUNT);
+    }
+
+    public FramebufferRing(int count) {
+        if (count < 2) {
+            throw new IllegalArgumentException(
+                    "[FramebufferRing] wrong argument: at least 2 framebuffers are needed");
+        }
+
+        mFramebuffers = new int[count];
+        mTextures = new int[count];
+    }
+
+    /**
+     * Recreate the framebuffers if the size changes.
+     */
+    public void update(int width, int height) {
+        if (mWidth != width || mHeight != height) {
+            mWidth = width;
+            mHeight = height;
+            deleteFramebuffers();
+            createFramebuffers(width, height);
+        }
+    }
+
+    private void createFramebuffers(int width, int height) {
+        GLES20.glGenFramebuffers(mFramebuffers.length, mFramebuffers, 0);
+        GlUtil.checkGlError("glGenFramebuffers");
+
+        GLES20.glGenTextures(mTextures.length, mTextures, 0);
+        GlUtil.checkGlError("glGenTextures");
+
+        for (int i = 0; i < mTextures.length; i++) {
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[i]);
+            GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                    GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+
+            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                    GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                    GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                    GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                    GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebuffers[i]);
+            GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER,
+                    GLES20.GL_COLOR_ATTACHMENT0,
+                    GLES20.GL_TEXTURE_2D,
+                    mTextures[i], 0);
+        }
+
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+    }
+
+    private void deleteFramebuffers() {
+        if (mTextures[0] != 0) {
+            GLES20.glDeleteTextures(mTextures.length, mTextures, 0);
+            for (int i = 0; i < mTextures.length; i++) mTextures[i] = 0;
+        }
+
+        if (mFramebuffers[0] != 0) {
+            GLES20.glDeleteFramebuffers(mFramebuffers.length, mFramebuffers, 0);
+            for (int i = 0; i < mFramebuffers.length; i++) mFramebuffers[i] = 0;
+        }
+
+        mCurrent = -1;
+    }
+
+    /**
+     * Bind the framebuffer of the next slot to be rendered into.
+     * @return the texture attached to the framebuffer
+     */
+    public int bindNext() {
+        mCurrent = (mCurrent + 1) % mFramebuffers.length;
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebuffers[mCurrent]);
+        GlUtil.checkGlError("glBindFramebuffer");
+        return mTextures[mCurrent];
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public void release() {
+        deleteFramebuffers();
+        mWidth = 0;
+        mHeight = 0;
+    }
+}
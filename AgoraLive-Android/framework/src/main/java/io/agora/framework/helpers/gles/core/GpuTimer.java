@@ -0,0 +1,108 @@
+package io.agora.framework.helpers.gles.core;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+/**
+ * Measures the GPU time of a sequence of GL commands with
+ * timer queries (GL_EXT_disjoint_timer_query).
+ * Query results become available a few frames later, so
+ * every timer keeps a small ring of query objects and the
+ * results are collected before the objects are reused.
+ * Must be created and used in the thread that owns the
+ * current OpenGL context.
+ */
+public class GpuTimer {
+    private static final String EXTENSION_TIMER_QUERY = "GL_EXT_disjoint_timer_query";
+
+    // Constants defined by GL_EXT_disjoint_timer_query
+    private static final int GL_TIME_ELAPSED_EXT = 0x88BF;
+    private static final int GL_GPU_DISJOINT_EXT = 0x8FBB;
+
+    private static final int QUERY_COUNT = 4;
+
+    private final int[] mQueries = new int[QUERY_COUNT];
+    private final boolean[] mPending = new boolean[QUERY_COUNT];
+    private final int[] mResult = new int[1];
+    private int mNext;
+    private boolean mActive;
+
+    /**
+     * Timer queries are only available for OpenGL ES 3.0
+     * contexts that support the disjoint timer query extension.
+     */
+    public static boolean isSupported() {
+        String version = GLES20.glGetString(GLES20.GL_VERSION);
+        String extensions = GLES20.glGetString(GLES20.GL_EXTENSIONS);
+        return version != null && extensions != null &&
+                !version.startsWith("OpenGL ES 2") &&
+                extensions.contains(EXTENSION_TIMER_QUERY);
+    }
+
+    public GpuTimer() {
+        GLES30.glGenQueries(QUERY_COUNT, mQueries, 0);
+        GlUtil.checkGlError("glGenQueries");
+    }
+
+    /**
+     * Start timing the GL commands that follow.
+     * @return false if all the queries are still waiting
+     * for results, and nothing is measured this time.
+     */
+    public boolean begin() {
+        if (mPending[mNext] || mActive) {
+            return false;
+        }
+
+        GLES30.glBeginQuery(GL_TIME_ELAPSED_EXT, mQueries[mNext]);
+        mActive = true;
+        return true;
+    }
+
+    public void end() {
+        if (!mActive) {
+            return;
+        }
+
+        GLES30.glEndQuery(GL_TIME_ELAPSED_EXT);
+        mPending[mNext] = true;
+        mNext = (mNext + 1) % QUERY_COUNT;
+        mActive = false;
+    }
+
+    /**
+     * Collect the oldest available result.
+     * @return the GPU time in nanoseconds, or -1 if no result
+     * is available, or the result is invalid because the GPU
+     * has been disjoint (like frequency changes).
+     */
+    public long poll() {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            // From the oldest query to the newest one
+            int index = (mNext + i) % QUERY_COUNT;
+            if (!mPending[index]) {
+                continue;
+            }
+
+            GLES30.glGetQueryObjectuiv(mQueries[index],
+                    GLES30.GL_QUERY_RESULT_AVAILABLE, mResult, 0);
+            if (mResult[0] == GLES20.GL_FALSE) {
+                return -1;
+            }
+
+            GLES30.glGetQueryObjectuiv(mQueries[index],
+                    GLES30.GL_QUERY_RESULT, mResult, 0);
+            long elapsed = mResult[0] & 0xFFFFFFFFL;
+            mPending[index] = false;
+
+            GLES20.glGetIntegerv(GL_GPU_DISJOINT_EXT, mResult, 0);
+            return mResult[0] == GLES20.GL_FALSE ? elapsed : -1;
+        }
+
+        return -1;
+    }
+
+    public void release() {
+        GLES30.glDeleteQueries(QUERY_COUNT, mQueries, 0);
+    }
+}
@@ -84,6 +84,11 @@ public class ChannelManager {
         mChannels[channelId].enableOffscreenMode(enable);
     }
 
+    public void setFrameScheduleMode(int channelId, int mode, int capacity) {
+        ensureChannelRunning(channelId);
+        mChannels[channelId].setFrameScheduleMode(mode, capacity);
+    }
+
     public void setPreprocessor(int channelId, IPreprocessor preprocessor) {
         checkChannelId(channelId);
         if (mChannels[channelId] == null) {
@@ -0,0 +1,195 @@
+package io.agora.framework.modules.channels;
+
+import java.util.ArrayDeque;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+
+/**
+ * Decides which of the frames pushed by the producer are
+ * processed by the video channel.
+ * Frames are queued here instead of being posted to the
+ * channel thread one by one, so that a slow preprocessor
+ * or consumer does not make the channel Looper queue grow
+ * without bound.
+ */
+public class FrameScheduler {
+    /**
+     * Every frame is processed, in the order of capture.
+     * The queue is not bounded (the legacy behavior).
+     */
+    public static final int MODE_UNBOUNDED = 0;
+
+    /**
+     * A single-slot mailbox, a frame waiting to be processed
+     * is replaced by the newer one.
+     */
+    public static final int MODE_LATEST = 1;
+
+    /**
+     * At most a number of frames wait to be processed, the
+     * oldest frame is dropped when the queue is full.
+     */
+    public static final int MODE_BOUNDED = 2;
+
+    public static final int DEFAULT_BOUNDED_CAPACITY = 3;
+
+    // Weight of the latest sample in the average latency
+    private static final float LATENCY_SMOOTH_FACTOR = 0.1f;
+
+    private final ArrayDeque<VideoCaptureFrame> mQueue = new ArrayDeque<>();
+    private int mMode = MODE_LATEST;
+    private int mCapacity = 1;
+    private boolean mDrainPending;
+
+    private int mMaxQueueDepth;
+    private long mProcessedFrames;
+    private long mCoalescedFrames;
+    private long mLatestLatencyMs;
+    private long mMaxLatencyMs;
+    private float mAverageLatencyMs;
+
+    /**
+     * @param mode one of MODE_UNBOUNDED, MODE_LATEST and MODE_BOUNDED
+     * @param capacity the max number of waiting frames,
+     *                 only used in MODE_BOUNDED
+     */
+    public synchronized void setMode(int mode, int capacity) {
+        switch (mode) {
+            case MODE_UNBOUNDED:
+                mCapacity = Integer.MAX_VALUE;
+                break;
+            case MODE_LATEST:
+                mCapacity = 1;
+                break;
+            case MODE_BOUNDED:
+                if (capacity <= 0) {
+                    throw new IllegalArgumentException(
+                            "[FrameScheduler] wrong argument: capacity must be positive");
+                }
+                mCapacity = capacity;
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "[FrameScheduler] wrong argument: Undefined schedule mode");
+        }
+
+        mMode = mode;
+        trimQueue(mCapacity);
+    }
+
+    public synchronized int getMode() {
+        return mMode;
+    }
+
+    /**
+     * Queue a frame, called in the producer's thread.
+     * The scheduler takes the ownership of the frame.
+     * @return true if the channel thread should be signaled
+     * to drain the queue.
+     */
+    public synchronized boolean offer(VideoCaptureFrame frame) {
+        trimQueue(mCapacity - 1);
+        mQueue.addLast(frame);
+        if (mQueue.size() > mMaxQueueDepth) {
+            mMaxQueueDepth = mQueue.size();
+        }
+
+        if (mDrainPending) {
+            return false;
+        }
+
+        mDrainPending = true;
+        return true;
+    }
+
+    private void trimQueue(int size) {
+        while (mQueue.size() > size) {
+            mQueue.pollFirst().release();
+            mCoalescedFrames++;
+        }
+    }
+
+    /**
+     * Take the next frame to process in the channel thread.
+     * The caller owns the frame returned.
+     */
+    public synchronized VideoCaptureFrame poll() {
+        return mQueue.pollFirst();
+    }
+
+    /**
+     * Called after a frame is polled and processed.
+     * @return true if there are more frames waiting and
+     * the channel thread should be signaled again.
+     */
+    public synchronized boolean finishDrain() {
+        mDrainPending = !mQueue.isEmpty();
+        return mDrainPending;
+    }
+
+    /**
+     * Release all the waiting frames.
+     */
+    synchronized void clear() {
+        while (!mQueue.isEmpty()) {
+            mQueue.pollFirst().release();
+        }
+        mDrainPending = false;
+    }
+
+    synchronized void recordLatency(long latencyMs) {
+        mProcessedFrames++;
+        mLatestLatencyMs = latencyMs;
+        if (latencyMs > mMaxLatencyMs) {
+            mMaxLatencyMs = latencyMs;
+        }
+
+        mAverageLatencyMs = mProcessedFrames == 1 ? latencyMs :
+                mAverageLatencyMs + (latencyMs - mAverageLatencyMs) * LATENCY_SMOOTH_FACTOR;
+    }
+
+    public synchronized int getQueueDepth() {
+        return mQueue.size();
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return mMaxQueueDepth;
+    }
+
+    public synchronized long getProcessedFrameCount() {
+        return mProcessedFrames;
+    }
+
+    /**
+     * @return the number of frames discarded because newer
+     * frames arrived before they could be processed.
+     */
+    public synchronized long getCoalescedFrameCount() {
+        return mCoalescedFrames;
+    }
+
+    /**
+     * Latency from the capture of a frame to the moment all
+     * consumers have been given that frame, in milliseconds.
+     */
+    public synchronized long getLatestLatencyMs() {
+        return mLatestLatencyMs;
+    }
+
+    public synchronized long getMaxLatencyMs() {
+        return mMaxLatencyMs;
+    }
+
+    public synchronized float getAverageLatencyMs() {
+        return mAverageLatencyMs;
+    }
+
+    public synchronized void resetStatistics() {
+        mMaxQueueDepth = mQueue.size();
+        mProcessedFrames = 0;
+        mCoalescedFrames = 0;
+        mLatestLatencyMs = 0;
+        mMaxLatencyMs = 0;
+        mAverageLatencyMs = 0;
+    }
+}
@@ -0,0 +1,10 @@
+package io.agora.framework.modules.channels;
+
+public interface FrameTimingListener {
+    /**
+     * Called periodically in the video channel thread
+     * with the timing statistics of the latest frames.
+     * @param report rolling percentiles of every stage
+     */
+    void onFrameTimingReport(FrameTimingReport report);
+}
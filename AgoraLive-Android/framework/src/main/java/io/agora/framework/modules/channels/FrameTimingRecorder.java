@@ -0,0 +1,190 @@
+package io.agora.framework.modules.channels;
+
+import android.util.Log;
+
+import java.util.Arrays;
+
+import io.agora.framework.helpers.gles.core.GpuTimer;
+
+/**
+ * Records the time spent in every stage of the video channel
+ * for each frame, and keeps the samples of the latest frames
+ * to calculate rolling percentiles.
+ * CPU time is the time the channel thread spends in a stage,
+ * GPU time is measured by GL timer queries if enabled and
+ * supported by the device.
+ * All methods must be called in the video channel thread.
+ */
+public class FrameTimingRecorder {
+    private static final String TAG = FrameTimingRecorder.class.getSimpleName();
+
+    public static final int STAGE_PREPROCESS = 0;
+    public static final int STAGE_ROTATE = 1;
+    public static final int STAGE_ON_SCREEN = 2;
+    public static final int STAGE_OFF_SCREEN = 3;
+    static final int STAGE_COUNT = 4;
+
+    public static final int DEFAULT_REPORT_INTERVAL = 5000;
+
+    // Number of latest frames the percentiles are calculated from
+    private static final int WINDOW_SIZE = 256;
+
+    private static final float NANOS_PER_MILLI = 1000000f;
+
+    private final int mChannelId;
+
+    private final SampleWindow[] mCpuSamples = new SampleWindow[STAGE_COUNT];
+    private final SampleWindow[] mGpuSamples = new SampleWindow[STAGE_COUNT];
+    private final long[] mStageStart = new long[STAGE_COUNT];
+    private final long[] mSortBuffer = new long[WINDOW_SIZE];
+
+    private GpuTimer[] mGpuTimers;
+
+    private FrameTimingListener mListener;
+    private long mReportInterval = DEFAULT_REPORT_INTERVAL;
+    private long mLastReportTime;
+
+    FrameTimingRecorder(int channelId) {
+        mChannelId = channelId;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mCpuSamples[i] = new SampleWindow();
+            mGpuSamples[i] = new SampleWindow();
+        }
+    }
+
+    static String stageName(int stage) {
+        switch (stage) {
+            case STAGE_PREPROCESS: return "preprocess";
+            case STAGE_ROTATE: return "rotate";
+            case STAGE_ON_SCREEN: return "on_screen";
+            case STAGE_OFF_SCREEN: return "off_screen";
+            default: return "undefined";
+        }
+    }
+
+    /**
+     * @param listener receives a report every interval, null
+     *                 to stop reporting
+     * @param intervalMs report interval in milliseconds
+     * @param gpuTiming whether the GPU time of stages is measured,
+     *                  which takes effect only if the device
+     *                  supports GL timer queries
+     */
+    void setListener(FrameTimingListener listener, long intervalMs, boolean gpuTiming) {
+        mListener = listener;
+        mReportInterval = intervalMs > 0 ? intervalMs : DEFAULT_REPORT_INTERVAL;
+        mLastReportTime = System.currentTimeMillis();
+
+        if (gpuTiming && mGpuTimers == null) {
+            createGpuTimers();
+        } else if (!gpuTiming && mGpuTimers != null) {
+            releaseGpuTimers();
+        }
+    }
+
+    boolean isEnabled() {
+        return mListener != null;
+    }
+
+    private void createGpuTimers() {
+        if (!GpuTimer.isSupported()) {
+            Log.i(TAG, "GL timer query is not supported, GPU time is not measured");
+            return;
+        }
+
+        mGpuTimers = new GpuTimer[STAGE_COUNT];
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mGpuTimers[i] = new GpuTimer();
+        }
+    }
+
+    void releaseGpuTimers() {
+        if (mGpuTimers != null) {
+            for (GpuTimer timer : mGpuTimers) {
+                timer.release();
+            }
+            mGpuTimers = null;
+        }
+    }
+
+    void beginStage(int stage) {
+        if (mGpuTimers != null) {
+            mGpuTimers[stage].begin();
+        }
+        mStageStart[stage] = System.nanoTime();
+    }
+
+    void endStage(int stage) {
+        mCpuSamples[stage].add(System.nanoTime() - mStageStart[stage]);
+        if (mGpuTimers != null) {
+            mGpuTimers[stage].end();
+        }
+    }
+
+    /**
+     * Called after all stages of a frame are done.
+     */
+    void finishFrame() {
+        if (mGpuTimers != null) {
+            for (int i = 0; i < STAGE_COUNT; i++) {
+                long elapsed = mGpuTimers[i].poll();
+                if (elapsed >= 0) mGpuSamples[i].add(elapsed);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (mListener != null && now - mLastReportTime >= mReportInterval) {
+            mLastReportTime = now;
+            mListener.onFrameTimingReport(createReport());
+        }
+    }
+
+    FrameTimingReport createReport() {
+        int pCount = FrameTimingReport.PERCENTILE_COUNT;
+        float[][] cpuTimes = new float[STAGE_COUNT][pCount];
+        float[][] gpuTimes = new float[STAGE_COUNT][pCount];
+        int frames = 0;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            percentiles(mCpuSamples[i], cpuTimes[i]);
+            percentiles(mGpuSamples[i], gpuTimes[i]);
+            frames = Math.max(frames, mCpuSamples[i].size());
+        }
+        return new FrameTimingReport(mChannelId, frames, cpuTimes, gpuTimes);
+    }
+
+    private void percentiles(SampleWindow window, float[] out) {
+        int size = window.size();
+        if (size == 0) {
+            Arrays.fill(out, -1);
+            return;
+        }
+
+        System.arraycopy(window.samples, 0, mSortBuffer, 0, size);
+        Arrays.sort(mSortBuffer, 0, size);
+        out[FrameTimingReport.PERCENTILE_50] = mSortBuffer[rank(size, 50)] / NANOS_PER_MILLI;
+        out[FrameTimingReport.PERCENTILE_95] = mSortBuffer[rank(size, 95)] / NANOS_PER_MILLI;
+        out[FrameTimingReport.PERCENTILE_99] = mSortBuffer[rank(size, 99)] / NANOS_PER_MILLI;
+    }
+
+    // Nearest-rank index of a percentile in a sorted array
+    private static int rank(int size, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return Math.max(0, Math.min(size - 1, rank));
+    }
+
+    private static class SampleWindow {
+        final long[] samples = new long[WINDOW_SIZE];
+        private int mNext;
+        private int mSize;
+
+        void add(long sample) {
+            samples[mNext] = sample;
+            mNext = (mNext + 1) % WINDOW_SIZE;
+            if (mSize < WINDOW_SIZE) mSize++;
+        }
+
+        int size() {
+            return mSize;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.agora.framework.modules.channels;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Rolling percentiles of the time spent in each stage
+ * of the video channel pipeline, in milliseconds.
+ * GPU times are -1 if the GPU time of a stage is not
+ * measured or not available.
+ */
+public class FrameTimingReport {
+    public static final int PERCENTILE_50 = 0;
+    public static final int PERCENTILE_95 = 1;
+    public static final int PERCENTILE_99 = 2;
+    static final int PERCENTILE_COUNT = 3;
+
+    private final int mChannelId;
+    private final int mFrameCount;
+    private final float[][] mCpuTimes;
+    private final float[][] mGpuTimes;
+
+    FrameTimingReport(int channelId, int frameCount, float[][] cpuTimes, float[][] gpuTimes) {
+        mChannelId = channelId;
+        mFrameCount = frameCount;
+        mCpuTimes = cpuTimes;
+        mGpuTimes = gpuTimes;
+    }
+
+    public int getChannelId() {
+        return mChannelId;
+    }
+
+    /**
+     * @return the number of frames the percentiles are
+     * calculated from.
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @param stage one of FrameTimingRecorder.STAGE_* values
+     * @param percentile one of PERCENTILE_50, PERCENTILE_95
+     *                   and PERCENTILE_99
+     */
+    public float getCpuTimeMs(int stage, int percentile) {
+        return mCpuTimes[stage][percentile];
+    }
+
+    public float getGpuTimeMs(int stage, int percentile) {
+        return mGpuTimes[stage][percentile];
+    }
+
+    public @NonNull String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("FrameTimingReport{")
+                .append("channel=").append(ChannelManager.ChannelID.toString(mChannelId))
+                .append(", frames=").append(mFrameCount);
+        for (int stage = 0; stage < FrameTimingRecorder.STAGE_COUNT; stage++) {
+            builder.append(", ").append(FrameTimingRecorder.stageName(stage))
+                    .append("=cpu[");
+            appendPercentiles(builder, mCpuTimes[stage]);
+            builder.append("]");
+            if (mGpuTimes[stage][PERCENTILE_50] >= 0) {
+                builder.append(" gpu[");
+                appendPercentiles(builder, mGpuTimes[stage]);
+                builder.append("]");
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    private void appendPercentiles(StringBuilder builder, float[] times) {
+        builder.append(String.format(Locale.US, "%.2f/%.2f/%.2f",
+                times[PERCENTILE_50], times[PERCENTILE_95], times[PERCENTILE_99]));
+    }
+}
@@ -37,12 +37,24 @@ public class VideoChannel extends HandlerThread {
 
     private Handler mHandler;
 
+    // Coalesces the frames from the producer if the
+    // channel cannot process them in time.
+    private final FrameScheduler mFrameScheduler = new FrameScheduler();
+
+    // Only accessed in the channel thread
+    private final FrameTimingRecorder mTimingRecorder;
+
     private ChannelContext mContext;
     private EGLSurface mDummyEglSurface;
 
+    // Whether the preprocessor or any consumer needs the
+    // CPU image of the frames, checked after every frame.
+    private boolean mImageDataRequired = true;
+
     public VideoChannel(Context context, int id) {
         super(ChannelManager.ChannelID.toString(id));
         mChannelId = id;
+        mTimingRecorder = new FrameTimingRecorder(id);
         mContext = new ChannelContext();
         mContext.setContext(context);
     }
@@ -72,7 +84,10 @@ public class VideoChannel extends HandlerThread {
     }
 
     private void initOpenGL() {
-        EglCore eglCore = new EglCore();
+        // OpenGL ES 3.0 is preferred for the GPU timers of
+        // the frame timing, see GpuTimer. EglCore falls back
+        // to 2.0 on devices without 3.0.
+        EglCore eglCore = new EglCore(null, EglCore.FLAG_TRY_GLES3);
         mContext.setEglCore(eglCore);
         mDummyEglSurface = eglCore.createOffscreenSurface(1, 1);
         eglCore.makeCurrent(mDummyEglSurface);
@@ -95,6 +110,7 @@ public class VideoChannel extends HandlerThread {
         Log.i(TAG, "channel opengl release");
         releasePreprocessor();
         releaseRotateProcessor();
+        mTimingRecorder.releaseGpuTimers();
         releaseOpenGL();
     }
 
@@ -141,6 +157,34 @@ public class VideoChannel extends HandlerThread {
         return mHandler;
     }
 
+    /**
+     * @return the scheduler that queues frames pushed by the
+     * producer, also the source of frame queue metrics.
+     */
+    public FrameScheduler getFrameScheduler() {
+        return mFrameScheduler;
+    }
+
+    void setFrameScheduleMode(int mode, int capacity) {
+        mFrameScheduler.setMode(mode, capacity);
+    }
+
+    /**
+     * Report the time spent in each stage of the channel
+     * periodically.
+     * @param listener called in the channel thread, null
+     *                 to stop timing the frames
+     * @param intervalMs the report interval in milliseconds
+     * @param gpuTiming whether to measure the GPU time of
+     *                  each stage with GL timer queries, which
+     *                  takes effect only if the device supports
+     */
+    public void setFrameTimingListener(FrameTimingListener listener,
+                                       long intervalMs, boolean gpuTiming) {
+        checkThreadRunningState();
+        mHandler.post(() -> mTimingRecorder.setListener(listener, intervalMs, gpuTiming));
+    }
+
     void stopChannel() {
         Log.i(TAG, "StopChannel");
         if (mProducer != null) {
@@ -156,6 +200,7 @@ public class VideoChannel extends HandlerThread {
         mOffScreenConsumers.clear();
 
         removeOnScreenConsumer();
+        mFrameScheduler.clear();
         quit();
     }
 
@@ -209,20 +254,32 @@ public class VideoChannel extends HandlerThread {
         checkThreadRunningState();
 
         mHandler.post(() -> {
-            if (type == IVideoConsumer.TYPE_ON_SCREEN) {
-                if (!mOnScreenConsumers.contains(consumer)) {
-                    Log.d(TAG, "On-screen consumer connected:" + consumer);
-                    mOnScreenConsumers.add(consumer);
-                }
-            } else if (type == IVideoConsumer.TYPE_OFF_SCREEN) {
-                if (!mOffScreenConsumers.contains(consumer)) {
-                    Log.d(TAG, "Off-screen consumer connected:" + consumer);
-                    mOffScreenConsumers.add(consumer);
-                }
+            if (addConsumer(consumer, type)) {
+                Log.d(TAG, (type == IVideoConsumer.TYPE_ON_SCREEN ? "On-screen" : "Off-screen") +
+                        " consumer connected:" + consumer);
             }
         });
     }
 
+    /**
+     * Called in the channel thread
+     * @return false if the consumer has been connected
+     */
+    boolean addConsumer(IVideoConsumer consumer, int type) {
+        List<IVideoConsumer> consumers;
+        if (type == IVideoConsumer.TYPE_ON_SCREEN) {
+            consumers = mOnScreenConsumers;
+        } else if (type == IVideoConsumer.TYPE_OFF_SCREEN) {
+            consumers = mOffScreenConsumers;
+        } else {
+            return false;
+        }
+
+        if (consumers.contains(consumer)) return false;
+        consumers.add(consumer);
+        return true;
+    }
+
     public void disconnectConsumer(IVideoConsumer consumer) {
         checkThreadRunningState();
 
@@ -250,40 +307,116 @@ public class VideoChannel extends HandlerThread {
         }
     }
 
+    /**
+     * Process the frame and dispatch it to all consumers.
+     * The frame is owned by the caller and is only valid
+     * during this call; the preprocessor or consumers that
+     * need to keep it longer should retain the frame.
+     * @param frame the frame to be processed
+     */
     public void pushVideoFrame(VideoCaptureFrame frame) {
         checkThreadRunningState();
+        long captureTimestamp = frame.timestamp;
+
+        boolean timing = mTimingRecorder.isEnabled();
 
         if (mPreprocessor != null) {
+            if (timing) mTimingRecorder.beginStage(FrameTimingRecorder.STAGE_PREPROCESS);
             frame = mPreprocessor.onPreProcessFrame(frame, getChannelContext());
             makeDummySurfaceCurrent();
+            if (timing) mTimingRecorder.endStage(FrameTimingRecorder.STAGE_PREPROCESS);
         }
 
-        if (mRotateProcessor != null) {
-            // Rotate the image to the final state.
-            // Further rotation procedure will not be
-            // necessary for all consumers.
-            frame = mRotateProcessor.process(frame, getChannelContext());
-            makeDummySurfaceCurrent();
+        boolean offScreenActive = (mOnScreenConsumers.size() > 0 || mOffScreenMode) &&
+                mOffScreenConsumers.size() > 0;
+
+        // The pooled frame of the rotated texture, owned by the channel
+        VideoCaptureFrame rotated = null;
+        if (mRotateProcessor != null && !mRotateProcessor.isUpright(frame)) {
+            if (timing) mTimingRecorder.beginStage(FrameTimingRecorder.STAGE_ROTATE);
+            if (offScreenActive) {
+                // Rotate the image to the final state.
+                // Off-screen consumers like the rtc engine
+                // need the upright texture.
+                rotated = mRotateProcessor.process(frame, getChannelContext());
+                frame = rotated;
+                makeDummySurfaceCurrent();
+            } else {
+                // On-screen consumers can draw the original
+                // texture with the rotation, without the
+                // texture being rendered once more.
+                frame = mRotateProcessor.foldRotation(frame);
+            }
+            if (timing) mTimingRecorder.endStage(FrameTimingRecorder.STAGE_ROTATE);
         }
 
         if (mOnScreenConsumers.size() > 0) {
-            // Currently we only render to the latest
-            // registered on-screen consumer.
-            // Multiple on-screen consumers are not supported yet.
-            mOnScreenConsumers.get(mOnScreenConsumers.size() - 1).onConsumeFrame(frame, mContext);
-            makeDummySurfaceCurrent();
+            // The processed texture is shared by all on-screen
+            // consumers, each of them only draws the texture
+            // to its own window surface.
+            if (timing) mTimingRecorder.beginStage(FrameTimingRecorder.STAGE_ON_SCREEN);
+            for (int i = 0; i < mOnScreenConsumers.size(); i++) {
+                IVideoConsumer consumer = mOnScreenConsumers.get(i);
+                if (consumer.onMeasuredWidth() <= 0 ||
+                        consumer.onMeasuredHeight() <= 0) {
+                    // Nothing can be seen on the surface
+                    continue;
+                }
+
+                consumer.onConsumeFrame(frame, mContext);
+                makeDummySurfaceCurrent();
+            }
+            if (timing) mTimingRecorder.endStage(FrameTimingRecorder.STAGE_ON_SCREEN);
         }
 
-        if (mOnScreenConsumers.size() > 0 || mOffScreenMode) {
+        if (offScreenActive) {
             // If there is no on-screen consumers connected,
             // the off-screen consumers cannot actually be
             // called, unless the channel runs in off-screen
             // mode.
-            for (IVideoConsumer consumer : mOffScreenConsumers) {
-                consumer.onConsumeFrame(frame, mContext);
+            // Iterate by index to avoid creating an iterator
+            // for every frame.
+            if (timing) mTimingRecorder.beginStage(FrameTimingRecorder.STAGE_OFF_SCREEN);
+            for (int i = 0; i < mOffScreenConsumers.size(); i++) {
+                mOffScreenConsumers.get(i).onConsumeFrame(frame, mContext);
                 makeDummySurfaceCurrent();
             }
+            if (timing) mTimingRecorder.endStage(FrameTimingRecorder.STAGE_OFF_SCREEN);
+        }
+
+        if (rotated != null) {
+            rotated.release();
         }
+
+        if (timing) mTimingRecorder.finishFrame();
+        mFrameScheduler.recordLatency(System.currentTimeMillis() - captureTimestamp);
+        checkImageDataRequirement();
+    }
+
+    private void checkImageDataRequirement() {
+        boolean required = mPreprocessor != null && mPreprocessor.requiresImageData();
+        for (int i = 0; !required && i < mOnScreenConsumers.size(); i++) {
+            required = mOnScreenConsumers.get(i).requiresImageData();
+        }
+        for (int i = 0; !required && i < mOffScreenConsumers.size(); i++) {
+            required = mOffScreenConsumers.get(i).requiresImageData();
+        }
+
+        if (required != mImageDataRequired) {
+            mImageDataRequired = required;
+            Log.i(TAG, "image data required: " + required);
+            onImageDataRequirementChanged(required);
+        }
+    }
+
+    /**
+     * Called in the channel thread when the preprocessor and
+     * consumers start or stop needing the CPU images of the
+     * frames, sub classes may stop producing the images
+     * when no one needs them.
+     */
+    protected void onImageDataRequirementChanged(boolean required) {
+
     }
 
     private void makeDummySurfaceCurrent() {
@@ -293,7 +426,8 @@ public class VideoChannel extends HandlerThread {
         // will remain consistent even if the surfaces or
         // pixel buffers used by preprocessors or consumers
         // are destroyed in or out of the OpenGL threads.
-        if (!mContext.isCurrent(mDummyEglSurface)) {
+        // There is no surface before OpenGL is initialized.
+        if (mDummyEglSurface != null && !mContext.isCurrent(mDummyEglSurface)) {
             mContext.makeCurrent(mDummyEglSurface);
         }
     }
@@ -25,10 +25,23 @@ public abstract class BaseWindowConsumer implements IVideoConsumer {
     private float[] mMVPMatrix = new float[16];
     protected boolean mvpInit;
 
+    // The sizes the current MVP matrix is calculated for
+    private int mMvpSurfaceWidth;
+    private int mMvpSurfaceHeight;
+    private int mMvpFrameWidth;
+    private int mMvpFrameHeight;
+    private float[] mMvpVertexTransform;
+
     BaseWindowConsumer(VideoModule videoModule) {
         this.videoModule = videoModule;
     }
 
+    @Override
+    public boolean requiresImageData() {
+        // Only draws the textures
+        return false;
+    }
+
     @Override
     public void connectChannel(int channelId) {
         videoChannel = videoModule.connectConsumer(this, channelId, IVideoConsumer.TYPE_ON_SCREEN);
@@ -72,12 +85,26 @@ public abstract class BaseWindowConsumer implements IVideoConsumer {
         int surfaceHeight = onMeasuredHeight();
         GLES20.glViewport(0, 0, surfaceWidth, surfaceHeight);
 
-        if (!mvpInit) {
+        int frameWidth = frame.format.getWidth();
+        int frameHeight = frame.format.getHeight();
+        if (!mvpInit || surfaceWidth != mMvpSurfaceWidth ||
+                surfaceHeight != mMvpSurfaceHeight ||
+                frameWidth != mMvpFrameWidth ||
+                frameHeight != mMvpFrameHeight ||
+                frame.vertexTransform != mMvpVertexTransform) {
+            // Every consumer caches its own matrix, which only
+            // changes when the surface or frame size changes,
+            // or the rotation folded into the frame changes.
             mMVPMatrix = GlUtil.changeMVPMatrix(
-                    GlUtil.IDENTITY_MATRIX,
+                    frame.vertexTransform != null ?
+                            frame.vertexTransform : GlUtil.IDENTITY_MATRIX,
                     surfaceWidth, surfaceHeight,
-                    frame.format.getWidth(),
-                    frame.format.getHeight());
+                    frameWidth, frameHeight);
+            mMvpVertexTransform = frame.vertexTransform;
+            mMvpSurfaceWidth = surfaceWidth;
+            mMvpSurfaceHeight = surfaceHeight;
+            mMvpFrameWidth = frameWidth;
+            mMvpFrameHeight = frameHeight;
             mvpInit = true;
         }
 
@@ -7,7 +7,19 @@ public interface IVideoConsumer {
     int TYPE_ON_SCREEN = 0;
     int TYPE_OFF_SCREEN = 1;
 
+    /**
+     * Called in the video channel thread for every frame.
+     * The frame may be recycled after this method returns,
+     * call frame.retain() and frame.release() if the frame
+     * is used asynchronously.
+     */
     void onConsumeFrame(VideoCaptureFrame frame, VideoChannel.ChannelContext context);
+    /**
+     * @return whether the consumer reads the CPU image of
+     * the frames, instead of only the textures.
+     */
+    boolean requiresImageData();
+
     void connectChannel(int channelId);
     void disconnectChannel(int channelId);
 
@@ -10,6 +10,13 @@ public interface IPreprocessor {
 
     void enablePreProcess(boolean enabled);
 
+    /**
+     * @return whether the preprocessor currently reads the
+     * CPU image of the frames. If not, the capture may only
+     * produce the textures, and the frame image is null.
+     */
+    boolean requiresImageData();
+
     void releasePreprocessor(VideoChannel.ChannelContext context);
 
     void setBlurValue(float blur);
@@ -8,9 +8,9 @@ import android.view.Surface;
 import android.view.WindowManager;
 
 import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.capture.video.camera.VideoCaptureFramePool;
 import io.agora.framework.helpers.gles.RotateProgram2D;
 import io.agora.framework.helpers.gles.RotateProgramOES;
-import io.agora.framework.helpers.gles.core.GlUtil;
 import io.agora.framework.modules.channels.VideoChannel;
 
 public class RotateProcessor {
@@ -20,6 +20,12 @@ public class RotateProcessor {
     private WindowManager mWindowManager;
     private int mCurrentSurfaceRotation = -1;
     private float[] mRotateMVPMatrix;
+    private int mTargetWidth;
+    private int mTargetHeight;
+
+    // The rotated frames are taken from the pool, so that
+    // the source frame is left as it is for its holders.
+    private final VideoCaptureFramePool mFramePool = new VideoCaptureFramePool();
 
     public void init(VideoChannel.ChannelContext context) {
         mRotateProgram2D = new RotateProgram2D();
@@ -31,8 +37,72 @@ public class RotateProcessor {
         Matrix.setIdentityM(mRotateMVPMatrix, 0);
     }
 
-    public VideoCaptureFrame process(VideoCaptureFrame frame,
+    /**
+     * @return true if the frame is already in the final
+     * orientation, and no rotation is needed at all.
+     * Camera textures usually come with a transformation
+     * that flips them, which the consumers apply anyway
+     * when sampling the texture. Only a transformation
+     * that swaps the axes changes the orientation.
+     */
+    public boolean isUpright(VideoCaptureFrame frame) {
+        return frame.rotation == 0 && getSurfaceRotation() == 0 &&
+                !swapsAxes(frame.textureTransform);
+    }
+
+    static boolean swapsAxes(float[] transform) {
+        // The matrix is column-major, the texture axes are
+        // swapped if x depends on t or y depends on s.
+        return transform != null && (transform[1] != 0 || transform[4] != 0);
+    }
+
+    /**
+     * Render the frame to a texture in the final orientation.
+     * @return a pooled frame of the rotated texture, owned by
+     * the caller, which must release it after use
+     */
+    public VideoCaptureFrame process(VideoCaptureFrame source,
                                         VideoChannel.ChannelContext context) {
+        VideoCaptureFrame frame = mFramePool.acquire();
+        frame.copyFrom(source);
+        updateTargetSize(frame);
+
+        if (frame.format.getTexFormat() == GLES20.GL_TEXTURE_2D) {
+            mRotateProgram2D.update(mTargetWidth, mTargetHeight);
+            frame.textureId = mRotateProgram2D.drawRotateFrame(
+                    frame.textureId, frame.textureTransform, mRotateMVPMatrix);
+        } else if (frame.format.getTexFormat() == GLES11Ext.GL_TEXTURE_EXTERNAL_OES) {
+            mRotateProgramOES.update(mTargetWidth, mTargetHeight);
+            frame.textureId = mRotateProgramOES.drawRotateFrame(
+                    frame.textureId, frame.textureTransform, mRotateMVPMatrix);
+        }
+
+        frame.rotation = 0;
+        frame.format.setWidth(mTargetWidth);
+        frame.format.setHeight(mTargetHeight);
+        frame.format.setTexFormat(GLES20.GL_TEXTURE_2D);
+        Matrix.setIdentityM(frame.textureTransform, 0);
+
+        return frame;
+    }
+
+    /**
+     * Instead of rendering the rotated frame, leave the texture
+     * as it is and attach the rotation to the frame as a vertex
+     * transformation, which is applied by on-screen consumers
+     * when they draw the frame. It saves a full-frame render
+     * pass if no consumer needs the upright texture itself.
+     */
+    public VideoCaptureFrame foldRotation(VideoCaptureFrame frame) {
+        updateTargetSize(frame);
+        frame.rotation = 0;
+        frame.format.setWidth(mTargetWidth);
+        frame.format.setHeight(mTargetHeight);
+        frame.vertexTransform = mRotateMVPMatrix;
+        return frame;
+    }
+
+    private void updateTargetSize(VideoCaptureFrame frame) {
         int desiredWidth = frame.format.getWidth();
         int desiredHeight = frame.format.getHeight();
 
@@ -50,27 +120,15 @@ public class RotateProcessor {
 
         if (mCurrentSurfaceRotation != surfaceRotation) {
             mCurrentSurfaceRotation = surfaceRotation;
+            // A new matrix instance is created so that the
+            // consumers can tell the rotation has changed.
+            mRotateMVPMatrix = new float[16];
             Matrix.setRotateM(mRotateMVPMatrix, 0,
                     mCurrentSurfaceRotation, 0, 0, 1);
         }
 
-        if (frame.format.getTexFormat() == GLES20.GL_TEXTURE_2D) {
-            mRotateProgram2D.update(desiredWidth, desiredHeight);
-            frame.textureId = mRotateProgram2D.drawRotateFrame(
-                    frame.textureId, frame.textureTransform, mRotateMVPMatrix);
-        } else if (frame.format.getTexFormat() == GLES11Ext.GL_TEXTURE_EXTERNAL_OES) {
-            mRotateProgramOES.update(desiredWidth, desiredHeight);
-            frame.textureId = mRotateProgramOES.drawRotateFrame(
-                    frame.textureId, frame.textureTransform, mRotateMVPMatrix);
-        }
-
-        frame.rotation = 0;
-        frame.format.setWidth(desiredWidth);
-        frame.format.setHeight(desiredHeight);
-        frame.format.setTexFormat(GLES20.GL_TEXTURE_2D);
-        frame.textureTransform = GlUtil.IDENTITY_MATRIX;
-
-        return frame;
+        mTargetWidth = desiredWidth;
+        mTargetHeight = desiredHeight;
     }
 
     public void release(VideoChannel.ChannelContext context) {
@@ -1,49 +1,109 @@
 package io.agora.framework.modules.producers;
 
 import android.os.Handler;
+import android.os.Message;
 import android.util.Log;
 
 import io.agora.capture.video.camera.VideoCaptureFrame;
 import io.agora.capture.video.camera.VideoModule;
+import io.agora.framework.modules.channels.FrameScheduler;
 import io.agora.framework.modules.channels.VideoChannel;
 
 public abstract class VideoProducer implements IVideoProducer {
     private static final String TAG = VideoProducer.class.getSimpleName();
 
-    private VideoChannel videoChannel;
+    private static final int MSG_DRAIN_FRAMES = 1;
+
+    private volatile VideoChannel videoChannel;
     protected volatile Handler pChannelHandler;
 
+    // Signals the channel thread with pooled Messages to
+    // process the frames queued in the frame scheduler.
+    private volatile Handler mFrameHandler;
+    private volatile FrameScheduler mFrameScheduler;
+
     @Override
     public void connectChannel(int channelId) {
         videoChannel = VideoModule.instance().connectProducer(this, channelId);
         pChannelHandler = videoChannel.getHandler();
+        mFrameScheduler = videoChannel.getFrameScheduler();
+        mFrameHandler = new Handler(pChannelHandler.getLooper(), this::handleFrameMessage);
     }
 
+    /**
+     * Send the frame to the video channel. The producer
+     * gives up its ownership of the frame, which will be
+     * released after the channel has processed it, or
+     * when it is replaced by a newer frame.
+     * @param frame the frame to be processed
+     */
     @Override
     public void pushVideoFrame(final VideoCaptureFrame frame) {
-        if (pChannelHandler == null) {
+        VideoChannel channel = videoChannel;
+        Handler handler = mFrameHandler;
+        if (channel == null || handler == null) {
+            frame.release();
             return;
         }
 
-        pChannelHandler.post(() -> {
-            try {
-                // The capture utilizes the environment OpenGL
-                // context for preview texture, so the capture
-                // thread and video channel thread use their
-                // shared OpenGL context.
-                // Thus updateTexImage() is valid here.
-                frame.surfaceTexture.updateTexImage();
-                if (frame.textureTransform == null) frame.textureTransform = new float[16];
-                frame.surfaceTexture.getTransformMatrix(frame.textureTransform);
-            } catch (Exception e) {
-                e.printStackTrace();
-                return;
-            }
+        if (mFrameScheduler.offer(frame)) {
+            handler.sendEmptyMessage(MSG_DRAIN_FRAMES);
+        }
+    }
 
-            if (videoChannel != null) {
-                videoChannel.pushVideoFrame(frame);
+    private boolean handleFrameMessage(Message msg) {
+        if (msg.what != MSG_DRAIN_FRAMES) {
+            return false;
+        }
+
+        // Only one frame is processed for each message,
+        // which leaves a chance for other messages to be
+        // handled between frames.
+        FrameScheduler scheduler = mFrameScheduler;
+        VideoCaptureFrame frame = scheduler.poll();
+        if (frame != null) {
+            VideoChannel channel = videoChannel;
+            if (channel != null) {
+                processFrame(channel, frame);
+            } else {
+                frame.release();
             }
-        });
+        }
+
+        if (scheduler.finishDrain()) {
+            msg.getTarget().sendEmptyMessage(MSG_DRAIN_FRAMES);
+        }
+        return true;
+    }
+
+    /**
+     * Process a frame taken from the frame queue in the
+     * channel thread, and give up the ownership of it.
+     */
+    protected void processFrame(VideoChannel channel, VideoCaptureFrame frame) {
+        if (!frame.tryBeginProcess()) {
+            // Dropped by the capture while waiting in the queue
+            frame.release();
+            return;
+        }
+
+        try {
+            // The capture utilizes the environment OpenGL
+            // context for preview texture, so the capture
+            // thread and video channel thread use their
+            // shared OpenGL context.
+            // Thus updateTexImage() is valid here.
+            // Frames without a surface texture come with
+            // their own texture transformation.
+            if (frame.surfaceTexture != null) frame.updateTexImage();
+        } catch (Exception e) {
+            e.printStackTrace();
+            frame.release();
+            return;
+        }
+
+        channel.pushVideoFrame(frame);
+        frame.release();
     }
 
     @Override
@@ -0,0 +1,139 @@
+package io.agora.capture.video.camera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of the NV21 conversion for the plane layouts
+ * reported by Camera2 devices.
+ */
+public class Nv21ConverterTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int PADDED_STRIDE = 80;
+
+    private final Random mRandom = new Random(42);
+    private final byte[] mY = new byte[WIDTH * HEIGHT];
+    private final byte[] mU = new byte[WIDTH * HEIGHT / 4];
+    private final byte[] mV = new byte[WIDTH * HEIGHT / 4];
+
+    public Nv21ConverterTest() {
+        mRandom.nextBytes(mY);
+        mRandom.nextBytes(mU);
+        mRandom.nextBytes(mV);
+    }
+
+    @Test
+    public void convertsNv21Layout() {
+        convertSemiPlanar(WIDTH, true, Nv21Converter.LAYOUT_NV21);
+        convertSemiPlanar(PADDED_STRIDE, true, Nv21Converter.LAYOUT_NV21);
+    }
+
+    @Test
+    public void convertsNv12Layout() {
+        convertSemiPlanar(WIDTH, false, Nv21Converter.LAYOUT_NV12);
+        convertSemiPlanar(PADDED_STRIDE, false, Nv21Converter.LAYOUT_NV12);
+        // Every other row starts at an odd offset
+        convertSemiPlanar(PADDED_STRIDE + 1, false, Nv21Converter.LAYOUT_NV12);
+    }
+
+    @Test
+    public void convertsPlanarLayout() {
+        convertPlanar(WIDTH / 2);
+        convertPlanar(PADDED_STRIDE / 2);
+    }
+
+    @Test
+    public void convertsToDirectBuffer() {
+        Nv21Converter converter = new Nv21Converter();
+        ByteBuffer out = ByteBuffer.allocateDirect(Nv21Converter.getNv21Size(WIDTH, HEIGHT));
+        converter.convert(WIDTH, HEIGHT, yPlane(WIDTH), WIDTH,
+                planar(mU, WIDTH / 2), planar(mV, WIDTH / 2),
+                WIDTH / 2, 1, out);
+
+        byte[] result = new byte[out.capacity()];
+        out.flip();
+        out.get(result);
+        assertArrayEquals(expected(), result);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSmallOutput() {
+        new Nv21Converter().convert(WIDTH, HEIGHT, yPlane(WIDTH), WIDTH,
+                planar(mU, WIDTH / 2), planar(mV, WIDTH / 2),
+                WIDTH / 2, 1, ByteBuffer.allocate(WIDTH * HEIGHT));
+    }
+
+    private void convertSemiPlanar(int rowStride, boolean vFirst, int layout) {
+        // Both chroma planes are views of one interleaved
+        // buffer, the plane starting later is one byte shorter.
+        int rows = HEIGHT / 2;
+        byte[] chroma = new byte[rowStride * (rows - 1) + WIDTH];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < WIDTH / 2; col++) {
+                int index = row * rowStride + col * 2;
+                int sample = row * WIDTH / 2 + col;
+                chroma[index] = vFirst ? mV[sample] : mU[sample];
+                chroma[index + 1] = vFirst ? mU[sample] : mV[sample];
+            }
+        }
+
+        ByteBuffer first = ByteBuffer.wrap(chroma, 0, chroma.length - 1).slice();
+        ByteBuffer second = ByteBuffer.wrap(chroma, 1, chroma.length - 1).slice();
+        ByteBuffer u = vFirst ? second : first;
+        ByteBuffer v = vFirst ? first : second;
+
+        Nv21Converter converter = new Nv21Converter();
+        byte[] result = convert(converter, rowStride, u, v, rowStride, 2);
+        assertEquals(layout, converter.getLastLayout());
+        assertArrayEquals(expected(), result);
+    }
+
+    private void convertPlanar(int rowStride) {
+        Nv21Converter converter = new Nv21Converter();
+        byte[] result = convert(converter, rowStride * 2,
+                planar(mU, rowStride), planar(mV, rowStride), rowStride, 1);
+        assertEquals(Nv21Converter.LAYOUT_PLANAR, converter.getLastLayout());
+        assertArrayEquals(expected(), result);
+    }
+
+    private byte[] convert(Nv21Converter converter, int yRowStride,
+                           ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride) {
+        byte[] result = new byte[Nv21Converter.getNv21Size(WIDTH, HEIGHT)];
+        converter.convert(WIDTH, HEIGHT, yPlane(yRowStride), yRowStride,
+                u, v, uvRowStride, uvPixelStride, ByteBuffer.wrap(result));
+        return result;
+    }
+
+    private ByteBuffer yPlane(int rowStride) {
+        byte[] plane = new byte[rowStride * (HEIGHT - 1) + WIDTH];
+        for (int row = 0; row < HEIGHT; row++) {
+            System.arraycopy(mY, row * WIDTH, plane, row * rowStride, WIDTH);
+        }
+        return ByteBuffer.wrap(plane);
+    }
+
+    private ByteBuffer planar(byte[] samples, int rowStride) {
+        int width = WIDTH / 2;
+        int rows = HEIGHT / 2;
+        byte[] plane = new byte[rowStride * (rows - 1) + width];
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(samples, row * width, plane, row * rowStride, width);
+        }
+        return ByteBuffer.wrap(plane);
+    }
+
+    private byte[] expected() {
+        byte[] nv21 = new byte[Nv21Converter.getNv21Size(WIDTH, HEIGHT)];
+        System.arraycopy(mY, 0, nv21, 0, mY.length);
+        for (int i = 0, pos = mY.length; i < mU.length; i++) {
+            nv21[pos++] = mV[i];
+            nv21[pos++] = mU[i];
+        }
+        return nv21;
+    }
+}
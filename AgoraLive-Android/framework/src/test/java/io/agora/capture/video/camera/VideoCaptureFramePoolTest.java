@@ -0,0 +1,108 @@
+package io.agora.capture.video.camera;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Local unit tests of the frame pool, which run on the development machine (host).
+ */
+public class VideoCaptureFramePoolTest {
+    private static final int WARM_UP_FRAMES = 20000;
+    private static final int MEASURED_FRAMES = 100000;
+
+    private final VideoCaptureFormat mCaptureFormat =
+            new VideoCaptureFormat(1280, 720, 24, 17, 36197);
+    private final byte[] mImage = new byte[16];
+
+    @Test
+    public void releasedFrameIsReused() {
+        VideoCaptureFramePool pool = new VideoCaptureFramePool(2);
+        VideoCaptureFrame frame = pool.acquire();
+        frame.image = mImage;
+        frame.textureTransform = new float[16];
+        frame.release();
+
+        VideoCaptureFrame reused = pool.acquire();
+        assertSame(frame, reused);
+        assertNull(reused.image);
+        assertNotNull(reused.textureTransform);
+        assertEquals(1, pool.getAllocatedCount());
+    }
+
+    @Test
+    public void retainedFrameIsNotRecycled() {
+        VideoCaptureFramePool pool = new VideoCaptureFramePool(2);
+        VideoCaptureFrame frame = pool.acquire();
+        frame.retain();
+        frame.release();
+        assertEquals(0, pool.getFreeCount());
+
+        frame.release();
+        assertEquals(1, pool.getFreeCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doubleReleaseThrows() {
+        VideoCaptureFrame frame = new VideoCaptureFramePool(1).acquire();
+        frame.release();
+        frame.release();
+    }
+
+    @Test
+    public void poolIsBounded() {
+        VideoCaptureFramePool pool = new VideoCaptureFramePool(2);
+        VideoCaptureFrame[] frames = new VideoCaptureFrame[3];
+        for (int i = 0; i < frames.length; i++) frames[i] = pool.acquire();
+        for (VideoCaptureFrame frame : frames) frame.release();
+        assertEquals(3, pool.getAllocatedCount());
+        assertEquals(2, pool.getFreeCount());
+    }
+
+    @Test
+    public void steadyStateAllocatesNothingPerFrame() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        VideoCaptureFramePool pool = new VideoCaptureFramePool();
+        runFrames(pool, WARM_UP_FRAMES);
+        int allocatedFrames = pool.getAllocatedCount();
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        runFrames(pool, MEASURED_FRAMES);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(allocatedFrames, pool.getAllocatedCount());
+        // Allow a few bytes of measurement noise in total, which
+        // is far less than one byte per frame.
+        assertTrue("allocated " + (after - before) + " bytes for "
+                + MEASURED_FRAMES + " frames", after - before < MEASURED_FRAMES / 10);
+    }
+
+    private void runFrames(VideoCaptureFramePool pool, int count) {
+        for (int i = 0; i < count; i++) {
+            // Capture
+            VideoCaptureFrame frame = pool.acquire();
+            frame.format.set(mCaptureFormat);
+            frame.image = mImage;
+            frame.timestamp = i;
+            frame.rotation = 270;
+
+            // A consumer holds the frame beyond its callback
+            frame.retain();
+            frame.textureTransform[0] = 1;
+            frame.format.setWidth(mCaptureFormat.getHeight());
+
+            frame.release();
+            frame.release();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package io.agora.framework.modules.channels;
+
+import android.opengl.GLES11Ext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.capture.video.camera.VideoCaptureFramePool;
+import io.agora.framework.modules.consumers.IVideoConsumer;
+import io.agora.framework.modules.producers.VideoProducer;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Local unit tests of the frames going from the capture
+ * through the producer and the channel to the consumers,
+ * which run on the development machine (host).
+ */
+public class VideoChannelAllocationTest {
+    private static final int WARM_UP_FRAMES = 20000;
+    private static final int MEASURED_FRAMES = 100000;
+
+    /**
+     * A channel that stays alive without a looper or OpenGL
+     */
+    private static class FakeChannel extends VideoChannel {
+        private final CountDownLatch mStopped = new CountDownLatch(1);
+
+        FakeChannel() {
+            super(null, ChannelManager.ChannelID.CAMERA);
+        }
+
+        @Override
+        public void run() {
+            try {
+                mStopped.await();
+            } catch (InterruptedException ignored) {
+
+            }
+        }
+
+        void finish() {
+            mStopped.countDown();
+        }
+    }
+
+    /**
+     * Holds each frame until the next one arrives,
+     * like a consumer that uses frames asynchronously
+     */
+    private static class HoldingConsumer implements IVideoConsumer {
+        VideoCaptureFrame held;
+        int consumed;
+
+        @Override
+        public void onConsumeFrame(VideoCaptureFrame frame, VideoChannel.ChannelContext context) {
+            frame.retain();
+            if (held != null) held.release();
+            held = frame;
+            consumed++;
+        }
+
+        @Override
+        public boolean requiresImageData() {
+            return true;
+        }
+
+        @Override
+        public void connectChannel(int channelId) {
+
+        }
+
+        @Override
+        public void disconnectChannel(int channelId) {
+
+        }
+
+        @Override
+        public Object onGetDrawingTarget() {
+            return null;
+        }
+
+        @Override
+        public int onMeasuredWidth() {
+            return 720;
+        }
+
+        @Override
+        public int onMeasuredHeight() {
+            return 1280;
+        }
+    }
+
+    private static class Producer extends VideoProducer {
+        void process(VideoChannel channel, VideoCaptureFrame frame) {
+            processFrame(channel, frame);
+        }
+    }
+
+    private final byte[] mImage = new byte[16];
+    private final float[] mTransform = new float[16];
+
+    private final VideoCaptureFramePool mPool = new VideoCaptureFramePool();
+    private final Producer mProducer = new Producer();
+    private final HoldingConsumer mOnScreen = new HoldingConsumer();
+    private final HoldingConsumer mOffScreen = new HoldingConsumer();
+    private FakeChannel mChannel;
+
+    @Before
+    public void setup() {
+        mChannel = new FakeChannel();
+        mChannel.start();
+        assertTrue(mChannel.addConsumer(mOnScreen, IVideoConsumer.TYPE_ON_SCREEN));
+        assertTrue(mChannel.addConsumer(mOffScreen, IVideoConsumer.TYPE_OFF_SCREEN));
+        assertFalse(mChannel.addConsumer(mOffScreen, IVideoConsumer.TYPE_OFF_SCREEN));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mChannel.finish();
+        mChannel.join();
+    }
+
+    @Test
+    public void framesReachConsumersAndReturnToPool() {
+        runFrames(3);
+        assertEquals(3, mOnScreen.consumed);
+        assertEquals(3, mOffScreen.consumed);
+        assertEquals(2, mOnScreen.held.timestamp);
+        assertSame(mOnScreen.held, mOffScreen.held);
+
+        mOnScreen.held.release();
+        mOffScreen.held.release();
+        assertEquals(mPool.getAllocatedCount(), mPool.getFreeCount());
+    }
+
+    @Test
+    public void steadyStateAllocatesNothingPerFrame() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        runFrames(WARM_UP_FRAMES);
+        int allocatedFrames = mPool.getAllocatedCount();
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        runFrames(MEASURED_FRAMES);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(allocatedFrames, mPool.getAllocatedCount());
+        assertEquals(WARM_UP_FRAMES + MEASURED_FRAMES, mOffScreen.consumed);
+        // Allow a few bytes of measurement noise in total, which
+        // is far less than one byte per frame.
+        assertTrue("allocated " + (after - before) + " bytes for "
+                + MEASURED_FRAMES + " frames", after - before < MEASURED_FRAMES / 10);
+    }
+
+    private void runFrames(int count) {
+        for (int i = 0; i < count; i++) {
+            // Capture, as VideoCapture fills a pooled frame
+            VideoCaptureFrame frame = mPool.acquire();
+            frame.format.setWidth(1280);
+            frame.format.setHeight(720);
+            frame.format.setTexFormat(GLES11Ext.GL_TEXTURE_EXTERNAL_OES);
+            frame.image = mImage;
+            frame.textureTransform = mTransform;
+            frame.timestamp = i;
+
+            // The producer gives up the frame in the channel
+            mProducer.process(mChannel, frame);
+        }
+    }
+}
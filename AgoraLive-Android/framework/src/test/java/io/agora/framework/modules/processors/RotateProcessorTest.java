@@ -0,0 +1,38 @@
+package io.agora.framework.modules.processors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of telling whether the frames need
+ * the rotate pass, which run on the development machine (host).
+ */
+public class RotateProcessorTest {
+    // The transformation of a camera texture, flipped vertically
+    private static final float[] FLIP = {
+            1, 0, 0, 0,
+            0, -1, 0, 0,
+            0, 0, 1, 0,
+            0, 1, 0, 1
+    };
+
+    // Rotates the texture coordinates by 90 degrees
+    private static final float[] ROTATE_90 = {
+            0, 1, 0, 0,
+            -1, 0, 0, 0,
+            0, 0, 1, 0,
+            1, 0, 0, 1
+    };
+
+    @Test
+    public void flippedCameraTextureIsUpright() {
+        assertFalse(RotateProcessor.swapsAxes(null));
+        assertFalse(RotateProcessor.swapsAxes(FLIP));
+    }
+
+    @Test
+    public void rotatedTextureIsNotUpright() {
+        assertTrue(RotateProcessor.swapsAxes(ROTATE_90));
+    }
+}